@@ -0,0 +1,128 @@
+package managers;
+
+import model.Task;
+import utils.IntIntMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * История просмотров на заранее выделенных массивах: задачи лежат в слотах, порядок задают
+ * параллельные массивы индексов prev/next, а id → слот хранит {@link IntIntMap} без упаковки.<br>
+ * Освободившиеся слоты собираются в список свободных (через next) и используются повторно,
+ * при переполнении слот самого давнего просмотра переходит к новому, поэтому
+ * {@link #add(Task)} и {@link #remove(int)} за O(1) ничего не выделяют в куче.
+ * Семантика та же, что у {@link InMemoryHistoryManager}: без повторов, повторный просмотр переносит задачу в конец.
+ */
+public class ArrayHistoryManager implements HistoryManager {
+    private static final int NIL = -1;
+
+    private final Task[] tasks;
+    private final int[] prev;
+    private final int[] next;
+    private final IntIntMap slotOf; // размер задан заранее и не превышает capacity — таблица не растёт
+    private int head = NIL;
+    private int tail = NIL;
+    private int free;
+    private int size;
+
+    public ArrayHistoryManager() {
+        this(InMemoryHistoryManager.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity максимальное число задач в истории
+     * @throws IllegalArgumentException если capacity не положителен
+     */
+    public ArrayHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным: " + capacity);
+        }
+        tasks = new Task[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+        slotOf = new IntIntMap(capacity);
+        for (int i = 0; i < capacity; i++) {
+            next[i] = i + 1;
+        }
+        next[capacity - 1] = NIL;
+        Arrays.fill(prev, NIL);
+    }
+
+    @Override
+    public void add(Task task) {
+        int id = task.getId();
+        int slot = slotOf.get(id, NIL);
+        if (slot != NIL) {
+            unlink(slot); // повторный просмотр — переносим в конец
+        } else if (size == tasks.length) {
+            slot = head; // вытесняем самый давний просмотр и занимаем его слот
+            unlink(slot);
+            slotOf.remove(tasks[slot].getId(), NIL);
+            slotOf.put(id, slot);
+        } else {
+            slot = free;
+            free = next[slot];
+            slotOf.put(id, slot);
+            size++;
+        }
+        tasks[slot] = task;
+        linkLast(slot);
+    }
+
+    @Override
+    public void remove(int taskId) {
+        int slot = slotOf.remove(taskId, NIL);
+        if (slot == NIL) return;
+        unlink(slot);
+        tasks[slot] = null;
+        next[slot] = free;
+        free = slot;
+        size--;
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        List<Task> history = new ArrayList<>(size);
+        for (int slot = head; slot != NIL; slot = next[slot]) {
+            history.add(tasks[slot]);
+        }
+        return history;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return tasks.length;
+    }
+
+    private void linkLast(int slot) {
+        prev[slot] = tail;
+        next[slot] = NIL;
+        if (tail != NIL) {
+            next[tail] = slot;
+        } else {
+            head = slot;
+        }
+        tail = slot;
+    }
+
+    private void unlink(int slot) {
+        int p = prev[slot];
+        int n = next[slot];
+        if (p != NIL) {
+            next[p] = n;
+        } else {
+            head = n;
+        }
+        if (n != NIL) {
+            prev[n] = p;
+        } else {
+            tail = p;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package managers;
+
+import exeptions.ManagerLoadException;
+import exeptions.ManagerSaveException;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import utils.Status;
+import utils.TaskType;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Двоичный формат снимка.<br>
+ * Заголовок файла: magic (4 байта), версия (2), резерв (2), число записей (8).<br>
+ * Запись: тип (1), статус (1), резерв (2), id (4), id эпика (4), начало в минутах от эпохи UTC (8),
+ * продолжительность в минутах (8), длина имени (4), длина описания (4), затем байты имени и описания в UTF-8.
+ * Длина -1 означает null. Время хранится с точностью до минуты, как и продолжительность в CSV.
+ */
+final class BinarySnapshot {
+    static final int MAGIC = 0x4B424E53; // "KBNS"
+    static final short VERSION = 1;
+    private static final int FILE_HEADER_BYTES = 16;
+    private static final int RECORD_HEADER_BYTES = 36;
+    private static final long NULL_MINUTES = Long.MIN_VALUE;
+    private static final int NULL_LENGTH = -1;
+    private static final int MAX_WINDOW = 1 << 30; // окно отображения, чтобы читать файлы больше 2 ГБ
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+
+    private BinarySnapshot() {
+    }
+
+    /**
+     * Проверяет по сигнатуре, записан ли файл в двоичном формате.
+     *
+     * @param file файл снимка
+     * @return true, если файл начинается с сигнатуры двоичного снимка
+     */
+    static boolean isBinary(File file) {
+        if (file.length() < FILE_HEADER_BYTES) return false;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == MAGIC;
+        } catch (IOException e) {
+            throw new ManagerLoadException("Ошибка чтения файла " + file, e);
+        }
+    }
+
+    static void write(File target, Collection<Task> tasks, Collection<Epic> epics,
+                      Collection<Subtask> subtasks, boolean sync) {
+        try (FileOutputStream fos = new FileOutputStream(target);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeShort(0);
+            out.writeLong((long) tasks.size() + epics.size() + subtasks.size());
+            for (Task task : tasks) {
+                writeRecord(out, TaskType.TASK, task, 0);
+            }
+            for (Epic epic : epics) {
+                writeRecord(out, TaskType.EPIC, epic, 0);
+            }
+            for (Subtask subtask : subtasks) {
+                writeRecord(out, TaskType.SUBTASK, subtask, subtask.getEpicId());
+            }
+            out.flush();
+            if (sync) {
+                fos.getFD().sync();
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сохранения двоичного снимка", e);
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, TaskType type, Task task, int epicId) throws IOException {
+        byte[] name = task.getName() != null ? task.getName().getBytes(StandardCharsets.UTF_8) : null;
+        byte[] description = task.getDescription() != null
+                ? task.getDescription().getBytes(StandardCharsets.UTF_8) : null;
+        out.writeByte(type.ordinal());
+        out.writeByte(task.getStatus() != null ? task.getStatus().ordinal() : Status.NEW.ordinal());
+        out.writeShort(0);
+        out.writeInt(task.getId());
+        out.writeInt(epicId);
+        out.writeLong(task.getStartTime() != null
+                ? task.getStartTime().toEpochSecond(ZoneOffset.UTC) / 60 : NULL_MINUTES);
+        out.writeLong(task.getDuration() != null ? task.getDuration().toMinutes() : 0);
+        out.writeInt(name != null ? name.length : NULL_LENGTH);
+        out.writeInt(description != null ? description.length : NULL_LENGTH);
+        if (name != null) out.write(name);
+        if (description != null) out.write(description);
+    }
+
+    /**
+     * Читает снимок через отображение файла в память и передаёт каждую сущность обработчику
+     * в порядке записи: задачи, эпики, подзадачи.
+     *
+     * @param file     файл снимка
+     * @param consumer обработчик сущностей
+     */
+    static void read(File file, Consumer<Task> consumer) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            MappedReader in = new MappedReader(channel);
+            in.ensure(FILE_HEADER_BYTES);
+            if (in.buffer.getInt() != MAGIC) {
+                throw new ManagerLoadException("Файл " + file + " не является двоичным снимком", null);
+            }
+            short version = in.buffer.getShort();
+            if (version != VERSION) {
+                throw new ManagerLoadException("Неподдерживаемая версия снимка: " + version, null);
+            }
+            in.buffer.getShort(); // резерв
+            long count = in.buffer.getLong();
+            for (long i = 0; i < count; i++) {
+                consumer.accept(readRecord(in));
+            }
+        } catch (IOException e) {
+            throw new ManagerLoadException("Ошибка загрузки двоичного снимка", e);
+        }
+    }
+
+    private static Task readRecord(MappedReader in) throws IOException {
+        in.ensure(RECORD_HEADER_BYTES);
+        TaskType type = TYPES[in.buffer.get()];
+        Status status = STATUSES[in.buffer.get()];
+        in.buffer.getShort(); // резерв
+        int id = in.buffer.getInt();
+        int epicId = in.buffer.getInt();
+        long startMinutes = in.buffer.getLong();
+        long durationMinutes = in.buffer.getLong();
+        int nameLength = in.buffer.getInt();
+        int descriptionLength = in.buffer.getInt();
+        in.ensure(Math.max(nameLength, 0) + Math.max(descriptionLength, 0));
+        String name = in.string(nameLength);
+        String description = in.string(descriptionLength);
+        LocalDateTime startTime = startMinutes == NULL_MINUTES
+                ? null : LocalDateTime.ofEpochSecond(startMinutes * 60, 0, ZoneOffset.UTC);
+        Duration duration = Duration.ofMinutes(durationMinutes);
+        return switch (type) {
+            case TASK -> new Task(id, name, description, status, startTime, duration);
+            case EPIC -> new Epic(id, name, description, status, startTime, duration);
+            case SUBTASK -> new Subtask(id, name, description, status, startTime, duration, epicId);
+        };
+    }
+
+    /**
+     * Последовательное чтение файла через скользящее окно отображения.
+     */
+    private static final class MappedReader {
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer buffer;
+        private byte[] scratch = new byte[256];
+
+        MappedReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            map(0);
+        }
+
+        private void map(long position) throws IOException {
+            windowStart = position;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAX_WINDOW, size - position));
+        }
+
+        /**
+         * Гарантирует, что в окне доступно ещё {@code bytes} байт, при необходимости сдвигая окно.
+         */
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) return;
+            long position = windowStart + buffer.position();
+            if (size - position < bytes) {
+                throw new ManagerLoadException("Двоичный снимок обрезан", null);
+            }
+            map(position);
+        }
+
+        String string(int length) {
+            if (length == NULL_LENGTH) return null;
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package managers;
+
+import utils.IdGenerator;
+import utils.PersistenceMode;
+
+import java.io.File;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Реестр досок: у каждой доски свой менеджер задач со своим счётчиком id, хранилищами
+ * и блокировками, поэтому запросы к разным доскам не соперничают друг с другом.<br>
+ * Доска создаётся при первом обращении к её ключу. В памяти каждая доска — {@link ConcurrentTaskManager};
+ * с каталогом — {@link FileBackedTaskManager} с файлом {@code <каталог>/<ключ>.csv}, который при
+ * первом обращении загружается вместе с журналом.
+ */
+public final class BoardRegistry implements AutoCloseable {
+    private static final Pattern KEY = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final String FILE_SUFFIX = ".csv";
+
+    private final File directory; // null — доски только в памяти
+    private final PersistenceMode mode;
+    private final ConcurrentMap<String, TaskManager> boards = new ConcurrentHashMap<>();
+
+    private BoardRegistry(File directory, PersistenceMode mode) {
+        this.directory = directory;
+        this.mode = mode;
+    }
+
+    public static BoardRegistry inMemory() {
+        return new BoardRegistry(null, null);
+    }
+
+    /**
+     * Доски с файлами в каталоге.
+     *
+     * @param directory каталог файлов досок, создаётся при необходимости
+     * @param mode      режим сохранения менеджеров досок
+     */
+    public static BoardRegistry fileBacked(File directory, PersistenceMode mode) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Не удалось создать каталог досок: " + directory);
+        }
+        return new BoardRegistry(directory, mode);
+    }
+
+    /**
+     * Менеджер доски; создаётся или загружается при первом обращении.
+     *
+     * @throws IllegalArgumentException если ключ не из букв, цифр, '_' и '-' или длиннее 64 символов
+     */
+    public TaskManager get(String key) {
+        checkKey(key);
+        return boards.computeIfAbsent(key, this::open);
+    }
+
+    /**
+     * Ключи открытых досок и досок, сохранённых в каталоге, по алфавиту.
+     */
+    public Set<String> keys() {
+        Set<String> keys = new TreeSet<>(boards.keySet());
+        if (directory != null) {
+            String[] names = directory.list();
+            if (names != null) {
+                for (String name : names) {
+                    int end = name.indexOf(FILE_SUFFIX); // снимок <ключ>.csv или только журнал <ключ>.csv.log
+                    if (end > 0 && KEY.matcher(name.substring(0, end)).matches()) keys.add(name.substring(0, end));
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Сбрасывает и закрывает файлы всех открытых досок.
+     */
+    @Override
+    public void close() {
+        for (TaskManager manager : boards.values()) {
+            if (manager instanceof FileBackedTaskManager fileBacked) {
+                fileBacked.close();
+            }
+        }
+    }
+
+    private TaskManager open(String key) {
+        IdGenerator ids = new IdGenerator();
+        if (directory == null) {
+            return new ConcurrentTaskManager(ids);
+        }
+        return FileBackedTaskManager.loadFromFile(new File(directory, key + FILE_SUFFIX), mode, ids);
+    }
+
+    private static void checkKey(String key) {
+        if (key == null || !KEY.matcher(key).matches()) {
+            throw new IllegalArgumentException("Некорректный ключ доски: " + key);
+        }
+    }
+}
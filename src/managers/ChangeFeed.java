@@ -0,0 +1,200 @@
+package managers;
+
+import model.Task;
+import model.TaskEvent;
+import utils.TaskType;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Лента изменений менеджера задач: события о создании, изменении и удалении сущностей
+ * и о пересчёте статуса и времени эпиков.<br>
+ * Менеджер публикует события внутри своих мутаций, поэтому seq идёт в порядке применения изменений.
+ * Каждый подписчик получает события в своём потоке через ограниченный буфер: публикация
+ * никогда не ждёт медленного подписчика — если его буфер полон, событие для него отбрасывается
+ * и учитывается в {@link Subscription#getDropped()}, а подписчик видит разрыв в seq.<br>
+ * Пока подписчиков нет, публикация стоит одного инкремента счётчика — копии сущностей не создаются.
+ */
+public final class ChangeFeed {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+
+    private final AtomicLong seq = new AtomicLong();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    public Subscription subscribe(TaskEventListener listener) {
+        return subscribe(listener, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Подписывает на события, опубликованные после вызова.
+     *
+     * @param listener обработчик событий; исключения из него учитываются в {@link Subscription#getFailures()}
+     * @param capacity размер буфера подписки
+     * @throws IllegalArgumentException если listener пуст или capacity не положителен
+     */
+    public Subscription subscribe(TaskEventListener listener, int capacity) {
+        if (listener == null) {
+            throw new IllegalArgumentException("Подписчик не может быть пустым");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер буфера должен быть положительным: " + capacity);
+        }
+        Subscription subscription = new Subscription(listener, capacity);
+        subscriptions.add(subscription);
+        // seq читается после регистрации: событие с большим номером публикуется, когда подписка уже в списке
+        subscription.start(seq.get());
+        return subscription;
+    }
+
+    /**
+     * @return номер последнего опубликованного события (0, если событий не было)
+     */
+    public long getLastSeq() {
+        return seq.get();
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Публикует событие. Вызывается менеджером внутри мутации, до того как сущность изменится снова.
+     *
+     * @param entity текущая версия сущности или null для удаления
+     */
+    void publish(TaskEvent.Kind kind, TaskType type, int id, Task entity) {
+        long next = seq.incrementAndGet();
+        if (subscriptions.isEmpty()) return;
+        TaskEvent event = new TaskEvent(next, kind, type, id, entity == null ? null : TaskEvent.snapshotOf(entity));
+        for (Subscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * Подписка на ленту с метриками доставки. Закрывается через {@link #close()}.
+     */
+    public final class Subscription implements AutoCloseable {
+        private final TaskEventListener listener;
+        private final BlockingQueue<TaskEvent> buffer;
+        private final Thread thread;
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private long startSeq;
+        private volatile long lastDeliveredSeq;
+        private volatile boolean closed;
+
+        private Subscription(TaskEventListener listener, int capacity) {
+            this.listener = listener;
+            this.buffer = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(this::run, "change-feed-" + threadCounter.incrementAndGet());
+            this.thread.setDaemon(true);
+        }
+
+        private void start(long startSeq) {
+            this.startSeq = startSeq;
+            this.lastDeliveredSeq = startSeq;
+            thread.start();
+        }
+
+        private void offer(TaskEvent event) {
+            if (!buffer.offer(event)) {
+                dropped.incrementAndGet();
+            }
+        }
+
+        private void run() {
+            while (!closed) {
+                TaskEvent event;
+                try {
+                    event = buffer.take();
+                } catch (InterruptedException e) {
+                    return; // close() прерывает ожидание
+                }
+                if (event.getSeq() <= startSeq) continue; // опубликовано до подписки, пока она регистрировалась
+                try {
+                    listener.onEvent(event);
+                } catch (RuntimeException e) {
+                    failures.incrementAndGet(); // ошибка одного события не останавливает доставку остальных
+                }
+                delivered.incrementAndGet();
+                lastDeliveredSeq = event.getSeq();
+            }
+        }
+
+        /**
+         * Отставание подписчика: сколько событий опубликовано после последнего обработанного им,
+         * включая ожидающие в буфере и отброшенные.
+         */
+        public long getLag() {
+            return Math.max(0, seq.get() - lastDeliveredSeq);
+        }
+
+        /**
+         * @return число событий в буфере, ещё не переданных подписчику
+         */
+        public int getPending() {
+            return buffer.size();
+        }
+
+        public long getDelivered() {
+            return delivered.get();
+        }
+
+        /**
+         * @return число событий, отброшенных из-за переполнения буфера
+         */
+        public long getDropped() {
+            return dropped.get();
+        }
+
+        /**
+         * @return число событий, на которых подписчик бросил исключение
+         */
+        public long getFailures() {
+            return failures.get();
+        }
+
+        /**
+         * @return номер последнего события до подписки: подписчик получает события с большими номерами
+         */
+        public long getStartSeq() {
+            return startSeq;
+        }
+
+        public long getLastDeliveredSeq() {
+            return lastDeliveredSeq;
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Отписывает и останавливает поток доставки; события, оставшиеся в буфере, не доставляются.
+         */
+        @Override
+        public void close() {
+            if (closed) return;
+            closed = true;
+            subscriptions.remove(this);
+            buffer.clear();
+            thread.interrupt();
+            if (Thread.currentThread() != thread) { // подписчик может отписаться из своего обработчика
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
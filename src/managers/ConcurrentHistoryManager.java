@@ -0,0 +1,171 @@
+package managers;
+
+import model.Task;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Потокобезопасная история просмотров без общей блокировки.<br>
+ * Просмотр записывается как «id → (задача, номер просмотра)» в {@link ConcurrentHashMap}: потоки,
+ * смотрящие разные задачи, не мешают друг другу, а повторный просмотр просто заменяет запись,
+ * так что последний просмотр побеждает и повторов нет. Порядок собирается лениво в {@link #getHistory()}
+ * сортировкой по номеру и кэшируется до следующего изменения.<br>
+ * Лишние записи сверх capacity удаляются пачкой, когда их становится вдвое больше, — это делает
+ * один поток, остальные в это время продолжают записывать просмотры.
+ */
+public class ConcurrentHistoryManager implements HistoryManager {
+    private static final Comparator<View> NEWEST_FIRST = Comparator.comparingLong(View::seq).reversed();
+
+    private record View(Task task, long seq) {
+    }
+
+    private record Snapshot(long version, List<Task> history) {
+    }
+
+    private final Map<Integer, View> latest = new ConcurrentHashMap<>();
+    private final AtomicLong clock = new AtomicLong(); // номера просмотров
+    private final AtomicLong modifications = new AtomicLong(); // версия кэша порядка; растёт после изменения карты
+    private final AtomicBoolean trimming = new AtomicBoolean();
+    private final int capacity;
+    private volatile Snapshot snapshot = new Snapshot(0, List.of());
+
+    public ConcurrentHistoryManager() {
+        this(InMemoryHistoryManager.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity максимальное число задач в истории
+     * @throws IllegalArgumentException если capacity не положителен
+     */
+    public ConcurrentHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void add(Task task) {
+        latest.put(task.getId(), new View(task, clock.incrementAndGet()));
+        modifications.incrementAndGet(); // после put: версия, прочитанная читателем, не новее его обхода
+        if (latest.size() > 2 * capacity) {
+            trimExclusively();
+        }
+    }
+
+    /**
+     * Удаляет задачу из истории. Сначала отбрасываются вытесненные записи — иначе удаление свежей
+     * задачи вернуло бы в историю ту, что уже должна была из неё выпасть. Обрезка оставляет ровно
+     * capacity записей, поэтому при удалении многих задач подряд она выполняется один раз.
+     */
+    @Override
+    public void remove(int taskId) {
+        if (latest.size() > capacity) {
+            trimExclusively();
+        }
+        if (latest.remove(taskId) != null) {
+            modifications.incrementAndGet();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        Snapshot cached = snapshot;
+        long version = modifications.get(); // до обхода: изменение, не попавшее в обход, увеличит версию
+        if (cached.version() == version) {
+            return new ArrayList<>(cached.history());
+        }
+        List<View> views = newestFirst();
+        int n = Math.min(capacity, views.size());
+        List<Task> history = new ArrayList<>(n);
+        for (int i = n - 1; i >= 0; i--) {
+            history.add(views.get(i).task());
+        }
+        snapshot = new Snapshot(version, history);
+        return new ArrayList<>(history);
+    }
+
+    /**
+     * Число задач в истории; записи сверх capacity, ещё не удалённые пачкой, не учитываются.
+     */
+    @Override
+    public int size() {
+        return Math.min(latest.size(), capacity);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private List<View> newestFirst() {
+        List<View> views = new ArrayList<>(latest.values());
+        views.sort(NEWEST_FIRST);
+        return views;
+    }
+
+    /**
+     * Обрезка одним потоком: если её уже выполняет другой поток, вызывающий не ждёт и не повторяет её.
+     */
+    private void trimExclusively() {
+        if (!trimming.compareAndSet(false, true)) return;
+        try {
+            trim();
+        } finally {
+            trimming.set(false);
+        }
+    }
+
+    /**
+     * Оставляет capacity самых свежих записей: находит номер capacity-го по свежести просмотра
+     * и удаляет записи старше него. Запись, которую успели заменить более свежим просмотром,
+     * не удаляется — removeIf у ConcurrentHashMap удаляет значение, только если оно не изменилось.
+     */
+    private void trim() {
+        long[] seqs = new long[latest.size() + 16]; // размер может расти во время обхода
+        int n = 0;
+        for (View view : latest.values()) {
+            if (n == seqs.length) seqs = Arrays.copyOf(seqs, n * 2);
+            seqs[n++] = view.seq();
+        }
+        if (n <= capacity) return;
+        long oldestKept = select(seqs, n, n - capacity);
+        latest.values().removeIf(view -> view.seq() < oldestKept); // в getHistory они и так не попадают
+    }
+
+    /**
+     * k-й по возрастанию элемент первых n (быстрый выбор, в среднем O(n)); массив переставляется.
+     */
+    private static long select(long[] a, int n, int k) {
+        int lo = 0;
+        int hi = n - 1;
+        while (lo < hi) {
+            long pivot = a[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (a[i] < pivot) i++;
+                while (a[j] > pivot) j--;
+                if (i <= j) {
+                    long t = a[i];
+                    a[i++] = a[j];
+                    a[j--] = t;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return a[k];
+            }
+        }
+        return a[k];
+    }
+}
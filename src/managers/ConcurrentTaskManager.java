@@ -0,0 +1,553 @@
+package managers;
+
+import model.Epic;
+import model.Page;
+import model.Subtask;
+import model.Task;
+import model.TaskEvent;
+import utils.FullTextIndex;
+import utils.IdGenerator;
+import utils.IntHashSet;
+import utils.Managers;
+import utils.PersistentTreeMap;
+import utils.Status;
+import utils.TaskType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Потокобезопасный TaskManager поверх {@link InMemoryTaskManager}.<br>
+ * Чтения выполняются под общей блокировкой чтения и идут параллельно,
+ * изменения — под блокировкой записи, поэтому проверка пересечений,
+ * вставка в приоритетную очередь и пересчёт эпика выполняются атомарно.<br>
+ * Историю просмотров меняют и читатели (get*ById), поэтому по умолчанию она {@link ConcurrentHistoryManager}
+ * без общей блокировки; другая переданная реализация оборачивается в синхронизированную.<br>
+ * Списочные чтения (getAll*, getPrioritizedTasks) вообще не берут блокировку: после каждого изменения
+ * писатель публикует новую неизменяемую версию {@link State} на персистентных деревьях, а читатель
+ * получает представление той версии, что была опубликована на момент вызова, без копирования.
+ * Статус и время эпиков менеджер пересчитывает в живых объектах, поэтому в версию попадают их копии,
+ * сделанные при публикации.
+ */
+public class ConcurrentTaskManager extends InMemoryTaskManager {
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock readLock = lock.readLock();
+    private final Lock writeLock = lock.writeLock();
+
+    private static final Comparator<Integer> BY_ID = Comparator.naturalOrder();
+    private static final Comparator<PriorityKey> BY_PRIORITY = Comparator
+            .comparing(PriorityKey::start)
+            .thenComparingInt(PriorityKey::id);
+
+    /**
+     * Ключ в снимке приоритетной очереди. Время фиксируется при публикации,
+     * поэтому последующие изменения объекта задачи не ломают порядок дерева.
+     */
+    private record PriorityKey(LocalDateTime start, int id) {
+    }
+
+    /**
+     * Версия данных, видимая читателям. Все поля неизменяемы, новая версия разделяет узлы с прежней.
+     */
+    private record State(PersistentTreeMap<Integer, Task> tasks,
+                         PersistentTreeMap<Integer, Epic> epics,
+                         PersistentTreeMap<Integer, Subtask> subtasks,
+                         PersistentTreeMap<PriorityKey, Task> prioritized) {
+    }
+
+    private volatile State state = new State(PersistentTreeMap.empty(BY_ID), PersistentTreeMap.empty(BY_ID),
+            PersistentTreeMap.empty(BY_ID), PersistentTreeMap.empty(BY_PRIORITY));
+
+    /**
+     * Ключи опубликованных в очереди задач по id — нужны, чтобы найти старую запись при обновлении.
+     * Меняется только под блокировкой записи.
+     */
+    private final Map<Integer, PriorityKey> publishedKeys = new HashMap<>();
+
+    /**
+     * Эпики, пересчитанные текущим изменением, — их копии публикуются вместе с затронутыми id.
+     * Меняется только под блокировкой записи.
+     */
+    private final IntHashSet touchedEpics = new IntHashSet();
+
+    public ConcurrentTaskManager() {
+        this(Managers.getConcurrentHistory(InMemoryHistoryManager.DEFAULT_CAPACITY));
+    }
+
+    public ConcurrentTaskManager(HistoryManager historyManager) {
+        super(threadSafe(historyManager));
+    }
+
+    /**
+     * @param ids собственный счётчик id, например у менеджера отдельной доски
+     */
+    public ConcurrentTaskManager(IdGenerator ids) {
+        super(new ConcurrentHistoryManager(), ids);
+    }
+
+    private static HistoryManager threadSafe(HistoryManager historyManager) {
+        return historyManager instanceof ConcurrentHistoryManager
+                ? historyManager
+                : new SynchronizedHistoryManager(historyManager);
+    }
+
+    private <R> R read(Supplier<R> action) {
+        readLock.lock();
+        try {
+            return action.get();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private void write(Runnable action) {
+        writeLock.lock();
+        try {
+            action.run();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Выполняет изменение и публикует новую версию для затронутых id.
+     * Если изменение выбросило исключение, опубликованная версия не меняется.
+     */
+    private void write(Runnable action, Supplier<int[]> touchedIds) {
+        write(() -> {
+            action.run();
+            State next = state;
+            for (int id : touchedIds.get()) {
+                next = refresh(next, id);
+            }
+            state = refreshTouchedEpics(next);
+        });
+    }
+
+    @Override
+    void epicTouched(int epicId) {
+        touchedEpics.add(epicId); // вызывается только изнутри изменяющих методов, то есть под блокировкой записи
+    }
+
+    private State refreshTouchedEpics(State s) {
+        for (int i = 0; i < touchedEpics.size(); i++) {
+            s = refresh(s, touchedEpics.get(i));
+        }
+        touchedEpics.clear();
+        return s;
+    }
+
+    /**
+     * Копия эпика для публикации: живой объект дальше меняется при пересчёте агрегатов.
+     */
+    private static Epic frozen(Epic epic) {
+        Epic copy = (Epic) TaskEvent.snapshotOf(epic);
+        epic.getSubtaskIdSet().forEach(copy::addSubtaskId);
+        return copy;
+    }
+
+    /**
+     * Приводит запись id в снимке к текущему состоянию живых хранилищ.
+     */
+    private State refresh(State s, int id) {
+        PersistentTreeMap<Integer, Task> t = s.tasks();
+        PersistentTreeMap<Integer, Epic> e = s.epics();
+        PersistentTreeMap<Integer, Subtask> st = s.subtasks();
+        PersistentTreeMap<PriorityKey, Task> p = s.prioritized();
+        Task task = tasks.get(id);
+        Epic epic = epics.get(id);
+        Subtask subtask = subtasks.get(id);
+        t = task != null ? t.put(id, task) : t.remove(id);
+        e = epic != null ? e.put(id, frozen(epic)) : e.remove(id);
+        st = subtask != null ? st.put(id, subtask) : st.remove(id);
+
+        PriorityKey oldKey = publishedKeys.remove(id);
+        if (oldKey != null) p = p.remove(oldKey);
+        Task scheduled = task != null ? task : subtask;
+        if (scheduled != null && scheduled.getStartTime() != null) {
+            PriorityKey key = new PriorityKey(scheduled.getStartTime(), id);
+            publishedKeys.put(id, key);
+            p = p.put(key, scheduled);
+        }
+        return new State(t, e, st, p);
+    }
+
+    /**
+     * Полностью пересобирает снимок за O(n) — после массовых удалений.
+     */
+    private void republishAll() {
+        publishedKeys.clear();
+        List<Task> scheduled = new ArrayList<>(prioritizedTasks);
+        List<PriorityKey> keys = new ArrayList<>(scheduled.size());
+        for (Task task : scheduled) {
+            PriorityKey key = new PriorityKey(task.getStartTime(), task.getId());
+            keys.add(key);
+            publishedKeys.put(task.getId(), key);
+        }
+        touchedEpics.clear();
+        state = new State(sortedById(tasks, UnaryOperator.identity()),
+                sortedById(epics, ConcurrentTaskManager::frozen),
+                sortedById(subtasks, UnaryOperator.identity()),
+                PersistentTreeMap.fromSorted(BY_PRIORITY, keys, scheduled));
+    }
+
+    private static <T extends Task> PersistentTreeMap<Integer, T> sortedById(EntityStore<T> live,
+                                                                             UnaryOperator<T> publish) {
+        int[] keys = live.keys(); // уже по возрастанию
+        List<Integer> ids = new ArrayList<>(keys.length);
+        List<T> values = new ArrayList<>(keys.length);
+        for (int id : keys) {
+            ids.add(id);
+            values.add(publish.apply(live.get(id)));
+        }
+        return PersistentTreeMap.fromSorted(BY_ID, ids, values);
+    }
+
+    /**
+     * Страница из опубликованного снимка: без блокировок, позиция ищется по рангу за O(log n).
+     */
+    private static <T extends Task> Page<T> page(PersistentTreeMap<Integer, T> snapshot, int limit, String cursor) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit должен быть положительным: " + limit);
+        }
+        int afterId = Page.decodeCursor(cursor);
+        int from = snapshot.rank(afterId) + (snapshot.get(afterId) != null ? 1 : 0);
+        int to = (int) Math.min((long) from + limit, snapshot.size());
+        List<T> items = new ArrayList<>(Math.max(to - from, 0));
+        for (T item : snapshot.values().subList(Math.min(from, to), to)) {
+            items.add(item);
+        }
+        String next = to < snapshot.size() ? Page.cursorAfter(items.get(items.size() - 1).getId()) : null;
+        return new Page<>(items, next);
+    }
+
+    /**
+     * Транзакция применяется под одной блокировкой записи. Удаление эпика уносит и его подзадачи,
+     * id которых после применения уже не узнать, поэтому в этом случае снимок пересобирается целиком.
+     */
+    @Override
+    void commitTransaction(List<Transaction.Op> ops) {
+        boolean removesEpic = ops.stream()
+                .anyMatch(op -> op.kind() == Transaction.Kind.REMOVE && op.type() == TaskType.EPIC);
+        if (removesEpic) {
+            writeAll(() -> super.commitTransaction(ops));
+        } else {
+            write(() -> super.commitTransaction(ops), () -> ops.stream()
+                    .mapToInt(op -> op.entity() != null ? op.entity().getId() : op.id()).toArray());
+        }
+    }
+
+    private static int[] idsOf(List<? extends Task> batch) {
+        int[] ids = new int[batch.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = batch.get(i).getId();
+        }
+        return ids;
+    }
+
+    private void writeAll(Runnable action) {
+        write(() -> {
+            action.run();
+            republishAll();
+        });
+    }
+
+    //region model.Task
+
+    /**
+     * Неизменяемый снимок задач по возрастанию id на момент вызова. Блокировку не берёт.
+     */
+    @Override
+    public List<Task> getAllTasks() {
+        return state.tasks().values();
+    }
+
+    @Override
+    public void removeAllTasks() {
+        writeAll(super::removeAllTasks);
+    }
+
+    @Override
+    public Page<Task> getTasksPage(int limit, String cursor) {
+        return page(state.tasks(), limit, cursor);
+    }
+
+    @Override
+    public Task getTaskById(int id, String session) {
+        return read(() -> super.getTaskById(id, session));
+    }
+
+    @Override
+    public void addTask(Task task) {
+        write(() -> super.addTask(task), () -> new int[]{task.getId()});
+    }
+
+    @Override
+    public void updateTask(Task task) {
+        write(() -> super.updateTask(task), () -> new int[]{task.getId()});
+    }
+
+    @Override
+    public void removeTaskById(int id) {
+        write(() -> super.removeTaskById(id), () -> new int[]{id});
+    }
+
+    @Override
+    public void addAllTasks(List<Task> batch) {
+        write(() -> super.addAllTasks(batch), () -> idsOf(batch));
+    }
+
+    @Override
+    public void updateAllTasks(List<Task> batch) {
+        write(() -> super.updateAllTasks(batch), () -> idsOf(batch));
+    }
+    //endregion
+
+    //region model.Epic
+    @Override
+    public List<Epic> getAllEpics() {
+        return state.epics().values();
+    }
+
+    @Override
+    public void removeAllEpics() {
+        writeAll(super::removeAllEpics);
+    }
+
+    @Override
+    public Page<Epic> getEpicsPage(int limit, String cursor) {
+        return page(state.epics(), limit, cursor);
+    }
+
+    @Override
+    public Epic getEpicById(int id, String session) {
+        return read(() -> super.getEpicById(id, session));
+    }
+
+    @Override
+    public void addEpic(Epic epic) {
+        write(() -> super.addEpic(epic), () -> new int[]{epic.getId()});
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        write(() -> super.updateEpic(epic), () -> new int[]{epic.getId()});
+    }
+
+    @Override
+    public void removeEpicById(int id) {
+        write(() -> {
+            Epic epic = epics.get(id);
+            int[] touched = epic == null ? new int[0] : epicWithSubtasks(epic);
+            super.removeEpicById(id);
+            State next = state;
+            for (int touchedId : touched) {
+                next = refresh(next, touchedId);
+            }
+            state = refreshTouchedEpics(next);
+        });
+    }
+
+    @Override
+    public void addAllEpics(List<Epic> batch) {
+        write(() -> super.addAllEpics(batch), () -> idsOf(batch));
+    }
+
+    @Override
+    public void updateAllEpics(List<Epic> batch) {
+        write(() -> super.updateAllEpics(batch), () -> idsOf(batch));
+    }
+
+    private static int[] epicWithSubtasks(Epic epic) {
+        IntHashSet subtaskIds = epic.getSubtaskIdSet();
+        int[] ids = new int[subtaskIds.size() + 1];
+        ids[0] = epic.getId();
+        for (int i = 0; i < subtaskIds.size(); i++) {
+            ids[i + 1] = subtaskIds.get(i);
+        }
+        return ids;
+    }
+    //endregion
+
+    //region model.Subtask
+    @Override
+    public List<Subtask> getAllSubtasks() {
+        return state.subtasks().values();
+    }
+
+    @Override
+    public void removeAllSubtasks() {
+        writeAll(super::removeAllSubtasks);
+    }
+
+    @Override
+    public Page<Subtask> getSubtasksPage(int limit, String cursor) {
+        return page(state.subtasks(), limit, cursor);
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id, String session) {
+        return read(() -> super.getSubtaskById(id, session));
+    }
+
+    @Override
+    public void addSubtask(Subtask subtask) {
+        write(() -> super.addSubtask(subtask), () -> new int[]{subtask.getId()});
+    }
+
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        write(() -> super.updateSubtask(subtask), () -> new int[]{subtask.getId()});
+    }
+
+    @Override
+    public void removeSubtaskById(int id) {
+        write(() -> super.removeSubtaskById(id), () -> new int[]{id});
+    }
+
+    @Override
+    public void addAllSubtasks(List<Subtask> batch) {
+        write(() -> super.addAllSubtasks(batch), () -> idsOf(batch));
+    }
+
+    @Override
+    public void updateAllSubtasks(List<Subtask> batch) {
+        write(() -> super.updateAllSubtasks(batch), () -> idsOf(batch));
+    }
+
+    @Override
+    public List<Subtask> getSubtasksOfEpic(int epicId) {
+        return read(() -> super.getSubtasksOfEpic(epicId));
+    }
+    //endregion
+
+    //region Фильтры по статусу и типу
+    @Override
+    public List<Task> getTasksByStatus(Status status) {
+        return read(() -> super.getTasksByStatus(status));
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(Status status) {
+        return read(() -> super.getEpicsByStatus(status));
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(Status status) {
+        return read(() -> super.getSubtasksByStatus(status));
+    }
+
+    @Override
+    public int countByType(TaskType type) {
+        return read(() -> super.countByType(type));
+    }
+
+    @Override
+    public int countByStatus(TaskType type, Status status) {
+        return read(() -> super.countByStatus(type, status));
+    }
+    //endregion
+
+    //region Полнотекстовый поиск
+    @Override
+    public List<Task> search(String query, int limit) {
+        return read(() -> super.search(query, limit));
+    }
+
+    @Override
+    public FullTextIndex.Stats getSearchIndexStats() {
+        return read(super::getSearchIndexStats);
+    }
+    //endregion
+
+    @Override
+    public List<Task> getPrioritizedTasks() {
+        return state.prioritized().values();
+    }
+
+    /**
+     * Окно расписания по опубликованному снимку: границы ищутся по рангу, без блокировок.
+     */
+    @Override
+    public List<Task> getPrioritizedTasksBetween(LocalDateTime from, LocalDateTime to) {
+        checkRange(from, to);
+        PersistentTreeMap<PriorityKey, Task> snapshot = state.prioritized();
+        int first = snapshot.rank(new PriorityKey(from, Integer.MIN_VALUE));
+        int last = snapshot.rank(new PriorityKey(to, Integer.MIN_VALUE));
+        List<Task> result = new ArrayList<>();
+        if (first > 0) { // группа с наибольшим началом раньше from может ещё длиться
+            LocalDateTime groupStart = snapshot.valueAt(first - 1).getStartTime();
+            int i = first - 1;
+            while (i > 0 && snapshot.valueAt(i - 1).getStartTime().equals(groupStart)) {
+                i--;
+            }
+            for (; i < first; i++) {
+                Task t = snapshot.valueAt(i);
+                if (t.getEndTime().isAfter(from)) result.add(t);
+            }
+        }
+        result.addAll(snapshot.values().subList(first, last));
+        return result;
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasksAfter(LocalDateTime instant, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit должен быть положительным: " + limit);
+        }
+        PersistentTreeMap<PriorityKey, Task> snapshot = state.prioritized();
+        int first = snapshot.rank(new PriorityKey(instant, Integer.MIN_VALUE));
+        int last = (int) Math.min((long) first + limit, snapshot.size());
+        return new ArrayList<>(snapshot.values().subList(first, last));
+    }
+
+    @Override
+    public List<Task> getFromHistory() {
+        return read(super::getFromHistory);
+    }
+
+    @Override
+    public List<Task> getFromHistory(String session) {
+        return read(() -> super.getFromHistory(session));
+    }
+
+    /**
+     * Обёртка, сериализующая обращения к истории: get*ById добавляют просмотры под блокировкой чтения,
+     * то есть из нескольких потоков сразу.
+     */
+    private static final class SynchronizedHistoryManager implements HistoryManager {
+        private final HistoryManager delegate;
+
+        SynchronizedHistoryManager(HistoryManager delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public synchronized void add(Task task) {
+            delegate.add(task);
+        }
+
+        @Override
+        public synchronized void remove(int taskId) {
+            delegate.remove(taskId);
+        }
+
+        @Override
+        public synchronized List<Task> getHistory() {
+            return delegate.getHistory();
+        }
+
+        @Override
+        public synchronized int size() {
+            return delegate.size();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package managers;
+
+import model.Page;
+import model.Task;
+import model.TaskEvent;
+import utils.FullTextIndex;
+import utils.IntHashSet;
+import utils.IntObjectMap;
+import utils.SortedIdIndex;
+import utils.Status;
+import utils.TaskType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+
+/**
+ * Хранилище сущностей по id: {@link IntObjectMap} для доступа за O(1),
+ * {@link SortedIdIndex} для обхода страницами по возрастанию id
+ * и вторичный индекс «статус → множество id» для фильтров и счётчиков.<br>
+ * Полнотекстовый индекс общий для всех хранилищ менеджера — id задач, эпиков и подзадач не пересекаются.<br>
+ * Каждое изменение хранилища публикуется в ленту изменений менеджера.
+ *
+ * @param <V> тип сущности
+ */
+final class EntityStore<V extends Task> {
+    private final IntObjectMap<V> byId = new IntObjectMap<>();
+    private final SortedIdIndex order = new SortedIdIndex();
+    private final EnumMap<Status, IntHashSet> byStatus = new EnumMap<>(Status.class);
+    private final FullTextIndex textIndex;
+    private final ChangeFeed feed;
+    private final TaskType type;
+
+    EntityStore(FullTextIndex textIndex, ChangeFeed feed, TaskType type) {
+        this.textIndex = textIndex;
+        this.feed = feed;
+        this.type = type;
+        for (Status status : Status.values()) {
+            byStatus.put(status, new IntHashSet());
+        }
+    }
+
+    V get(int id) {
+        return byId.get(id);
+    }
+
+    boolean containsKey(int id) {
+        return byId.containsKey(id);
+    }
+
+    V put(int id, V value) {
+        V old = byId.put(id, value);
+        if (old == null) order.add(id);
+        reindex(id);
+        textIndex.put(id, value.getName(), value.getDescription());
+        feed.publish(old == null ? TaskEvent.Kind.CREATED : TaskEvent.Kind.UPDATED, type, id, value);
+        return old;
+    }
+
+    V remove(int id) {
+        V old = byId.remove(id);
+        if (old != null) {
+            order.remove(id);
+            unindex(id);
+            textIndex.remove(id);
+            feed.publish(TaskEvent.Kind.DELETED, type, id, null);
+        }
+        return old;
+    }
+
+    void clear() {
+        for (int id : order.toArray()) { // события удаления — по возрастанию id
+            textIndex.remove(id);
+            feed.publish(TaskEvent.Kind.DELETED, type, id, null);
+        }
+        byId.clear();
+        order.clear();
+        byStatus.values().forEach(IntHashSet::clear);
+    }
+
+    /**
+     * Переносит id в множество его текущего статуса.<br>
+     * Нужен, когда статус сущности меняется без put — например, у эпика при изменении подзадач.
+     * Прежний статус не хранится: статусов всего три, поэтому id просто убирается из всех множеств.
+     */
+    void reindex(int id) {
+        unindex(id);
+        V value = byId.get(id);
+        if (value != null && value.getStatus() != null) {
+            byStatus.get(value.getStatus()).add(id);
+        }
+    }
+
+    /**
+     * Перестраивает индекс статусов целиком, например после массовой загрузки за O(n).
+     */
+    void reindexAll() {
+        byStatus.values().forEach(IntHashSet::clear);
+        for (V value : byId.values()) {
+            if (value.getStatus() != null) byStatus.get(value.getStatus()).add(value.getId());
+        }
+    }
+
+    private void unindex(int id) {
+        for (IntHashSet ids : byStatus.values()) {
+            ids.remove(id);
+        }
+    }
+
+    /**
+     * Число сущностей со статусом за O(1).
+     */
+    int countByStatus(Status status) {
+        return byStatus.get(status).size();
+    }
+
+    /**
+     * Сущности со статусом за O(k), порядок не гарантирован.
+     */
+    List<V> byStatus(Status status) {
+        IntHashSet ids = byStatus.get(status);
+        List<V> result = new ArrayList<>(ids.size());
+        ids.forEach(id -> result.add(byId.get(id)));
+        return result;
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    boolean isEmpty() {
+        return byId.isEmpty();
+    }
+
+    /**
+     * Представление значений без копирования, порядок не гарантирован.
+     */
+    Collection<V> values() {
+        return byId.values();
+    }
+
+    /**
+     * Id по возрастанию.
+     */
+    int[] keys() {
+        return order.toArray();
+    }
+
+    /**
+     * Не более limit сущностей с id больше курсора, по возрастанию id.
+     */
+    Page<V> page(String cursor, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit должен быть положительным: " + limit);
+        }
+        List<V> items = new ArrayList<>(Math.min(limit, size()));
+        int pos = order.firstAfter(Page.decodeCursor(cursor));
+        int lastId = 0;
+        while (pos >= 0 && items.size() < limit) {
+            lastId = order.idAt(pos);
+            items.add(byId.get(lastId));
+            pos = order.nextLive(pos + 1);
+        }
+        return new Page<>(items, pos >= 0 ? Page.cursorAfter(lastId) : null);
+    }
+}
@@ -3,187 +3,964 @@ package managers;
 import exeptions.ManagerLoadException;
 import exeptions.ManagerSaveException;
 import model.Epic;
+import model.Page;
 import model.Subtask;
 import model.Task;
+import utils.CsvReader;
+import utils.CsvWriter;
+import utils.Durability;
+import utils.FullTextIndex;
 import utils.IdGenerator;
+import utils.Managers;
+import utils.PersistenceMode;
+import utils.SnapshotFormat;
 import utils.Status;
 import utils.TaskType;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
 
+/**
+ * Менеджер задач, сохраняющий состояние в CSV-файл.<br>
+ * В режиме {@link PersistenceMode#SNAPSHOT} файл перезаписывается после каждой мутации.
+ * В режиме {@link PersistenceMode#JOURNAL} каждая мутация дописывается одной записью
+ * в журнал рядом с файлом ({@code <file>.log}), а при загрузке поверх снимка проигрывается журнал.
+ * Когда журнал превышает порог по числу записей или размеру, он откладывается в сторону,
+ * а свежий снимок пишется в фоновом потоке и атомарно подменяет старый.<br>
+ * Мутации и чтения выполняются под монитором менеджера, поэтому его можно вызывать из нескольких
+ * потоков (например, из пула HTTP-сервера), а ожидание fsync по режиму {@link Durability} —
+ * уже после освобождения монитора, поэтому при групповом коммите параллельные запросы
+ * подтверждаются одним сбросом на диск.<br>
+ * Снимок пишется в CSV или в двоичном формате ({@link SnapshotFormat}); при загрузке формат
+ * определяется по сигнатуре файла, так что CSV остаётся форматом импорта и экспорта.<br>
+ * В режиме {@link PersistenceMode#WRITE_BEHIND} мутации только отмечают изменённые сущности,
+ * а журнал пишет отдельный поток; {@link #flush()} и {@link #close()} служат барьером.<br>
+ * Общая история просмотров в любом режиме дописывается фоновым потоком в журнал просмотров
+ * ({@code <file>.views}, см. {@link ViewLog}) и восстанавливается в {@link #loadFromFile}.
+ */
 public class FileBackedTaskManager extends InMemoryTaskManager {
+    private static final String JOURNAL_SUFFIX = ".log";
+    private static final String VIEWS_SUFFIX = ".views";
+    private static final String OP_PUT = "PUT";
+    private static final String OP_DELETE = "DEL";
+    private static final String OP_CLEAR = "CLR";
+    private static final String OP_TXN = "TXN";
+    private static final String TXN_END = "END";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final long DEFAULT_COMPACTION_RECORDS = 10_000;
+    private static final long DEFAULT_COMPACTION_BYTES = 8L * 1024 * 1024;
+    private static final long DEFAULT_GROUP_COMMIT_WINDOW_MILLIS = 0;
+    private static final int DEFAULT_WRITE_BEHIND_CAPACITY = 10_000;
+    private static final long DEFAULT_WRITE_BEHIND_INTERVAL_MILLIS = 50;
+    private static final TaskType[] TASK_TYPES = TaskType.values();
+    private static final Status[] STATUSES = Status.values();
+
     private final File file;
+    private final PersistenceMode mode;
+    private final MutationJournal journal;
+    private final LoggedHistoryManager history;
+    private boolean journalReady; // снимок на диске соответствует состоянию до первой записи журнала
+    private long compactionRecords = DEFAULT_COMPACTION_RECORDS;
+    private long compactionBytes = DEFAULT_COMPACTION_BYTES;
+    private ExecutorService compactor;
+    private Future<?> compaction;
+    private volatile Durability durability = Durability.NONE;
+    private volatile SnapshotFormat snapshotFormat = SnapshotFormat.CSV;
+    private int writeBehindCapacity = DEFAULT_WRITE_BEHIND_CAPACITY;
+    private long writeBehindIntervalMillis = DEFAULT_WRITE_BEHIND_INTERVAL_MILLIS;
+    private WriteBehindPersister persister;
 
     public FileBackedTaskManager(File file) {
-        super();
+        this(file, PersistenceMode.SNAPSHOT);
+    }
+
+    public FileBackedTaskManager(File file, PersistenceMode mode) {
+        this(file, mode, IdGenerator.shared());
+    }
+
+    /**
+     * @param ids собственный счётчик id, например у менеджера отдельной доски
+     */
+    public FileBackedTaskManager(File file, PersistenceMode mode, IdGenerator ids) {
+        this(file, mode, ids, loggedHistory(file));
+        history.startLogging();
+    }
+
+    private FileBackedTaskManager(File file, PersistenceMode mode, IdGenerator ids, LoggedHistoryManager history) {
+        super(history, ids);
         this.file = file;
+        this.mode = mode;
+        this.journal = new MutationJournal(journalFile(file).toPath());
+        this.history = history;
+    }
+
+    private static LoggedHistoryManager loggedHistory(File file) {
+        File views = new File(file.getPath() + VIEWS_SUFFIX);
+        ViewLog log = new ViewLog(views.toPath(), InMemoryHistoryManager.DEFAULT_CAPACITY);
+        return new LoggedHistoryManager(Managers.getDefaultHistory(), log);
+    }
+
+    private static File journalFile(File file) {
+        return new File(file.getPath() + JOURNAL_SUFFIX);
+    }
+
+    /**
+     * Задаёт пороги фонового сжатия журнала.
+     *
+     * @param records число записей, после которого журнал сжимается в снимок
+     * @param bytes   размер журнала в байтах, после которого он сжимается в снимок
+     */
+    public void setCompactionThresholds(long records, long bytes) {
+        this.compactionRecords = records;
+        this.compactionBytes = bytes;
+    }
+
+    /**
+     * Задаёт режим сохранности записей без окна группового коммита: в группу попадают записи,
+     * сделанные пока идёт предыдущий fsync.
+     *
+     * @param durability режим сохранности
+     */
+    public void setDurability(Durability durability) {
+        setDurability(durability, DEFAULT_GROUP_COMMIT_WINDOW_MILLIS);
+    }
+
+    /**
+     * Задаёт режим сохранности записей.
+     *
+     * @param durability              режим сохранности
+     * @param groupCommitWindowMillis сколько ведущий поток группового коммита ждёт другие записи перед fsync
+     */
+    public void setDurability(Durability durability, long groupCommitWindowMillis) {
+        this.durability = durability;
+        journal.setDurability(durability, groupCommitWindowMillis);
+    }
+
+    /**
+     * Задаёт параметры отложенной записи. Действует, пока поток записи ещё не запущен,
+     * то есть до первой мутации или после {@link #close()}.
+     *
+     * @param capacity       сколько изменённых сущностей можно накопить, прежде чем мутации начнут ждать
+     * @param intervalMillis интервал сброса накопленных изменений в журнал
+     */
+    public synchronized void setWriteBehindLimits(int capacity, long intervalMillis) {
+        this.writeBehindCapacity = capacity;
+        this.writeBehindIntervalMillis = intervalMillis;
+    }
+
+    /**
+     * Задаёт формат, в котором пишутся следующие снимки.
+     *
+     * @param snapshotFormat формат снимка
+     */
+    public void setSnapshotFormat(SnapshotFormat snapshotFormat) {
+        this.snapshotFormat = snapshotFormat;
+    }
+
+    /**
+     * Выгружает текущее состояние в CSV-файл независимо от формата снимка.
+     *
+     * @param target файл для экспорта
+     */
+    public synchronized void exportToCsv(File target) {
+        try {
+            writeCsv(target, tasks.values(), epics.values(), subtasks.values(), false);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка экспорта в файл " + target, e);
+        }
+    }
+
+    /**
+     * Сохраняет полный снимок состояния в файл и очищает журнал, так как всё его содержимое
+     * теперь входит в снимок. Перед этим дожидается завершения фонового сжатия,
+     * чтобы более старый снимок не перезаписал новый.
+     */
+    public synchronized void saveToFile() {
+        awaitCompaction();
+        writeSnapshot(tasks.values(), epics.values(), subtasks.values(), durability != Durability.NONE);
+        journal.dropRotated();
+        if (mode == PersistenceMode.JOURNAL || journalFile(file).exists()) {
+            journal.truncate();
+        }
+        journalReady = true;
+    }
+
+    /**
+     * Пишет снимок во временный файл и атомарно подменяет им основной,
+     * чтобы при сбое на диске всегда оставался целый снимок.
+     *
+     * @param taskList    задачи
+     * @param epicList    эпики
+     * @param subtaskList подзадачи
+     * @param sync        сбросить ли данные на диск перед подменой
+     */
+    private void writeSnapshot(Collection<Task> taskList, Collection<Epic> epicList,
+                               Collection<Subtask> subtaskList, boolean sync) {
+        File tmp = new File(file.getPath() + TMP_SUFFIX);
+        if (snapshotFormat == SnapshotFormat.BINARY) {
+            BinarySnapshot.write(tmp, taskList, epicList, subtaskList, sync);
+        } else {
+            try {
+                writeCsv(tmp, taskList, epicList, subtaskList, sync);
+            } catch (IOException e) {
+                throw new ManagerSaveException("Ошибка сохранения в файл", e);
+            }
+        }
+        try {
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка замены файла снимка", e);
+        }
     }
 
-    // метод автосохранения
-    public void saveToFile() {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+    private void writeCsv(File target, Collection<Task> taskList, Collection<Epic> epicList,
+                          Collection<Subtask> subtaskList, boolean sync) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(target);
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
             writer.write("id,type,name,status,description,startTime,duration,epic\n");
 
-            for (Task task : getAllTasks()) {
+            for (Task task : taskList) {
                 writer.write(toString(task));
                 writer.newLine();
             }
 
-            for (Epic epic : getAllEpics()) {
+            for (Epic epic : epicList) {
                 writer.write(toString(epic));
                 writer.newLine();
             }
 
-            for (Subtask subtask : getAllSubtasks()) {
+            for (Subtask subtask : subtaskList) {
                 writer.write(toString(subtask));
                 writer.newLine();
             }
 
             writer.newLine();
+            writer.flush();
+            if (sync) {
+                out.getFD().sync();
+            }
+        }
+    }
 
-        } catch (IOException e) {
-            throw new ManagerSaveException("Ошибка сохранения в файл", e);
+    /**
+     * Запускает фоновое сжатие, если журнал превысил порог.<br>
+     * На вызывающем потоке только копируются ссылки на текущие сущности и переключается файл журнала,
+     * сериализация и запись снимка выполняются в отдельном потоке.
+     */
+    private void compactIfNeeded() {
+        if (journal.records() < compactionRecords && journal.bytes() < compactionBytes) return;
+        if (compaction != null && !compaction.isDone()) return; // сжатие уже идёт
+        if (!journal.rotate()) return;
+        List<Task> taskCopy = new ArrayList<>(tasks.values());
+        List<Epic> epicCopy = new ArrayList<>(epics.values());
+        List<Subtask> subtaskCopy = new ArrayList<>(subtasks.values());
+        compaction = compactor().submit(() -> {
+            writeSnapshot(taskCopy, epicCopy, subtaskCopy, true);
+            journal.dropRotated(); // записи отложенного журнала теперь в снимке
+        });
+    }
+
+    private ExecutorService compactor() {
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "journal-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return compactor;
+    }
+
+    /**
+     * Дожидается завершения фонового сжатия, если оно идёт.
+     */
+    public void awaitCompaction() {
+        if (compaction == null) return;
+        try {
+            compaction.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Ожидание сжатия журнала прервано", e);
+        } catch (ExecutionException e) {
+            throw new ManagerSaveException("Ошибка фонового сжатия журнала", e.getCause());
+        } finally {
+            compaction = null;
         }
     }
 
     public static FileBackedTaskManager loadFromFile(File file) {
-        FileBackedTaskManager manager = new FileBackedTaskManager(file);
-        try (BufferedReader reader = new BufferedReader(new java.io.FileReader(file))) {
-            String line;
-            reader.readLine(); // читаем и игнорируем заголовок
-            while ((line = reader.readLine()) != null) {
-                if (line.isEmpty()) continue; // пропускаем пустые строки
-                Task task = fromString(line);
+        return loadFromFile(file, PersistenceMode.SNAPSHOT);
+    }
+
+    /**
+     * Загружает менеджер из снимка и проигрывает поверх него журнал мутаций, если он есть,
+     * затем восстанавливает историю просмотров из журнала просмотров.
+     *
+     * @param file файл снимка
+     * @param mode режим сохранения для загруженного менеджера
+     * @return менеджер с восстановленным состоянием
+     */
+    public static FileBackedTaskManager loadFromFile(File file, PersistenceMode mode) {
+        return loadFromFile(file, mode, IdGenerator.shared());
+    }
+
+    /**
+     * Как {@link #loadFromFile(File, PersistenceMode)}, но id загруженного менеджера ведёт переданный счётчик.
+     */
+    public static FileBackedTaskManager loadFromFile(File file, PersistenceMode mode, IdGenerator ids) {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, mode, ids, loggedHistory(file));
+        manager.readSnapshot();
+        manager.journal.replay(manager::readJournalRecord);
+        manager.rebuildAfterBulkLoad(); // эпики и приоритеты считаются один раз после загрузки всего файла
+        manager.restoreHistory();
+        manager.journalReady = true;
+        if (manager.journal.hasRotated() || manager.journal.hasLegacyRecords()) {
+            manager.saveToFile(); // прошлое сжатие было прервано или журнал в старом формате — пишем снимок сразу
+        }
+        return manager;
+    }
+
+    /**
+     * Восстанавливает историю по журналу просмотров; задачи, которых после загрузки нет, пропускаются.
+     * Запись в журнал включается только после этого, чтобы загрузка ничего в него не дописала.
+     */
+    private void restoreHistory() {
+        for (int id : history.log().load()) {
+            Task task = tasks.get(id);
+            if (task == null) task = epics.get(id);
+            if (task == null) task = subtasks.get(id);
+            if (task != null) history.restore(task);
+        }
+        history.startLogging();
+    }
+
+    private void readSnapshot() {
+        if (!file.exists()) return; // нет снимка — начинаем с пустого состояния и журнала
+        if (BinarySnapshot.isBinary(file)) {
+            BinarySnapshot.read(file, this::putLoaded);
+            return;
+        }
+        try (CsvReader reader = new CsvReader(Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8))) {
+            reader.nextRecord(); // пропускаем заголовок
+            while (reader.nextRecord()) {
+                putLoaded(readTask(reader));
+            }
+        } catch (IOException e) {
+            throw new ManagerLoadException("Ошибка загрузки из файла", e);
+        }
+    }
+
+    private void putLoaded(Task task) {
+        if (task instanceof Epic epic) {
+            epics.put(epic.getId(), epic); // добавляем эпик в менеджер
+        } else if (task instanceof Subtask subtask) {
+            subtasks.put(subtask.getId(), subtask); // добавляем подзадачу в менеджер
+            Epic epic = epics.get(subtask.getEpicId()); // эпики в снимке идут раньше подзадач
+            if (epic != null) {
+                epic.addSubtaskId(subtask.getId()); // только связь — статус и время эпика посчитаем в конце
+            }
+        } else {
+            tasks.put(task.getId(), task); // добавляем задачу в менеджер
+        }
+        idGenerator().ensureAbove(task.getId()); // чтобы не повторялись ID
+    }
+
+    /**
+     * Разбирает одну запись журнала; возвращённое действие применяет её к хранилищам напрямую,
+     * без валидации и пересчёта эпиков. Статусы и время эпиков пересчитываются один раз после
+     * проигрывания всего журнала.<br>
+     * Запись транзакции сначала разбирается целиком и применяется, только если дописана до маркера конца,
+     * поэтому оборванная при сбое транзакция не применяется частично.
+     *
+     * @param record запись журнала, первое поле которой — операция
+     */
+    private Runnable readJournalRecord(CsvReader record) throws IOException {
+        String op = record.readString();
+        if (!op.equals(OP_TXN)) {
+            Change change = readChange(op, record);
+            return () -> applyChange(change);
+        }
+        int count = record.readInt();
+        List<Change> group = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            group.add(readChange(record.readString(), record));
+        }
+        if (!TXN_END.equals(record.readString()) || record.hasField()) {
+            throw new IllegalArgumentException("Запись транзакции не дописана до конца (запись " + record.recordNumber() + ")");
+        }
+        return () -> group.forEach(this::applyChange);
+    }
+
+    /**
+     * Читает поля одной операции журнала после её кода.
+     */
+    private static Change readChange(String op, CsvReader record) throws IOException {
+        return switch (op) {
+            case OP_PUT -> {
+                Task task = readTask(record);
+                if (!(task instanceof Subtask) && record.hasField()) {
+                    record.readString(); // пустое поле эпика у задач и эпиков
+                }
+                yield Change.put(task);
+            }
+            case OP_DELETE -> {
+                TaskType type = record.readEnum(TASK_TYPES);
+                yield Change.delete(type, record.readInt());
+            }
+            case OP_CLEAR -> Change.clear(record.readEnum(TASK_TYPES));
+            default -> throw new IllegalArgumentException("Неизвестная операция журнала: " + op);
+        };
+    }
+
+    private void applyChange(Change change) {
+        switch (change.op()) {
+            case OP_PUT -> {
+                Task task = change.entity();
                 if (task instanceof Epic epic) {
-                    manager.epics.put(epic.getId(), epic); // добавляем эпик в менеджер
+                    Epic old = epics.put(epic.getId(), epic);
+                    if (old != null) {
+                        epic.getSubtaskIdSet().addAll(old.getSubtaskIdSet()); // сохраняем связи с подзадачами
+                    }
                 } else if (task instanceof Subtask subtask) {
-                    manager.subtasks.put(subtask.getId(), subtask); // добавляем подзадачу в менеджер
-                    manager.epics.get(subtask.getEpicId()).addSubtaskId(subtask.getId());// добавим подзадачу в эпик
-                    manager.updateEpicStatus(manager.epics.get(subtask.getEpicId()));// обновляем статус эпика
-                    manager.recalculateEpicTimeDetails(manager.epics.get(subtask.getEpicId()));// пересчитываем время эпика
+                    Subtask old = subtasks.put(subtask.getId(), subtask);
+                    if (old != null && old.getEpicId() != subtask.getEpicId()) {
+                        Epic oldEpic = epics.get(old.getEpicId());
+                        if (oldEpic != null) oldEpic.removeSubtaskId(old.getId());
+                    }
+                    Epic epic = epics.get(subtask.getEpicId());
+                    if (epic != null && (old == null || old.getEpicId() != subtask.getEpicId())) {
+                        epic.addSubtaskId(subtask.getId());
+                    }
                 } else {
-                    manager.tasks.put(task.getId(), task); // добавляем задачу в менеджер
+                    tasks.put(task.getId(), task);
+                }
+                idGenerator().ensureAbove(task.getId());
+            }
+            case OP_DELETE -> {
+                int id = change.id();
+                switch (change.type()) {
+                    case TASK -> tasks.remove(id);
+                    case EPIC -> {
+                        Epic epic = epics.remove(id);
+                        if (epic != null) epic.getSubtaskIdSet().forEach(subtasks::remove);
+                    }
+                    case SUBTASK -> {
+                        Subtask subtask = subtasks.remove(id);
+                        Epic epic = subtask != null ? epics.get(subtask.getEpicId()) : null;
+                        if (epic != null) epic.removeSubtaskId(id);
+                    }
+                }
+            }
+            default -> { // OP_CLEAR
+                switch (change.type()) {
+                    case TASK -> tasks.clear();
+                    case EPIC -> {
+                        epics.clear();
+                        subtasks.clear();
+                    }
+                    case SUBTASK -> {
+                        subtasks.clear();
+                        epics.values().forEach(Epic::clearSubtaskIds);
+                    }
                 }
-                IdGenerator.updateMaxId(task.getId()); // чтобы не повторялись ID
             }
-            manager.prioritizeAll(); // обновляем приоритеты задач
-        } catch (IOException e) {
-            throw new ManagerLoadException("Ошибка загрузки из файла", e);
         }
-        return manager;
     }
 
-    private void prioritizeAll() {
-        prioritizedTasks.clear();// Очищаем текущее множество
-        for (Task t : getAllTasks()) {
-            if (t.getStartTime() != null) {
-                prioritizedTasks.add(t);// Добавляем только задачи и подзадачи с заданным startTime
+    /**
+     * Описание одной мутации для сохранения: запись журнала или отметка для отложенной записи.
+     *
+     * @param op     операция журнала
+     * @param type   тип затронутых сущностей
+     * @param id     идентификатор сущности (для очистки не используется)
+     * @param entity сущность в состоянии после мутации (только для PUT)
+     * @param group  изменения транзакции (только для TXN)
+     */
+    private record Change(String op, TaskType type, int id, Task entity, List<Change> group) {
+        static Change put(Task task) {
+            return new Change(OP_PUT, typeOf(task), task.getId(), task, null);
+        }
+
+        static Change delete(TaskType type, int id) {
+            return new Change(OP_DELETE, type, id, null, null);
+        }
+
+        static Change clear(TaskType type) {
+            return new Change(OP_CLEAR, type, 0, null, null);
+        }
+
+        static Change txn(List<Change> group) {
+            return new Change(OP_TXN, null, 0, null, group);
+        }
+
+        /**
+         * Изменения транзакции или само изменение.
+         */
+        List<Change> items() {
+            return group != null ? group : List.of(this);
+        }
+    }
+
+    private static TaskType typeOf(Task task) {
+        if (task instanceof Epic) return TaskType.EPIC;
+        if (task instanceof Subtask) return TaskType.SUBTASK;
+        return TaskType.TASK;
+    }
+
+    /**
+     * Выполняет мутацию и сохраняет её под монитором менеджера,
+     * затем вне монитора ждёт сброса записи на диск согласно режиму сохранности.
+     *
+     * @param mutation изменение состояния в памяти
+     * @param change   описание изменения, вычисляемое после мутации
+     */
+    private void mutate(Runnable mutation, Supplier<Change> change) {
+        mutateAll(mutation, () -> List.of(change.get()));
+    }
+
+    /**
+     * Как {@link #mutate}, но для пакета: снимок перезаписывается один раз,
+     * а в журнале ждём сброса только последней записи пакета.
+     */
+    private void mutateAll(Runnable mutation, Supplier<List<Change>> changes) {
+        if (mode == PersistenceMode.WRITE_BEHIND && !Thread.holdsLock(this)) {
+            writeBehind().awaitCapacity(); // ограничиваем память под несохранённые изменения
+        }
+        long seq;
+        synchronized (this) {
+            mutation.run();
+            seq = persist(changes.get());
+        }
+        journal.awaitDurable(seq);
+    }
+
+    private static List<Change> puts(List<? extends Task> batch) {
+        List<Change> changes = new ArrayList<>(batch.size());
+        for (Task task : batch) {
+            changes.add(Change.put(task));
+        }
+        return changes;
+    }
+
+    /**
+     * Сохраняет изменения: в режиме снимка перезаписывает файл, в режиме журнала
+     * дописывает по записи на изменение, в режиме отложенной записи отмечает сущности для потока записи.
+     *
+     * @param changes описания мутаций
+     * @return номер последней записи журнала или 0, если ждать сброса на диск не нужно
+     */
+    private long persist(List<Change> changes) {
+        if (mode == PersistenceMode.SNAPSHOT) {
+            saveToFile();
+            return 0;
+        }
+        if (!journalReady) {
+            saveToFile(); // файл мог остаться от другого менеджера — начинаем с актуального снимка
+            return 0;
+        }
+        if (mode == PersistenceMode.WRITE_BEHIND) { // атомарность транзакции здесь не сохраняется — пишется итог
+            for (Change change : changes) {
+                for (Change item : change.items()) {
+                    if (item.op().equals(OP_CLEAR)) {
+                        writeBehind().markCleared(item.type());
+                    } else {
+                        writeBehind().markDirty(item.id(), item.type());
+                    }
+                }
             }
+            return 0;
         }
-        for (Subtask sub : getAllSubtasks()) {
-            if (sub.getStartTime() != null) {
-                prioritizedTasks.add(sub);
+        long seq = 0;
+        for (Change change : changes) {
+            seq = journal.append(toRecord(change));
+        }
+        compactIfNeeded();
+        return seq;
+    }
+
+    /**
+     * Строка журнала для изменения. Транзакция пишется одной строкой
+     * {@code TXN,n,<n операций подряд>,END}, чтобы дозапись была атомарной на уровне записи.
+     */
+    private String toRecord(Change change) {
+        return switch (change.op()) {
+            case OP_PUT -> appendTask(new StringBuilder(OP_PUT).append(','), change.entity()).toString();
+            case OP_DELETE -> OP_DELETE + "," + change.type() + "," + change.id();
+            case OP_TXN -> {
+                StringBuilder sb = new StringBuilder(OP_TXN).append(',').append(change.group().size());
+                for (Change item : change.group()) {
+                    sb.append(',').append(toRecord(item));
+                }
+                yield sb.append(',').append(TXN_END).toString();
+            }
+            default -> OP_CLEAR + "," + change.type();
+        };
+    }
+
+    private WriteBehindPersister writeBehind() {
+        synchronized (this) {
+            if (persister == null) {
+                persister = new WriteBehindPersister(this, this::dirtyRecords, journal, this::compactIfNeeded,
+                        writeBehindCapacity, writeBehindIntervalMillis);
             }
+            return persister;
         }
     }
 
-    private static Task fromString(String line) {
-        String[] fields = line.split(",");
-        if (fields.length < 5 || fields.length > 8) {
-            throw new IllegalArgumentException("Неверный формат строки: " + line);
+    /**
+     * Строит записи журнала для накопленных изменений по текущему состоянию: сначала очистки,
+     * затем эпики, задачи и подзадачи, которые сейчас существуют, и в конце удаления.
+     * Так подзадача всегда пишется после своего эпика, а повторная запись уже сохранённого
+     * состояния безвредна. Вызывается потоком записи под монитором менеджера.
+     */
+    private List<String> dirtyRecords(Map<Integer, TaskType> dirty, Set<TaskType> cleared) {
+        List<String> records = new ArrayList<>(dirty.size() + cleared.size());
+        cleared.forEach(type -> records.add(toRecord(Change.clear(type))));
+        List<String> deletes = new ArrayList<>();
+        for (TaskType type : new TaskType[]{TaskType.EPIC, TaskType.TASK, TaskType.SUBTASK}) {
+            dirty.forEach((id, dirtyType) -> {
+                if (dirtyType != type) return;
+                Task current = switch (type) {
+                    case TASK -> tasks.get(id);
+                    case EPIC -> epics.get(id);
+                    case SUBTASK -> subtasks.get(id);
+                };
+                if (current != null) {
+                    records.add(toRecord(Change.put(current)));
+                } else {
+                    deletes.add(toRecord(Change.delete(type, id)));
+                }
+            });
         }
+        records.addAll(deletes);
+        return records;
+    }
 
-        // Преобразуем поля в соответствующие типы
-        int id = Integer.parseInt(fields[0]);
-        TaskType type = TaskType.taskTypeFromString(fields[1]);
-        String name = fields[2];
-        Status status = Status.statusFromString(fields[3]);
-        String description = fields[4];
-        String startTimeStr = fields[5].equals("null") ? null : fields[5];
-        LocalDateTime startTime = startTimeStr != null ? LocalDateTime.parse(startTimeStr) : null;
-        String durationStr = fields[6];
-        Long duration = durationStr != null ? Long.parseLong(fields[6]) : 0L;
+    /**
+     * Барьер отложенной записи: возвращается, когда все предыдущие изменения записаны в журнал,
+     * а просмотры — в журнал просмотров. В остальных режимах изменения пишутся сразу.
+     */
+    public void flush() {
+        WriteBehindPersister current;
+        synchronized (this) {
+            current = persister;
+        }
+        if (current != null) {
+            current.flush();
+        }
+        history.log().flush();
+    }
 
+    /**
+     * Сбрасывает отложенные изменения и просмотры, дожидается фонового сжатия и закрывает файлы журналов.
+     * Менеджер можно продолжать использовать — журналы будут открыты заново.
+     */
+    public void close() {
+        WriteBehindPersister current;
+        synchronized (this) {
+            current = persister;
+            persister = null;
+        }
+        if (current != null) {
+            current.close(); // сбрасываем накопленные изменения до закрытия журнала
+        }
+        history.log().close();
+        synchronized (this) {
+            closeJournal();
+        }
+    }
+
+    private void closeJournal() {
+        try {
+            awaitCompaction();
+        } finally {
+            journal.close();
+            if (compactor != null) {
+                compactor.shutdown();
+                compactor = null;
+            }
+        }
+    }
 
+    /**
+     * Читает задачу из полей текущей записи CSV:
+     * {@code id,type,name,status,description,startTime,duration,epic}.
+     *
+     * @param reader читатель, установленный на начало полей задачи
+     * @return задача, эпик или подзадача
+     */
+    private static Task readTask(CsvReader reader) throws IOException {
+        int id = reader.readInt();
+        TaskType type = reader.readEnum(TASK_TYPES);
+        String name = reader.readString();
+        Status status = reader.readEnum(STATUSES);
+        String description = reader.readString();
+        LocalDateTime startTime = reader.readDateTime();
+        Duration duration = Duration.ofMinutes(reader.readLong());
 
         return switch (type) {
-            case TASK -> new Task(id, name, description, status, startTime, Duration.ofMinutes(duration));
-            case EPIC -> new Epic(id, name, description, status, startTime, Duration.ofMinutes(duration));
+            case TASK -> new Task(id, name, description, status, startTime, duration);
+            case EPIC -> new Epic(id, name, description, status, startTime, duration);
             case SUBTASK -> {
-                int epicId = Integer.parseInt(fields[7]);
-                yield new Subtask(id, name, description, status, startTime,Duration.ofMinutes(duration), epicId);
+                int epicId = reader.readInt();
+                yield new Subtask(id, name, description, status, startTime, duration, epicId);
             }
         };
     }
 
     private String toString(Task task) {
-        String sb = task.getId() + "," +
-                task.getType() + "," +
-                task.getName() + "," +
-                task.getStatus() + "," +
-                task.getDescription() + "," +
-                (task.getStartTime() != null ? task.getStartTime().toString() : "null") + "," +
-                (task.getDuration() != null ? task.getDuration().toMinutes() : "0") + "," +
-                (task instanceof Subtask ? ((Subtask) task).getEpicId() : "");
+        return appendTask(new StringBuilder(), task).toString();
+    }
+
+    /**
+     * Дописывает задачу как поля CSV; имя и описание экранируются, если содержат запятые,
+     * кавычки или переводы строк.
+     */
+    private static StringBuilder appendTask(StringBuilder sb, Task task) {
+        sb.append(task.getId()).append(',').append(task.getType()).append(',');
+        CsvWriter.appendField(sb, task.getName()).append(',').append(task.getStatus()).append(',');
+        CsvWriter.appendField(sb, task.getDescription()).append(',')
+                .append(task.getStartTime() != null ? task.getStartTime().toString() : "null").append(',')
+                .append(task.getDuration() != null ? task.getDuration().toMinutes() : 0).append(',');
+        if (task instanceof Subtask subtask) {
+            sb.append(subtask.getEpicId());
+        }
         return sb;
     }
 
+    //region Чтения под монитором менеджера: состояние в памяти меняют мутации из других потоков
+    @Override
+    public synchronized List<Task> getAllTasks() {
+        return super.getAllTasks();
+    }
+
+    @Override
+    public synchronized Page<Task> getTasksPage(int limit, String cursor) {
+        return super.getTasksPage(limit, cursor);
+    }
+
+    @Override
+    public synchronized Task getTaskById(int id, String session) {
+        return super.getTaskById(id, session);
+    }
+
+    @Override
+    public synchronized List<Epic> getAllEpics() {
+        return super.getAllEpics();
+    }
+
+    @Override
+    public synchronized Page<Epic> getEpicsPage(int limit, String cursor) {
+        return super.getEpicsPage(limit, cursor);
+    }
+
+    @Override
+    public synchronized Epic getEpicById(int id, String session) {
+        return super.getEpicById(id, session);
+    }
+
+    @Override
+    public synchronized List<Subtask> getAllSubtasks() {
+        return super.getAllSubtasks();
+    }
+
+    @Override
+    public synchronized Page<Subtask> getSubtasksPage(int limit, String cursor) {
+        return super.getSubtasksPage(limit, cursor);
+    }
+
+    @Override
+    public synchronized Subtask getSubtaskById(int id, String session) {
+        return super.getSubtaskById(id, session);
+    }
+
+    @Override
+    public synchronized List<Subtask> getSubtasksOfEpic(int epicId) {
+        return super.getSubtasksOfEpic(epicId);
+    }
+
+    @Override
+    public synchronized List<Task> getPrioritizedTasks() {
+        return super.getPrioritizedTasks();
+    }
+
+    @Override
+    public synchronized List<Task> getPrioritizedTasksBetween(LocalDateTime from, LocalDateTime to) {
+        return super.getPrioritizedTasksBetween(from, to);
+    }
+
+    @Override
+    public synchronized List<Task> getPrioritizedTasksAfter(LocalDateTime instant, int limit) {
+        return super.getPrioritizedTasksAfter(instant, limit);
+    }
+
+    @Override
+    public synchronized List<Task> getTasksByStatus(Status status) {
+        return super.getTasksByStatus(status);
+    }
+
+    @Override
+    public synchronized List<Epic> getEpicsByStatus(Status status) {
+        return super.getEpicsByStatus(status);
+    }
+
+    @Override
+    public synchronized List<Subtask> getSubtasksByStatus(Status status) {
+        return super.getSubtasksByStatus(status);
+    }
+
+    @Override
+    public synchronized int countByType(TaskType type) {
+        return super.countByType(type);
+    }
+
+    @Override
+    public synchronized int countByStatus(TaskType type, Status status) {
+        return super.countByStatus(type, status);
+    }
+
+    @Override
+    public synchronized List<Task> search(String query, int limit) {
+        return super.search(query, limit);
+    }
+
+    @Override
+    public synchronized FullTextIndex.Stats getSearchIndexStats() {
+        return super.getSearchIndexStats();
+    }
+
+    @Override
+    public synchronized List<Task> getFromHistory() {
+        return super.getFromHistory();
+    }
+
+    @Override
+    public synchronized List<Task> getFromHistory(String session) {
+        return super.getFromHistory(session);
+    }
+    //endregion
+
     //region Методы переопределенные из InMemoryTaskManager
+    @Override
+    public void removeAllTasks() {
+        mutate(super::removeAllTasks, () -> Change.clear(TaskType.TASK));
+    }
+
     @Override
     public void addTask(Task task) {
-        super.addTask(task);
-        saveToFile();
+        mutate(() -> super.addTask(task), () -> Change.put(task));
     }
 
     @Override
     public void updateTask(Task task) {
-        super.updateTask(task);
-        saveToFile();
+        mutate(() -> super.updateTask(task), () -> Change.put(task));
     }
 
     @Override
     public void removeTaskById(int id) {
-        super.removeTaskById(id);
-        saveToFile();
+        mutate(() -> super.removeTaskById(id), () -> Change.delete(TaskType.TASK, id));
+    }
+
+    @Override
+    public void addAllTasks(List<Task> batch) {
+        mutateAll(() -> super.addAllTasks(batch), () -> puts(batch));
+    }
+
+    @Override
+    public void updateAllTasks(List<Task> batch) {
+        mutateAll(() -> super.updateAllTasks(batch), () -> puts(batch));
+    }
+
+    @Override
+    public void removeAllEpics() {
+        mutate(super::removeAllEpics, () -> Change.clear(TaskType.EPIC));
     }
 
     @Override
     public void addEpic(Epic epic) {
-        super.addEpic(epic);
-        saveToFile();
+        mutate(() -> super.addEpic(epic), () -> Change.put(epic));
     }
 
     @Override
     public void updateEpic(Epic epic) {
-        super.updateEpic(epic);
-        saveToFile();
+        mutate(() -> super.updateEpic(epic), () -> Change.put(epic));
     }
 
     @Override
     public void removeEpicById(int id) {
-        super.removeEpicById(id);
-        saveToFile();
+        mutate(() -> super.removeEpicById(id), () -> Change.delete(TaskType.EPIC, id));
+    }
+
+    @Override
+    public void addAllEpics(List<Epic> batch) {
+        mutateAll(() -> super.addAllEpics(batch), () -> puts(batch));
+    }
+
+    @Override
+    public void updateAllEpics(List<Epic> batch) {
+        mutateAll(() -> super.updateAllEpics(batch), () -> puts(batch));
+    }
+
+    @Override
+    public void removeAllSubtasks() {
+        mutate(super::removeAllSubtasks, () -> Change.clear(TaskType.SUBTASK));
     }
 
     @Override
     public void addSubtask(Subtask subtask) {
-        super.addSubtask(subtask);
-        saveToFile();
+        mutate(() -> super.addSubtask(subtask), () -> Change.put(subtask));
     }
 
     @Override
     public void updateSubtask(Subtask subtask) {
-        super.updateSubtask(subtask);
-        saveToFile();
+        mutate(() -> super.updateSubtask(subtask), () -> Change.put(subtask));
     }
 
     @Override
     public void removeSubtaskById(int id) {
-        super.removeSubtaskById(id);
-        saveToFile();
+        mutate(() -> super.removeSubtaskById(id), () -> Change.delete(TaskType.SUBTASK, id));
+    }
+
+    @Override
+    void commitTransaction(List<Transaction.Op> ops) {
+        mutate(() -> super.commitTransaction(ops), () -> {
+            List<Change> group = new ArrayList<>(ops.size());
+            for (Transaction.Op op : ops) {
+                group.add(op.kind() == Transaction.Kind.REMOVE ? Change.delete(op.type(), op.id()) : Change.put(op.entity()));
+            }
+            return Change.txn(group);
+        });
+    }
+
+    @Override
+    public void addAllSubtasks(List<Subtask> batch) {
+        mutateAll(() -> super.addAllSubtasks(batch), () -> puts(batch));
+    }
+
+    @Override
+    public void updateAllSubtasks(List<Subtask> batch) {
+        mutateAll(() -> super.updateAllSubtasks(batch), () -> puts(batch));
     }
     //endregion
 }
@@ -11,4 +11,9 @@ public interface HistoryManager {
 
     List<Task> getHistory();
 
+    /**
+     * @return число задач в истории
+     */
+    int size();
+
 }
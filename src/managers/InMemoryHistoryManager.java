@@ -4,13 +4,33 @@ import model.Task;
 
 import java.util.*;
 
+/**
+ * История просмотров на двусвязном списке с индексом id → узел.<br>
+ * Размер истории ограничен: при добавлении сверх capacity вытесняется самый давний просмотр (голова списка) за O(1),
+ * поэтому и память, и время {@link #getHistory()} не растут с числом просмотренных задач.
+ */
 public class InMemoryHistoryManager implements HistoryManager {
+    public static final int DEFAULT_CAPACITY = 1_000;
+
     private final Map<Integer, Node> nodeMap;
+    private final int capacity;
     private Node head;
     private Node tail;
 
 
     public InMemoryHistoryManager() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity максимальное число задач в истории
+     * @throws IllegalArgumentException если capacity не положителен
+     */
+    public InMemoryHistoryManager(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Размер истории должен быть положительным: " + capacity);
+        }
+        this.capacity = capacity;
         this.nodeMap = new HashMap<>();
         this.head = null;
         this.tail = null;
@@ -21,6 +41,8 @@ public class InMemoryHistoryManager implements HistoryManager {
         // Удаляем старый просмотр, если уже есть
         if (nodeMap.containsKey(task.getId())) {
             remove(task.getId());
+        } else if (nodeMap.size() == capacity) {
+            remove(head.task.getId()); // вытесняем самый давний просмотр
         }
         // Добавляем в конец
         Node node = new Node(task);
@@ -53,7 +75,7 @@ public class InMemoryHistoryManager implements HistoryManager {
 
     @Override
     public List<Task> getHistory() {
-        List<Task> history = new ArrayList<>();
+        List<Task> history = new ArrayList<>(nodeMap.size());
         Node current = head;
         while (current != null) {
             history.add(current.task);
@@ -62,6 +84,15 @@ public class InMemoryHistoryManager implements HistoryManager {
         return history;
     }
 
+    @Override
+    public int size() {
+        return nodeMap.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
     private static class Node {
         Task task;
         Node prev;
@@ -3,45 +3,170 @@ package managers;
 import exeptions.ValidationException;
 import exeptions.NotFoundException;
 import model.Epic;
+import model.Page;
 import model.Subtask;
 import model.Task;
+import model.TaskEvent;
+import utils.FullTextIndex;
+import utils.IdGenerator;
+import utils.IntHashSet;
 import utils.Managers;
 import utils.Status;
+import utils.TaskType;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.Objects;
-import java.util.Optional;
-
-import static utils.IdGenerator.*;
 
 /**
  * In-memory реализация TaskManager с поддержкой приоритетной очереди по startTime.
  */
 public class InMemoryTaskManager implements TaskManager {
-    final Map<Integer, Task> tasks;
-    final Map<Integer, Epic> epics;
-    final Map<Integer, Subtask> subtasks;
+    final EntityStore<Task> tasks;
+    final EntityStore<Epic> epics;
+    final EntityStore<Subtask> subtasks;
+    private final FullTextIndex textIndex = new FullTextIndex();
+    private final ChangeFeed changeFeed = new ChangeFeed();
     private final HistoryManager historyManager;
+    private volatile SessionHistories sessionHistories = new SessionHistories();
+    private final IdGenerator ids;
 
     public InMemoryTaskManager() {
-        this.tasks = new HashMap<>();
-        this.epics = new HashMap<>();
-        this.subtasks = new HashMap<>();
-        this.historyManager = Managers.getDefaultHistory();
+        this(Managers.getDefaultHistory());
+    }
+
+    /**
+     * Позволяет наследникам подставить свою реализацию истории (например, потокобезопасную).
+     *
+     * @param historyManager менеджер истории просмотров
+     */
+    protected InMemoryTaskManager(HistoryManager historyManager) {
+        this(historyManager, IdGenerator.shared());
+    }
+
+    /**
+     * @param historyManager менеджер истории просмотров
+     * @param ids            счётчик id — собственный у менеджера каждой доски
+     */
+    protected InMemoryTaskManager(HistoryManager historyManager, IdGenerator ids) {
+        this.ids = ids;
+        this.tasks = new EntityStore<>(textIndex, changeFeed, TaskType.TASK);
+        this.epics = new EntityStore<>(textIndex, changeFeed, TaskType.EPIC);
+        this.subtasks = new EntityStore<>(textIndex, changeFeed, TaskType.SUBTASK);
+        this.historyManager = historyManager;
     }
 
+    /**
+     * Порядок приоритизации: по startTime и затем по id.
+     */
+    static final Comparator<Task> PRIORITY_ORDER = Comparator
+            .comparing(Task::getStartTime, Comparator.nullsLast(LocalDateTime::compareTo))
+            .thenComparing(Task::getId);
+
+    /**
+     * Начиная с этого числа эпиков их пересчёт после массовой загрузки идёт параллельно.
+     */
+    private static final int PARALLEL_EPIC_THRESHOLD = 1_000;
+
     /**
      * Отдельное множество для приоритизации задач и подзадач.
      * Сортировка по startTime и затем по id.
      */
-    final NavigableSet<Task> prioritizedTasks = new TreeSet<>(
-            Comparator
-                    .comparing(Task::getStartTime, Comparator.nullsLast(LocalDateTime::compareTo))
-                    .thenComparing(Task::getId)
-    );
+    final NavigableSet<Task> prioritizedTasks = new TreeSet<>(PRIORITY_ORDER);
+
+    /**
+     * Завершает массовую загрузку, при которой сущности клались в хранилища напрямую:
+     * один раз пересчитывает каждый эпик (параллельно, если эпиков много) и строит
+     * приоритетную очередь из заранее отсортированного массива за линейное время.
+     */
+    void rebuildAfterBulkLoad() {
+        Collection<Epic> allEpics = epics.values();
+        (allEpics.size() >= PARALLEL_EPIC_THRESHOLD ? allEpics.parallelStream() : allEpics.stream())
+                .forEach(this::recalculateEpic);
+        epics.reindexAll(); // статусы эпиков известны только после пересчёта, индекс строим последовательно
+
+        List<Task> scheduled = new ArrayList<>(tasks.size() + subtasks.size());
+        tasks.values().forEach(t -> {
+            if (t.getStartTime() != null) scheduled.add(t);
+        });
+        subtasks.values().forEach(s -> {
+            if (s.getStartTime() != null) scheduled.add(s);
+        });
+        scheduled.sort(PRIORITY_ORDER);
+        prioritizedTasks.clear();
+        prioritizedTasks.addAll(new SortedListView(scheduled)); // TreeSet строит дерево из отсортированного набора за O(n)
+    }
+
+    /**
+     * Отсортированный по {@link #PRIORITY_ORDER} список без повторов, представленный как SortedSet,
+     * чтобы TreeSet.addAll воспользовался линейной сборкой дерева. Поиск и диапазоны — двоичным поиском
+     * по списку, диапазон — представление над его частью.
+     */
+    static final class SortedListView extends AbstractSet<Task> implements SortedSet<Task> {
+        private final List<Task> sorted;
+
+        SortedListView(List<Task> sorted) {
+            this.sorted = sorted;
+        }
+
+        @Override
+        public Iterator<Task> iterator() {
+            return Collections.unmodifiableList(sorted).iterator();
+        }
+
+        @Override
+        public int size() {
+            return sorted.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Task task && Collections.binarySearch(sorted, task, PRIORITY_ORDER) >= 0;
+        }
+
+        @Override
+        public Comparator<? super Task> comparator() {
+            return PRIORITY_ORDER;
+        }
+
+        @Override
+        public SortedSet<Task> subSet(Task fromElement, Task toElement) {
+            if (PRIORITY_ORDER.compare(fromElement, toElement) > 0) {
+                throw new IllegalArgumentException("Начало диапазона больше конца");
+            }
+            return new SortedListView(sorted.subList(lowerBound(fromElement), lowerBound(toElement)));
+        }
+
+        @Override
+        public SortedSet<Task> headSet(Task toElement) {
+            return new SortedListView(sorted.subList(0, lowerBound(toElement)));
+        }
+
+        @Override
+        public SortedSet<Task> tailSet(Task fromElement) {
+            return new SortedListView(sorted.subList(lowerBound(fromElement), sorted.size()));
+        }
+
+        @Override
+        public Task first() {
+            if (sorted.isEmpty()) throw new NoSuchElementException();
+            return sorted.get(0);
+        }
+
+        @Override
+        public Task last() {
+            if (sorted.isEmpty()) throw new NoSuchElementException();
+            return sorted.get(sorted.size() - 1);
+        }
+
+        /**
+         * @return индекс первого элемента, не меньшего task
+         */
+        private int lowerBound(Task task) {
+            int i = Collections.binarySearch(sorted, task, PRIORITY_ORDER);
+            return i >= 0 ? i : -i - 1;
+        }
+    }
 
     /**
      * Возвращает копию списка приоритизированных задач, чтобы избежать изменений в оригинальном множестве.
@@ -54,6 +179,58 @@ public class InMemoryTaskManager implements TaskManager {
         return new ArrayList<>(prioritizedTasks); // O(n) — обход TreeSet без дополнительной сортировки
     }
 
+    /**
+     * Окно расписания за O(log n + k): задачи, начавшиеся в [from, to), берутся представлением subSet,
+     * а из начавшихся раньше from продолжаться может только группа с наибольшим началом —
+     * задачи в очереди не пересекаются, поэтому более ранние закончились не позже её начала.
+     */
+    @Override
+    public List<Task> getPrioritizedTasksBetween(LocalDateTime from, LocalDateTime to) {
+        checkRange(from, to);
+        Task fromKey = rangeProbe(from);
+        List<Task> result = new ArrayList<>();
+        Task before = prioritizedTasks.lower(fromKey);
+        if (before != null) {
+            LocalDateTime groupStart = before.getStartTime();
+            for (Task t = before; t != null && t.getStartTime().equals(groupStart); t = prioritizedTasks.lower(t)) {
+                if (t.getEndTime().isAfter(from)) result.add(t);
+            }
+            Collections.reverse(result); // собирали сверху вниз
+        }
+        result.addAll(prioritizedTasks.subSet(fromKey, true, rangeProbe(to), false));
+        return result;
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasksAfter(LocalDateTime instant, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit должен быть положительным: " + limit);
+        }
+        List<Task> result = new ArrayList<>(Math.min(limit, prioritizedTasks.size()));
+        for (Task t : prioritizedTasks.tailSet(rangeProbe(instant), true)) {
+            if (result.size() == limit) break;
+            result.add(t);
+        }
+        return result;
+    }
+
+    static void checkRange(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null) {
+            throw new IllegalArgumentException("Нужно указать начало и конец интервала");
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Начало интервала позже конца: " + from + " > " + to);
+        }
+    }
+
+    /**
+     * Ключ поиска, стоящий перед всеми задачами с данным временем начала.
+     * Создаётся на каждый запрос: в отличие от overlapProbe, чтения могут идти из нескольких потоков.
+     */
+    private static Task rangeProbe(LocalDateTime start) {
+        return new Task(Integer.MIN_VALUE, null, null, null, start, Duration.ZERO);
+    }
+
     /**
      * Проверяет, пересекаются ли интервалы двух задач.
      *
@@ -73,19 +250,273 @@ public class InMemoryTaskManager implements TaskManager {
     }
 
     /**
-     * Проверяет, есть ли пересечение между задачей и другими задачами в приоритетной очереди.
+     * Проверяет, есть ли пересечение между задачей и другими задачами в приоритетной очереди.<br>
+     * Задачи в очереди не пересекаются между собой, поэтому при упорядочивании по началу их концы
+     * тоже идут по возрастанию (кроме группы с одинаковым началом). Достаточно идти вниз от последней
+     * задачи, начавшейся до конца t, и остановиться после группы с наибольшим началом раньше начала t.<br>
+     * Сложность O(log n) на шаг, без копирования очереди.
      *
      * @param t задача, которую нужно проверить на пересечение с другими задачами
      * @return Возвращает true, если есть пересечение с другими задачами в приоритетной очереди.
      */
     private boolean hasIntersection(Task t) {
-        return getPrioritizedTasks().stream()
-                .filter(other -> other.getId() != t.getId()) // не сравниваем задачу саму с собой
-                .anyMatch(other -> isIntersect(other, t));
+        LocalDateTime start = t.getStartTime();
+        if (start == null) {
+            return false;
+        }
+        overlapProbe.setStartTime(t.getEndTime()); // ищем задачи, начавшиеся строго до конца t
+        Task other = prioritizedTasks.lower(overlapProbe);
+        overlapProbe.setStartTime(null); // не держим ссылку на время после проверки
+        LocalDateTime stopGroup = null;
+        while (other != null) {
+            LocalDateTime otherStart = other.getStartTime();
+            if (stopGroup != null && !otherStart.equals(stopGroup)) {
+                return false; // более ранние задачи заканчиваются не позже начала этой группы
+            }
+            if (other.getId() != t.getId() && isIntersect(other, t)) {
+                return true;
+            }
+            if (stopGroup == null && otherStart.isBefore(start)) {
+                stopGroup = otherStart;
+            }
+            other = prioritizedTasks.lower(other);
+        }
+        return false;
     }
 
-    private void addToHistory(Task task) {
-        historyManager.add(task);
+    /**
+     * Переиспользуемый ключ для поиска соседей в {@link #prioritizedTasks}.
+     * Минимальный id ставит его перед всеми задачами с тем же временем начала.
+     */
+    private final Task overlapProbe = new Task(Integer.MIN_VALUE, null, null, null, null, Duration.ZERO);
+
+    /**
+     * Проверяет расписание пакета (или транзакции) одним проходом по отсортированному по началу пакету:
+     * пересечение внутри пакета видно по наибольшему концу среди предыдущих задач,
+     * пересечение с очередью — через {@link #hasIntersection(Task)} за O(log n).<br>
+     * Итого O(b log b + b log n) вместо b проверок с последующими вставками по одной.
+     * Старые версии обновляемых задач к этому моменту должны быть убраны из очереди.
+     *
+     * @param batch пакет новых версий задач
+     */
+    private void checkBatchSchedule(List<? extends Task> batch) {
+        List<Task> timed = new ArrayList<>(batch.size());
+        for (Task task : batch) {
+            if (task.getStartTime() != null) timed.add(task);
+        }
+        // при равном начале сначала более короткие — так задача нулевой длины не считается пересечением
+        timed.sort(Comparator.comparing(Task::getStartTime).thenComparing(Task::getEndTime));
+        LocalDateTime maxEnd = null;
+        for (Task task : timed) {
+            if (maxEnd != null && task.getStartTime().isBefore(maxEnd)) {
+                throw new ValidationException("Изменяемые задачи пересекаются по времени между собой");
+            }
+            if (hasIntersection(task)) {
+                throw new ValidationException("Задача пересекается по времени с существующей");
+            }
+            if (maxEnd == null || task.getEndTime().isAfter(maxEnd)) maxEnd = task.getEndTime();
+        }
+    }
+
+    /**
+     * Выдаёт новые id элементам добавляемого пакета до проверки расписания: проверка пропускает
+     * задачу с тем же id, и устаревший id из запроса скрыл бы пересечение с существующей задачей.
+     */
+    private void assignIds(List<? extends Task> batch) {
+        for (Task task : batch) {
+            task.setId(generateId());
+        }
+    }
+
+    /**
+     * Заменяет в очереди старые версии пакета новыми; если пакет не проходит проверку
+     * расписания, очередь возвращается в исходное состояние.
+     */
+    private void reschedule(List<? extends Task> olds, List<? extends Task> batch) {
+        for (Task old : olds) {
+            if (old.getStartTime() != null) prioritizedTasks.remove(old);
+        }
+        try {
+            checkBatchSchedule(batch);
+        } catch (ValidationException e) {
+            for (Task old : olds) {
+                if (old.getStartTime() != null) prioritizedTasks.add(old);
+            }
+            throw e;
+        }
+        for (Task task : batch) {
+            if (task.getStartTime() != null) prioritizedTasks.add(task);
+        }
+    }
+
+    //region Транзакции
+    @Override
+    public Transaction beginTransaction() {
+        return new Transaction(this::commitTransaction);
+    }
+
+    /**
+     * Применяет операции транзакции. Сначала всё проверяется и расписание перестраивается
+     * по итоговому состоянию ({@link #reschedule}), и только затем меняются хранилища —
+     * после успешной проверки применение уже не может упасть, поэтому откатывать нечего.
+     *
+     * @param ops операции в порядке добавления в транзакцию
+     */
+    void commitTransaction(List<Transaction.Op> ops) {
+        IntHashSet touched = new IntHashSet(ops.size());
+        IntHashSet removedEpics = new IntHashSet();
+        List<Task> leaving = new ArrayList<>();  // версии, покидающие расписание
+        List<Task> entering = new ArrayList<>(); // версии, входящие в расписание
+        for (Transaction.Op op : ops) {
+            if (op.kind() == Transaction.Kind.ADD) {
+                if (op.type() != TaskType.EPIC) entering.add(op.entity());
+                continue;
+            }
+            if (!touched.add(op.id())) {
+                throw new IllegalArgumentException("Сущность с id = " + op.id() + " изменяется в транзакции несколько раз");
+            }
+            Task old = storeOf(op.type()).get(op.id());
+            if (old == null) {
+                throw new NotFoundException("Невозможно применить транзакцию: сущность с id = " + op.id() + " не найдена");
+            }
+            if (op.type() == TaskType.EPIC) {
+                if (op.kind() == Transaction.Kind.REMOVE) removedEpics.add(op.id());
+                continue; // эпики не входят в расписание
+            }
+            leaving.add(old);
+            if (op.kind() == Transaction.Kind.UPDATE) entering.add(op.entity());
+        }
+        if (!removedEpics.isEmpty()) {
+            removedEpics.forEach(epicId -> epics.get(epicId).getSubtaskIdSet().forEach(subtaskId -> {
+                if (touched.contains(subtaskId)) {
+                    throw new IllegalArgumentException("Подзадача " + subtaskId + " удаляемого эпика изменяется в той же транзакции");
+                }
+                Subtask subtask = subtasks.get(subtaskId);
+                if (subtask != null) leaving.add(subtask);
+            }));
+            for (Task task : entering) {
+                if (task instanceof Subtask subtask && removedEpics.contains(subtask.getEpicId())) {
+                    throw new IllegalArgumentException("Подзадача привязывается к эпику, удаляемому в той же транзакции");
+                }
+            }
+        }
+        for (Transaction.Op op : ops) {
+            if (op.kind() == Transaction.Kind.ADD) op.entity().setId(generateId()); // до вставки в очередь: id входит в ключ
+        }
+        reschedule(leaving, entering);
+
+        IntHashSet touchedEpics = new IntHashSet();
+        for (Transaction.Op op : ops) {
+            switch (op.type()) {
+                case TASK -> {
+                    if (op.kind() == Transaction.Kind.REMOVE) {
+                        tasks.remove(op.id());
+                        forget(op.id());
+                    } else {
+                        tasks.put(op.entity().getId(), op.entity());
+                    }
+                }
+                case EPIC -> applyEpicOp(op, touchedEpics);
+                case SUBTASK -> applySubtaskOp(op, touchedEpics);
+            }
+        }
+        recalculateEpics(touchedEpics);
+    }
+
+    private void applyEpicOp(Transaction.Op op, IntHashSet touchedEpics) {
+        if (op.kind() == Transaction.Kind.REMOVE) {
+            Epic epic = epics.remove(op.id());
+            forget(op.id());
+            epic.getSubtaskIdSet().forEach(subtaskId -> {
+                subtasks.remove(subtaskId); // из расписания подзадачи уже убраны
+                forget(subtaskId);
+            });
+            return;
+        }
+        Epic epic = (Epic) op.entity();
+        if (op.kind() == Transaction.Kind.UPDATE) {
+            epic.clearSubtaskIds();
+            epic.getSubtaskIdSet().addAll(epics.get(epic.getId()).getSubtaskIdSet()); // связи сохраняются, как в updateEpic
+        }
+        epics.put(epic.getId(), epic);
+        touchedEpics.add(epic.getId());
+    }
+
+    private void applySubtaskOp(Transaction.Op op, IntHashSet touchedEpics) {
+        if (op.kind() == Transaction.Kind.REMOVE) {
+            Subtask removed = subtasks.remove(op.id());
+            forget(op.id());
+            Epic epic = epics.get(removed.getEpicId());
+            if (epic != null) {
+                epic.removeSubtaskId(op.id());
+                touchedEpics.add(epic.getId());
+            }
+            return;
+        }
+        Subtask subtask = (Subtask) op.entity();
+        Subtask old = subtasks.put(subtask.getId(), subtask);
+        if (old != null && old.getEpicId() != subtask.getEpicId()) {
+            Epic oldEpic = epics.get(old.getEpicId());
+            if (oldEpic != null) {
+                oldEpic.removeSubtaskId(old.getId());
+                touchedEpics.add(oldEpic.getId());
+            }
+        }
+        Epic epic = epics.get(subtask.getEpicId());
+        if (epic != null) {
+            epic.addSubtaskId(subtask.getId()); // повторное добавление в множество ничего не меняет
+            touchedEpics.add(epic.getId());
+        }
+    }
+    //endregion
+
+    /**
+     * Текущие версии сущностей пакета в том же порядке.
+     *
+     * @throws NotFoundException        если какой-то сущности нет
+     * @throws IllegalArgumentException если id в пакете повторяется
+     */
+    private static <T extends Task> List<T> existingVersions(EntityStore<T> store, List<? extends T> batch) {
+        IntHashSet seen = new IntHashSet(batch.size());
+        List<T> olds = new ArrayList<>(batch.size());
+        for (T item : batch) {
+            if (!seen.add(item.getId())) {
+                throw new IllegalArgumentException("Повторяющийся id в пакете: " + item.getId());
+            }
+            T old = store.get(item.getId());
+            if (old == null) {
+                throw new NotFoundException("Невозможно обновить: сущность с id = " + item.getId() + " не найдена");
+            }
+            olds.add(old);
+        }
+        return olds;
+    }
+
+    private int generateId() {
+        return ids.next();
+    }
+
+    /**
+     * Счётчик id менеджера — наследники сдвигают его после загрузки сущностей с готовыми id.
+     */
+    IdGenerator idGenerator() {
+        return ids;
+    }
+
+    private void addToHistory(Task task, String session) {
+        if (session == null) {
+            historyManager.add(task);
+        } else {
+            sessionHistories.add(session, task);
+        }
+    }
+
+    /**
+     * Убирает удалённую сущность из общей истории и из историй всех сессий.
+     */
+    private void forget(int id) {
+        historyManager.remove(id);
+        sessionHistories.remove(id);
     }
 
     @Override
@@ -93,6 +524,18 @@ public class InMemoryTaskManager implements TaskManager {
         return historyManager.getHistory();
     }
 
+    @Override
+    public List<Task> getFromHistory(String session) {
+        return session == null ? getFromHistory() : sessionHistories.getHistory(session);
+    }
+
+    /**
+     * Заменяет хранилище историй сессий, например чтобы задать другие лимиты; прежние сессии теряются.
+     */
+    public void setSessionHistories(SessionHistories sessionHistories) {
+        this.sessionHistories = sessionHistories;
+    }
+
     //region Методы для model.Task
     @Override
     public List<Task> getAllTasks() {
@@ -102,17 +545,27 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void removeAllTasks() {
         tasks.values().forEach(t -> {
-            historyManager.remove(t.getId()); // удаляем задачу из истории
+            forget(t.getId()); // удаляем задачу из истории
             if (t.getStartTime() != null) prioritizedTasks.remove(t); // удаляем из приоритетной очереди, если была
         });
         tasks.clear(); // очищаем хранилище задач
     }
 
+    @Override
+    public Page<Task> getTasksPage(int limit, String cursor) {
+        return tasks.page(cursor, limit);
+    }
+
     @Override
     public Task getTaskById(int id) {
+        return getTaskById(id, null);
+    }
+
+    @Override
+    public Task getTaskById(int id, String session) {
         Task task = tasks.get(id);
         if (task != null) {
-            addToHistory(task);
+            addToHistory(task, session);
         } else {
             throw new NotFoundException("Задача с id = " + id + " не найдена");
         }
@@ -141,9 +594,8 @@ public class InMemoryTaskManager implements TaskManager {
 
     /**
      * Обновляет существующую задачу в менеджере.<br>
-     * Удаляет старую версию задачи из приоритетной очереди, если у неё было время начала,
-     * проверяет на пересечение с другими задачами,
-     * и если пересечений нет, добавляет новую версию задачи в приоритетную очередь и обновляет хранилище задач.<br>
+     * Заменяет в приоритетной очереди старую версию задачи новой ({@link #reschedule}),
+     * и если пересечений нет, обновляет хранилище задач.<br>
      * Если задача пересекается по времени с существующей задачей, выбрасывает исключение ValidationException.
      *
      * @param task Задача, которую нужно обновить в менеджере.<br>
@@ -151,22 +603,11 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void updateTask(Task task) {
         Task old = tasks.get(task.getId());
-        if (!tasks.containsKey(task.getId())) {
+        if (old == null) {
             throw new NotFoundException("Невозможно обновить: задачу с id =" + task.getId() + " не найдена");
         }
-        if (old != null) {
-            if (old.getStartTime() != null) {
-                prioritizedTasks.remove(old); // удаляем из prioritizedTasks старую версию, если была
-            }
-            if (task.getStartTime() != null && hasIntersection(task)) { // перед вставкой новой — проверяем пересечение
-                prioritizedTasks.add(old); // не забываем вернуть старую в множество, если хотим откатить
-                throw new ValidationException("Задача пересекается по времени с существующей");
-            }
-            if (task.getStartTime() != null) {
-                prioritizedTasks.add(task); // всё ок — вставляем
-            }
-            tasks.put(task.getId(), task); // обновляем задачу в хранилище
-        }
+        reschedule(List.of(old), List.of(task)); // при пересечении очередь остаётся прежней
+        tasks.put(task.getId(), task); // обновляем задачу в хранилище
     }
 
     @Override
@@ -177,7 +618,32 @@ public class InMemoryTaskManager implements TaskManager {
         } else if (removed.getStartTime() != null) {
             prioritizedTasks.remove(removed);
         } else {
-            historyManager.remove(id);
+            forget(id);
+        }
+    }
+
+    /**
+     * Добавляет пакет задач: расписание всего пакета проверяется одним проходом до первого изменения,
+     * поэтому при пересечении не добавляется ни одна задача.
+     *
+     * @param batch задачи для добавления
+     */
+    @Override
+    public void addAllTasks(List<Task> batch) {
+        assignIds(batch);
+        checkBatchSchedule(batch);
+        for (Task task : batch) {
+            if (task.getStartTime() != null) prioritizedTasks.add(task);
+            tasks.put(task.getId(), task);
+        }
+    }
+
+    @Override
+    public void updateAllTasks(List<Task> batch) {
+        List<Task> olds = existingVersions(tasks, batch);
+        reschedule(olds, batch);
+        for (Task task : batch) {
+            tasks.put(task.getId(), task);
         }
     }
 
@@ -190,18 +656,28 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public void removeAllEpics() {
-        epics.values().forEach(e -> historyManager.remove(e.getId())); // удаляем эпики из истории
+        epics.values().forEach(e -> forget(e.getId())); // удаляем эпики из истории
         epics.clear(); // очищаем хранилище эпиков
         removeAllSubtasks(); // удаляем все подзадачи, связанные с эпиками
     }
 
+    @Override
+    public Page<Epic> getEpicsPage(int limit, String cursor) {
+        return epics.page(cursor, limit);
+    }
+
     @Override
     public Epic getEpicById(int id) {
+        return getEpicById(id, null);
+    }
+
+    @Override
+    public Epic getEpicById(int id, String session) {
         Epic epic = epics.get(id);
         if (epic == null) {
             throw new NotFoundException("Эпик с id = " + id + " не найден");
         } else {
-            addToHistory(epic);
+            addToHistory(epic, session);
         }
         return epic;
     }
@@ -209,9 +685,8 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void addEpic(Epic epic) {
         epic.setId(generateId());
+        recalculateEpic(epic); // Пересчитываем статус и временные параметры эпика до публикации события
         epics.put(epic.getId(), epic);
-        updateEpicStatus(epic);
-        recalculateEpicTimeDetails(epic); // Пересчитываем временные параметры эпика
     }
 
     /**
@@ -231,10 +706,10 @@ public class InMemoryTaskManager implements TaskManager {
         Epic oldEpic = epics.get(epic.getId());
         if (oldEpic != null) {
             epic.clearSubtaskIds(); // Очищаем ID подзадач, чтобы избежать дублирования
-            epic.getSubtaskIDs().addAll(oldEpic.getSubtaskIDs()); // добавляем прежние ID подзадач
+            epic.getSubtaskIdSet().addAll(oldEpic.getSubtaskIdSet()); // добавляем прежние ID подзадач
+            recalculateEpic(epic); // Новый объект эпика — собираем его агрегаты заново
             epics.put(epic.getId(), epic); // Обновляем эпик в хранилище
-            updateEpicStatus(epic); // Обновляем статус эпика после обновления
-            recalculateEpicTimeDetails(epic); // Пересчитываем временные параметры эпика
+
         }
     }
 
@@ -251,71 +726,150 @@ public class InMemoryTaskManager implements TaskManager {
         if (epic == null) {
             throw new NotFoundException("Невозможно удалить: эпик с id = " + id + " не найден");
         } else {
-            historyManager.remove(id);
-            epic.getSubtaskIDs().stream()
-                    .map(subtasks::remove) // Удаляем подзадачи, связанные с эпиком
-                    .filter(Objects::nonNull) // Фильтруем только существующие подзадачи
-                    .filter(s -> s.getStartTime() != null) // Проверяем, что у подзадачи есть время начала
-                    .forEach(prioritizedTasks::remove); // Удаляем подзадачи из приоритетной очереди
+            forget(id);
+            epic.getSubtaskIdSet().forEach(subtaskId -> {
+                Subtask removed = subtasks.remove(subtaskId); // Удаляем подзадачи, связанные с эпиком
+                if (removed != null && removed.getStartTime() != null) {
+                    prioritizedTasks.remove(removed); // Удаляем подзадачи из приоритетной очереди
+                }
+            });
+        }
+    }
+
+    @Override
+    public void addAllEpics(List<Epic> batch) {
+        for (Epic epic : batch) {
+            epic.setId(generateId());
+            recalculateEpic(epic);
+            epics.put(epic.getId(), epic);
+        }
+    }
+
+    @Override
+    public void updateAllEpics(List<Epic> batch) {
+        List<Epic> olds = existingVersions(epics, batch);
+        for (int i = 0; i < batch.size(); i++) {
+            Epic epic = batch.get(i);
+            epic.clearSubtaskIds();
+            epic.getSubtaskIdSet().addAll(olds.get(i).getSubtaskIdSet()); // связи с подзадачами сохраняются, как в updateEpic
+            recalculateEpic(epic);
+            epics.put(epic.getId(), epic);
         }
     }
 
     /**
-     * Обновляет статус эпика на основе статусов его подзадач.
-     * Если все подзадачи новые, эпик становится новым.
-     * Если все подзадачи выполнены, эпик становится выполненным.
-     * Если есть хотя бы одна новая и одна выполненная подзадача, эпик становится в процессе выполнения.
+     * Полностью пересчитывает статус и временные параметры эпика по его подзадачам за O(k).<br>
+     * Используется только при появлении нового объекта эпика и после массовой загрузки,
+     * изменения отдельных подзадач учитываются инкрементально методами Epic.onSubtask*.
      *
-     * @param epic Эпик, статус которого нужно обновить.
-     */
-    void updateEpicStatus(Epic epic) {
-        List<Subtask> subs = epic.getSubtaskIDs().stream()
-                .map(subtasks::get) // Получаем подзадачи по их ID
-                .filter(Objects::nonNull) // Фильтруем только существующие подзадачи
-                .collect(Collectors.toList()); // Собираем их в список
-        if (subs.isEmpty()) {
-            epic.setStatus(Status.NEW); // Если нет подзадач, устанавливаем статус NEW
-            return;
-        }
-        boolean allNew = subs.stream().allMatch(s -> s.getStatus() == Status.NEW);  // Проверяем, все ли подзадачи новые
-        boolean allDone = subs.stream().allMatch(s -> s.getStatus() == Status.DONE);    // Проверяем, все ли подзадачи выполнены
-        epic.setStatus(allDone ? Status.DONE : allNew ? Status.NEW : Status.IN_PROGRESS);   // Устанавливаем статус эпика в зависимости от статусов подзадач
+     * @param epic Эпик, который нужно пересчитать.
+     */
+    boolean recalculateEpic(Epic epic) {
+        return epic.rebuildAggregates(subtasksOf(epic));
+    }
+
+    /**
+     * Пересчитывает каждый затронутый пакетом эпик один раз.
+     */
+    private void recalculateEpics(IntHashSet epicIds) {
+        epicIds.forEach(id -> {
+            Epic epic = epics.get(id);
+            if (epic == null) return; // эпик удалён в той же транзакции
+            epicDerived(epic, recalculateEpic(epic));
+        });
     }
 
     /**
-     * Пересчитывает временные параметры эпика на основе его подзадач.
-     * Если у эпика нет подзадач, устанавливает продолжительность в 0 и время начала/окончания в null.
-     * Иначе суммирует продолжительности подзадач и определяет минимальное время начала и максимальное время окончания.
+     * Вызывается после изменения агрегатов эпика, хранящегося в менеджере: если статус или время
+     * изменились, обновляет индекс статусов и публикует событие DERIVED.
      *
-     * @param epic Эпик, для которого нужно пересчитать временные параметры.
-     */
-    void recalculateEpicTimeDetails(Epic epic) {
-        List<Subtask> subs = epic.getSubtaskIDs().stream()
-                .map(subtasks::get) // Получаем подзадачи по их ID
-                .filter(Objects::nonNull)   // Фильтруем только существующие подзадачи
-                .collect(Collectors.toList());  // Собираем их в список
-        if (subs.isEmpty()) {
-            epic.setDuration(Duration.ZERO);    // Если нет подзадач, устанавливаем продолжительность в 0
-            epic.setStartTime(null);    // Устанавливаем время начала в null
-            epic.setEndTime(null);  // Устанавливаем время окончания в null
-            return;
+     * @param changed результат Epic.onSubtask* или rebuildAggregates
+     */
+    private void epicDerived(Epic epic, boolean changed) {
+        epicTouched(epic.getId());
+        if (!changed) return;
+        epics.reindex(epic.getId());
+        changeFeed.publish(TaskEvent.Kind.DERIVED, TaskType.EPIC, epic.getId(), epic);
+    }
+
+    /**
+     * Хук для наследников: у эпика могли измениться статус, время или состав подзадач.
+     * Вызывается внутри изменяющего метода, в том числе когда агрегаты не изменились.
+     */
+    void epicTouched(int epicId) {
+    }
+
+    //endregion
+    //region Фильтры по статусу и типу
+    @Override
+    public List<Task> getTasksByStatus(Status status) {
+        return tasks.byStatus(checkStatus(status));
+    }
+
+    @Override
+    public List<Epic> getEpicsByStatus(Status status) {
+        return epics.byStatus(checkStatus(status));
+    }
+
+    @Override
+    public List<Subtask> getSubtasksByStatus(Status status) {
+        return subtasks.byStatus(checkStatus(status));
+    }
+
+    @Override
+    public int countByType(TaskType type) {
+        return storeOf(type).size();
+    }
+
+    @Override
+    public int countByStatus(TaskType type, Status status) {
+        return storeOf(type).countByStatus(checkStatus(status));
+    }
+
+    private EntityStore<?> storeOf(TaskType type) {
+        if (type == null) {
+            throw new IllegalArgumentException("Нужно указать тип задачи");
         }
-        Duration total = subs.stream()
-                .map(Subtask::getDuration)  // Суммируем продолжительности всех подзадач
-                .reduce(Duration.ZERO, Duration::plus); // Начинаем с нулевой продолжительности и складываем
-        LocalDateTime start = subs.stream()
-                .map(Subtask::getStartTime) // Получаем время начала всех подзадач
-                .filter(Objects::nonNull)   // Фильтруем только существующие времена начала
-                .min(LocalDateTime::compareTo)  // Находим минимальное время начала
-                .orElse(null);  // Если нет подзадач с временем начала, возвращаем null
-        LocalDateTime end = subs.stream()
-                .map(Subtask::getEndTime)   // Получаем время окончания всех подзадач
-                .filter(Objects::nonNull)   // Фильтруем только существующие времена окончания
-                .max(LocalDateTime::compareTo)  // Находим максимальное время окончания
-                .orElse(null);  // Если нет подзадач с временем окончания, возвращаем null
-        epic.setDuration(total);
-        epic.setStartTime(start);
-        epic.setEndTime(end);
+        return switch (type) {
+            case TASK -> tasks;
+            case EPIC -> epics;
+            case SUBTASK -> subtasks;
+        };
+    }
+
+    private static Status checkStatus(Status status) {
+        if (status == null) {
+            throw new IllegalArgumentException("Нужно указать статус");
+        }
+        return status;
+    }
+
+    //endregion
+    //region Полнотекстовый поиск
+    @Override
+    public List<Task> search(String query, int limit) {
+        int[] ids = textIndex.search(query, limit);
+        List<Task> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            Task found = tasks.get(id);
+            if (found == null) found = epics.get(id);
+            if (found == null) found = subtasks.get(id);
+            result.add(found);
+        }
+        return result;
+    }
+
+    @Override
+    public FullTextIndex.Stats getSearchIndexStats() {
+        return textIndex.stats();
+    }
+
+    //endregion
+    //region Лента изменений
+
+    @Override
+    public ChangeFeed getChangeFeed() {
+        return changeFeed;
     }
 
     //endregion
@@ -333,24 +887,33 @@ public class InMemoryTaskManager implements TaskManager {
     @Override
     public void removeAllSubtasks() {
         subtasks.values().forEach(s -> {
-            historyManager.remove(s.getId());   // удаляем подзадачу из истории
+            forget(s.getId());   // удаляем подзадачу из истории
             if (s.getStartTime() != null) prioritizedTasks.remove(s);   // удаляем из приоритетной очереди, если была
         });
+        subtasks.clear();   // очищаем хранилище подзадач
         epics.values().forEach(epic -> {
             epic.clearSubtaskIds(); // Очищаем ID подзадач у эпика
-            updateEpicStatus(epic); // Обновляем статус эпика после удаления всех подзадач
-            recalculateEpicTimeDetails(epic);   // Пересчитываем временные параметры эпика
+            epicDerived(epic, epic.rebuildAggregates(List.of())); // Сбрасываем статус и время эпика
         });
-        subtasks.clear();   // очищаем хранилище подзадач
+    }
+
+    @Override
+    public Page<Subtask> getSubtasksPage(int limit, String cursor) {
+        return subtasks.page(cursor, limit);
     }
 
     @Override
     public Subtask getSubtaskById(int id) {
+        return getSubtaskById(id, null);
+    }
+
+    @Override
+    public Subtask getSubtaskById(int id, String session) {
         Subtask subtask = subtasks.get(id);
         if (subtask == null) {
             throw new NotFoundException("Подзадача с id = " + id + " не найдена");
         } else {
-            addToHistory(subtask);
+            addToHistory(subtask, session);
         }
         return subtask;
     }
@@ -377,16 +940,14 @@ public class InMemoryTaskManager implements TaskManager {
         Epic epic = epics.get(subtask.getEpicId());
         if (epic != null) { // Привязываем к эпику
             epic.addSubtaskId(subtask.getId());
-            updateEpicStatus(epic); // Обновляем статус эпика после добавления подзадачи
-            recalculateEpicTimeDetails(epic); // Пересчитываем временные параметры эпика
+            epicDerived(epic, epic.onSubtaskAdded(subtask)); // Учитываем подзадачу в статусе и времени эпика
         }
     }
 
     /**
      * Обновляет существующую подзадачу в менеджере.<br>
-     * Удаляет старую версию подзадачи из приоритетной очереди, если у неё было время начала,
-     * проверяет на пересечение с другими подзадачами,
-     * и если пересечений нет, добавляет новую версию подзадачи в приоритетную очередь и обновляет хранилище подзадач.<br>
+     * Заменяет в приоритетной очереди старую версию подзадачи новой ({@link #reschedule}),
+     * и если пересечений нет, обновляет хранилище подзадач.<br>
      * Если подзадача пересекается по времени с существующей, выбрасывает исключение ValidationException.<br>
      * * Также обновляет статус эпика, к которому привязана подзадача, и пересчитывает его временные параметры.<br>
      *
@@ -394,26 +955,26 @@ public class InMemoryTaskManager implements TaskManager {
      */
     @Override
     public void updateSubtask(Subtask subtask) {
-        if (!subtasks.containsKey(subtask.getId())) {
+        Subtask old = subtasks.get(subtask.getId());
+        if (old == null) {
             throw new NotFoundException("Невозможно обновить: подзадача с id = " + subtask.getId() + " не найдена");
         }
-        Subtask old = subtasks.get(subtask.getId());
-        if (old != null) {
-            if (old.getStartTime() != null) {
-                prioritizedTasks.remove(old); // Удаляем старую версию из приоритетной очереди, если была
-            }
-            if (subtask.getStartTime() != null && hasIntersection(subtask)) {
-                prioritizedTasks.add(old); // Возвращаем старую версию, если пересекается
-                throw new ValidationException("Подзадача пересекается по времени с существующей");
+        reschedule(List.of(old), List.of(subtask)); // при пересечении очередь остаётся прежней
+        subtasks.put(subtask.getId(), subtask);
+        Epic epic = epics.get(subtask.getEpicId()); // Получаем эпик, к которому привязана подзадача
+        if (old.getEpicId() == subtask.getEpicId()) {
+            if (epic != null) {
+                epicDerived(epic, epic.onSubtaskUpdated(subtask));
             }
-            if (subtask.getStartTime() != null) {
-                prioritizedTasks.add(subtask); // Добавляем новую версию в приоритетную очередь
+        } else { // подзадачу перенесли в другой эпик
+            Epic oldEpic = epics.get(old.getEpicId());
+            if (oldEpic != null) {
+                oldEpic.removeSubtaskId(old.getId());
+                epicDerived(oldEpic, oldEpic.onSubtaskRemoved(old));
             }
-            subtasks.put(subtask.getId(), subtask);
-            Epic epic = epics.get(subtask.getEpicId()); // Получаем эпик, к которому привязана подзадача
             if (epic != null) {
-                updateEpicStatus(epic); // Обновляем статус эпика после обновления подзадачи
-                recalculateEpicTimeDetails(epic); // Пересчитываем временные параметры эпика
+                epic.addSubtaskId(subtask.getId());
+                epicDerived(epic, epic.onSubtaskAdded(subtask));
             }
         }
     }
@@ -428,17 +989,62 @@ public class InMemoryTaskManager implements TaskManager {
         Subtask removed = subtasks.remove(id);
         if (removed == null) {
             throw new NotFoundException("Невозможно удалить: подзадача с id = " + id + " не найдена");
-        } else if (removed.getStartTime() != null) {
+        }
+        if (removed.getStartTime() != null) {
             prioritizedTasks.remove(removed);
-        } else {
-            historyManager.remove(id); // Удаляем подзадачу из истории
-            Epic epic = epics.get(removed.getEpicId());
+        }
+        forget(id); // Удаляем подзадачу из истории
+        Epic epic = epics.get(removed.getEpicId());
+        if (epic != null) {
+            epic.removeSubtaskId(id); // Удаляем подзадачу из эпика, если она была привязана к нему
+            epicDerived(epic, epic.onSubtaskRemoved(removed)); // Исключаем её из статуса и времени эпика
+        }
+    }
+
+    /**
+     * Добавляет пакет подзадач: расписание проверяется одним проходом до первого изменения,
+     * а каждый затронутый эпик пересчитывается один раз, а не после каждой подзадачи.
+     *
+     * @param batch подзадачи для добавления
+     */
+    @Override
+    public void addAllSubtasks(List<Subtask> batch) {
+        assignIds(batch);
+        checkBatchSchedule(batch);
+        IntHashSet touchedEpics = new IntHashSet();
+        for (Subtask subtask : batch) {
+            if (subtask.getStartTime() != null) prioritizedTasks.add(subtask);
+            subtasks.put(subtask.getId(), subtask);
+            Epic epic = epics.get(subtask.getEpicId());
             if (epic != null) {
-                epic.removeSubtaskId(id); // Удаляем подзадачу из эпика, если она была привязана к нему
-                updateEpicStatus(epic); // Обновляем статус эпика после удаления подзадачи
-                recalculateEpicTimeDetails(epic); // Пересчитываем временные параметры эпика
+                epic.addSubtaskId(subtask.getId());
+                touchedEpics.add(epic.getId());
+            }
+        }
+        recalculateEpics(touchedEpics);
+    }
+
+    @Override
+    public void updateAllSubtasks(List<Subtask> batch) {
+        List<Subtask> olds = existingVersions(subtasks, batch);
+        reschedule(olds, batch);
+        IntHashSet touchedEpics = new IntHashSet();
+        for (int i = 0; i < batch.size(); i++) {
+            Subtask old = olds.get(i);
+            Subtask subtask = batch.get(i);
+            subtasks.put(subtask.getId(), subtask);
+            if (old.getEpicId() != subtask.getEpicId()) { // подзадачу перенесли в другой эпик
+                Epic oldEpic = epics.get(old.getEpicId());
+                if (oldEpic != null) {
+                    oldEpic.removeSubtaskId(old.getId());
+                    touchedEpics.add(oldEpic.getId());
+                }
+                Epic epic = epics.get(subtask.getEpicId());
+                if (epic != null) epic.addSubtaskId(subtask.getId());
             }
+            if (epics.containsKey(subtask.getEpicId())) touchedEpics.add(subtask.getEpicId());
         }
+        recalculateEpics(touchedEpics);
     }
 
     /**
@@ -449,12 +1055,21 @@ public class InMemoryTaskManager implements TaskManager {
      */
     @Override
     public List<Subtask> getSubtasksOfEpic(int epicId) {
-        return Optional.ofNullable(epics.get(epicId))   // Получаем эпик по его ID
-                .map(e -> e.getSubtaskIDs().stream()    // Получаем список ID подзадач эпика
-                        .map(subtasks::get) // Получаем подзадачи по их ID
-                        .filter(Objects::nonNull)   // Фильтруем только существующие подзадачи
-                        .collect(Collectors.toList()))  // Собираем их в список
-                .orElseGet(Collections::emptyList); // Если эпик не найден, возвращаем пустой список
+        Epic epic = epics.get(epicId);
+        return epic == null ? Collections.emptyList() : subtasksOf(epic); // Если эпик не найден — пустой список
+    }
+
+    /**
+     * Существующие подзадачи эпика в порядке его множества ID.
+     */
+    private List<Subtask> subtasksOf(Epic epic) {
+        IntHashSet ids = epic.getSubtaskIdSet();
+        List<Subtask> result = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Subtask s = subtasks.get(ids.get(i));
+            if (s != null) result.add(s); // пропускаем ID, для которых подзадачи уже нет
+        }
+        return result;
     }
     //endregion
 }
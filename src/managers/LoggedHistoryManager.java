@@ -0,0 +1,60 @@
+package managers;
+
+import model.Task;
+
+import java.util.List;
+
+/**
+ * История, которая дублирует каждый просмотр и удаление в {@link ViewLog}.<br>
+ * Восстановление при загрузке идёт мимо журнала, чтобы не дописывать в него то, что из него прочитано.
+ */
+class LoggedHistoryManager implements HistoryManager {
+    private final HistoryManager delegate;
+    private final ViewLog log;
+    private volatile boolean logging;
+
+    LoggedHistoryManager(HistoryManager delegate, ViewLog log) {
+        this.delegate = delegate;
+        this.log = log;
+    }
+
+    ViewLog log() {
+        return log;
+    }
+
+    /**
+     * Включает запись в журнал; до этого история меняется только в памяти, например при загрузке.
+     */
+    void startLogging() {
+        logging = true;
+    }
+
+    /**
+     * Добавляет просмотр в историю, не записывая его в журнал.
+     */
+    void restore(Task task) {
+        delegate.add(task);
+    }
+
+    @Override
+    public void add(Task task) {
+        delegate.add(task);
+        if (logging) log.viewed(task.getId());
+    }
+
+    @Override
+    public void remove(int taskId) {
+        delegate.remove(taskId);
+        if (logging) log.removed(taskId);
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return delegate.getHistory();
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+}
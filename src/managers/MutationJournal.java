@@ -0,0 +1,486 @@
+package managers;
+
+import exeptions.ManagerLoadException;
+import exeptions.ManagerSaveException;
+import utils.CsvReader;
+import utils.Durability;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал мутаций: файл, в который каждая операция менеджера дописывается одной строкой.<br>
+ * Строка — кадр {@code длина,crc32,запись\n}: длина и CRC32 считаются по байтам записи в UTF-8,
+ * поэтому обрезанная при сбое запись ({@code …,30,} → {@code …,3}) не проигрывается, даже если
+ * остаток разбирается как корректный CSV. Журналы без кадров, записанные прежними версиями, читаются
+ * построчно; после их проигрывания менеджер сразу сохраняет снимок, чтобы форматы не смешивались.<br>
+ * Стоимость записи не зависит от количества задач — файл никогда не перезаписывается целиком,
+ * только дописывается в конец или обрезается после сохранения нового снимка.<br>
+ * Для фонового сжатия текущий файл можно отложить в сторону ({@link #rotate()}) и продолжить
+ * писать в новый, пока снимок не будет сохранён.<br>
+ * Каждой записи присваивается порядковый номер; {@link #awaitDurable(long)} блокирует вызывающего,
+ * пока запись не окажется на диске в соответствии с режимом {@link Durability}.
+ */
+class MutationJournal implements Closeable {
+    private static final String ROTATED_SUFFIX = ".compacting";
+
+    private final Path path;
+    private final Path rotatedPath;
+    private FileChannel channel;
+    private long records;
+    private long bytes;
+    private long appendedSeq;
+    private Durability durability = Durability.NONE;
+    private long groupCommitWindowMillis;
+    private boolean legacy; // при загрузке встретился журнал без кадров
+
+    // Состояние группового коммита защищено отдельным монитором, чтобы fsync не блокировал дозапись
+    private final Object syncMonitor = new Object();
+    private long syncedSeq;
+    private boolean syncing;
+
+    MutationJournal(Path path) {
+        this.path = path;
+        this.rotatedPath = Path.of(path + ROTATED_SUFFIX);
+    }
+
+    synchronized void setDurability(Durability durability, long groupCommitWindowMillis) {
+        this.durability = durability;
+        this.groupCommitWindowMillis = groupCommitWindowMillis;
+    }
+
+    /**
+     * Дописывает запись в конец журнала. В режиме {@link Durability#PER_WRITE} сразу сбрасывает её на диск.
+     *
+     * @param record строка записи без завершающего перевода строки
+     * @return порядковый номер записи для {@link #awaitDurable(long)}
+     */
+    synchronized long append(String record) {
+        try {
+            ByteBuffer buffer = frame(record);
+            FileChannel ch = channel();
+            bytes += buffer.remaining();
+            while (buffer.hasRemaining()) {
+                ch.write(buffer);
+            }
+            records++;
+            appendedSeq++;
+            if (durability == Durability.PER_WRITE) {
+                ch.force(false);
+                markSynced(appendedSeq);
+            }
+            return appendedSeq;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка записи в журнал " + path, e);
+        }
+    }
+
+    private static ByteBuffer frame(String record) {
+        byte[] payload = record.getBytes(StandardCharsets.UTF_8);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        byte[] header = (payload.length + "," + crc.getValue() + ",").getBytes(StandardCharsets.US_ASCII);
+        ByteBuffer buffer = ByteBuffer.allocate(header.length + payload.length + 1);
+        buffer.put(header).put(payload).put((byte) '\n').flip();
+        return buffer;
+    }
+
+    /**
+     * Ждёт, пока запись с указанным номером не будет сброшена на диск.<br>
+     * В режиме {@link Durability#GROUP_COMMIT} первый ожидающий поток становится ведущим:
+     * выдерживает окно коммита, чтобы накопить записи других потоков, и одним fsync
+     * подтверждает их все. Остальные потоки ждут результата ведущего.
+     *
+     * @param seq номер записи, полученный из {@link #append(String)}
+     */
+    void awaitDurable(long seq) {
+        Durability mode;
+        long window;
+        synchronized (this) {
+            mode = durability;
+            window = groupCommitWindowMillis;
+        }
+        if (mode != Durability.GROUP_COMMIT || seq <= 0) return;
+        synchronized (syncMonitor) {
+            while (syncedSeq < seq && syncing) {
+                try {
+                    syncMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ManagerSaveException("Ожидание записи журнала на диск прервано", e);
+                }
+            }
+            if (syncedSeq >= seq) return;
+            syncing = true; // этот поток становится ведущим
+        }
+        try {
+            if (window > 0) {
+                Thread.sleep(window); // даём другим потокам дописать свои записи в ту же группу
+            }
+            long target;
+            FileChannel ch;
+            synchronized (this) {
+                target = appendedSeq;
+                ch = channel;
+            }
+            if (ch != null) {
+                try {
+                    ch.force(false);
+                } catch (ClosedChannelException e) {
+                    // канал закрыли при переключении или закрытии — перед этим он уже был сброшен на диск
+                }
+            }
+            markSynced(target);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Групповой коммит журнала прерван", e);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка сброса журнала на диск " + path, e);
+        } finally {
+            synchronized (syncMonitor) {
+                syncing = false;
+                syncMonitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Отмечает все записи до указанного номера как сохранённые на диске.
+     * Вызывается также после записи снимка, который покрывает весь журнал.
+     *
+     * @param seq номер последней сохранённой записи
+     */
+    void markSynced(long seq) {
+        synchronized (syncMonitor) {
+            if (seq > syncedSeq) {
+                syncedSeq = seq;
+                syncMonitor.notifyAll();
+            }
+        }
+    }
+
+    synchronized long appendedSeq() {
+        return appendedSeq;
+    }
+
+    /**
+     * Очищает журнал. Вызывается после того, как всё его содержимое попало в снимок,
+     * поэтому все выданные номера записей считаются сохранёнными.
+     */
+    synchronized void truncate() {
+        try {
+            channel().truncate(0);
+            records = 0;
+            bytes = 0;
+            markSynced(appendedSeq);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка очистки журнала " + path, e);
+        }
+    }
+
+    synchronized long records() {
+        return records;
+    }
+
+    synchronized long bytes() {
+        return bytes;
+    }
+
+    /**
+     * Откладывает текущий файл журнала для сжатия; следующие записи пойдут в новый файл.
+     *
+     * @return false, если предыдущий отложенный файл ещё не удалён и сжатие уже идёт
+     */
+    synchronized boolean rotate() {
+        if (Files.exists(rotatedPath)) return false;
+        close();
+        try {
+            if (Files.exists(path)) {
+                Files.move(path, rotatedPath);
+            }
+            records = 0;
+            bytes = 0;
+            return true;
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка переключения журнала " + path, e);
+        }
+    }
+
+    boolean hasRotated() {
+        return Files.exists(rotatedPath);
+    }
+
+    /**
+     * Удаляет отложенный файл журнала — его записи уже вошли в сохранённый снимок.
+     */
+    void dropRotated() {
+        try {
+            Files.deleteIfExists(rotatedPath);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка удаления журнала " + rotatedPath, e);
+        }
+    }
+
+    /**
+     * Обработчик одной записи журнала. Получает читатель, установленный на первое поле записи;
+     * непрочитанные поля пропускаются автоматически. Запись только разбирается: возвращённое действие
+     * журнал выполняет после того, как убедился, что запись целая.
+     */
+    interface RecordHandler {
+        Runnable read(CsvReader record) throws IOException;
+    }
+
+    /**
+     * Последовательно передаёт обработчику сначала записи отложенного файла (если сжатие
+     * было прервано), затем записи текущего. Отсутствующий журнал считается пустым.<br>
+     * Повторное применение отложенных записей к снимку, который их уже содержит, безопасно:
+     * итог по каждой сущности определяется последней записью о ней.<br>
+     * Недописанная последняя запись (сбой во время дозаписи) отбрасывается и обрезается в файле,
+     * чтобы следующая запись не оказалась после мусора.
+     *
+     * @param handler обработчик записей
+     */
+    void replay(RecordHandler handler) {
+        replay(rotatedPath, handler);
+        long count = replay(path, handler);
+        synchronized (this) {
+            records = count;
+            try {
+                bytes = Files.exists(path) ? Files.size(path) : 0;
+            } catch (IOException e) {
+                throw new ManagerLoadException("Ошибка чтения журнала " + path, e);
+            }
+        }
+    }
+
+    /**
+     * @return true, если при загрузке проигран журнал без кадров — его нужно заменить снимком
+     */
+    synchronized boolean hasLegacyRecords() {
+        return legacy;
+    }
+
+    private long replay(Path source, RecordHandler handler) {
+        if (!Files.exists(source)) return 0;
+        long size;
+        long valid;
+        long count;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(source), 1 << 16)) {
+            in.mark(1);
+            int first = in.read();
+            in.reset();
+            if (first == -1) return 0;
+            if (first < '0' || first > '9') { // записи прежнего формата начинаются с кода операции
+                synchronized (this) {
+                    legacy = true;
+                }
+                return replayLines(source, new InputStreamReader(in, StandardCharsets.UTF_8), handler);
+            }
+            size = Files.size(source);
+            FrameReader frames = new FrameReader(source, in, size);
+            count = frames.replay(handler);
+            valid = frames.valid;
+        } catch (IOException e) {
+            throw new ManagerLoadException("Ошибка чтения журнала " + source, e);
+        }
+        if (valid < size) {
+            try (FileChannel ch = FileChannel.open(source, StandardOpenOption.WRITE)) {
+                ch.truncate(valid);
+            } catch (IOException e) {
+                throw new ManagerLoadException("Ошибка обрезки журнала " + source, e);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Читает кадры журнала и передаёт проверенные записи обработчику через один {@link CsvReader}.
+     */
+    private static final class FrameReader {
+        private final Path source;
+        private final InputStream in;
+        private final long size;
+        private final PayloadReader payload = new PayloadReader();
+        private final CsvReader reader = new CsvReader(payload);
+        private final CRC32 crc = new CRC32();
+        private byte[] bytes = new byte[256];
+        private long position;
+        private boolean terminated; // перевод строки текущего кадра уже прочитан
+        long valid; // конец последнего целого кадра
+
+        FrameReader(Path source, InputStream in, long size) {
+            this.source = source;
+            this.in = in;
+            this.size = size;
+        }
+
+        long replay(RecordHandler handler) throws IOException {
+            long count = 0;
+            while (position < size) {
+                if (!readFrame()) {
+                    if (skipLine()) {
+                        throw new ManagerLoadException("Повреждённая запись журнала " + source + " №" + (count + 1));
+                    }
+                    break; // повреждён только хвост — запись не была дописана до конца
+                }
+                count++;
+                reader.nextRecord();
+                try {
+                    handler.read(reader).run();
+                } catch (IllegalArgumentException e) {
+                    throw new ManagerLoadException("Повреждённая запись журнала " + source + " №" + count, e);
+                }
+                valid = position;
+            }
+            return count;
+        }
+
+        /**
+         * Читает кадр и сверяет длину, завершающий перевод строки и CRC32.
+         *
+         * @return false, если кадр не целый; читатель остаётся на месте ошибки
+         */
+        private boolean readFrame() throws IOException {
+            terminated = false;
+            long length = readNumber();
+            long checksum = length < 0 ? -1 : readNumber();
+            if (checksum < 0 || length > size - position - 1) return false;
+            int n = (int) length;
+            if (bytes.length < n) bytes = new byte[Math.max(n, bytes.length * 2)];
+            if (in.readNBytes(bytes, 0, n) != n) return false;
+            position += n;
+            int c = in.read();
+            if (c != -1) position++;
+            if (c != '\n') return false;
+            terminated = true;
+            crc.reset();
+            crc.update(bytes, 0, n);
+            if (crc.getValue() != checksum) return false;
+            payload.set(new String(bytes, 0, n, StandardCharsets.UTF_8));
+            return true;
+        }
+
+        /**
+         * @return число из заголовка кадра до запятой или -1, если заголовок повреждён
+         */
+        private long readNumber() throws IOException {
+            long value = 0;
+            int digits = 0;
+            int c;
+            while ((c = in.read()) >= '0' && c <= '9' && digits < 19) {
+                position++;
+                value = value * 10 + (c - '0');
+                digits++;
+            }
+            if (c != -1) position++;
+            if (c == '\n') terminated = true; // строка кончилась прямо в заголовке
+            return c == ',' && digits > 0 ? value : -1;
+        }
+
+        /**
+         * Пропускает остаток строки после повреждённого кадра.
+         *
+         * @return true, если за ней есть ещё данные — тогда повреждён не хвост, а середина журнала
+         */
+        private boolean skipLine() throws IOException {
+            int c = terminated ? '\n' : in.read();
+            while (c != '\n' && c != -1) {
+                c = in.read();
+            }
+            return c != -1 && in.read() != -1;
+        }
+    }
+
+    /**
+     * Источник символов для {@link CsvReader} с содержимым одной записи: по её окончании читатель видит
+     * конец ввода, а следующая запись подставляется без создания нового разборщика.
+     */
+    private static final class PayloadReader extends Reader {
+        private String text = "";
+        private int pos;
+
+        void set(String text) {
+            this.text = text;
+            this.pos = 0;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (pos == text.length()) return -1;
+            int n = Math.min(len, text.length() - pos);
+            text.getChars(pos, pos + n, cbuf, off);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Проигрывает журнал прежнего формата: по записи CSV на строку, без кадров.
+     * Запись применяется, только если за ней есть перевод строки: последняя запись без него
+     * оборвана при сбое, даже если её поля разобрались.
+     */
+    private static long replayLines(Path source, Reader in, RecordHandler handler) {
+        long count = 0;
+        try (CsvReader reader = new CsvReader(in)) {
+            while (reader.nextRecord()) {
+                Runnable change;
+                try {
+                    change = handler.read(reader);
+                    reader.skipRecord();
+                } catch (IllegalArgumentException e) {
+                    if (reader.nextRecord()) {
+                        throw new ManagerLoadException("Повреждённая запись журнала " + source
+                                + " №" + (reader.recordNumber() - 1), e);
+                    }
+                    break; // повреждён только хвост — запись не была дописана до конца
+                }
+                if (!reader.recordTerminated()) break; // последняя запись без перевода строки
+                change.run();
+                count++;
+            }
+        } catch (IOException e) {
+            throw new ManagerLoadException("Ошибка чтения журнала " + source, e);
+        }
+        return count;
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (channel == null) return;
+        try {
+            if (durability != Durability.NONE) {
+                channel.force(false);
+                markSynced(appendedSeq);
+            }
+            channel.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Ошибка закрытия журнала " + path, e);
+        } finally {
+            channel = null;
+        }
+    }
+}
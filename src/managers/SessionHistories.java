@@ -0,0 +1,199 @@
+package managers;
+
+import model.Task;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Истории просмотров по сессиям клиентов.<br>
+ * У каждой сессии своя {@link ConcurrentHistoryManager} с ограничением perSessionCapacity, поэтому
+ * клиенты не видят чужие просмотры и не соперничают за одну историю.
+ * Сессии, к которым не обращались дольше idleTimeout, удаляются. Суммарное число записей во всех историях
+ * ограничено globalCapacity: при превышении удаляются сессии, неактивные дольше всех.<br>
+ * Сессии упорядочены по последнему обращению в {@link ConcurrentSkipListMap}, а общий объём ведётся
+ * точным счётчиком по изменениям размера историй, поэтому обращение стоит O(log S) при любом числе сессий S:
+ * вытеснение снимает сессии с головы порядка, а поиск неактивных раз в {@link #SWEEP_INTERVAL} обращений
+ * просматривает только истёкшие сессии.
+ */
+public final class SessionHistories {
+    public static final int DEFAULT_SESSION_CAPACITY = 100;
+    public static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofMinutes(30);
+    public static final int DEFAULT_GLOBAL_CAPACITY = 100_000;
+    static final int SWEEP_INTERVAL = 256;
+
+    /**
+     * Сессия. Поля меняются под её монитором; закрытая сессия уже удалена из реестра,
+     * и обращение к ней повторяется с новой.
+     */
+    private static final class Session {
+        final String id;
+        final HistoryManager history;
+        long stamp;      // ключ в порядке обращений
+        long lastAccess;
+        boolean closed;
+
+        Session(String id, HistoryManager history) {
+            this.id = id;
+            this.history = history;
+        }
+    }
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, Session> byAccess = new ConcurrentSkipListMap<>();
+    private final AtomicLong stamps = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicInteger accessesSinceSweep = new AtomicInteger();
+    private final int sessionCapacity;
+    private final long idleNanos;
+    private final int globalCapacity;
+    private final LongSupplier clock;
+
+    public SessionHistories() {
+        this(DEFAULT_SESSION_CAPACITY, DEFAULT_IDLE_TIMEOUT, DEFAULT_GLOBAL_CAPACITY);
+    }
+
+    /**
+     * @param sessionCapacity максимальное число задач в истории одной сессии
+     * @param idleTimeout     через сколько без обращений сессия удаляется
+     * @param globalCapacity  максимальное суммарное число записей во всех историях
+     * @throws IllegalArgumentException если лимиты не положительны или globalCapacity меньше sessionCapacity
+     */
+    public SessionHistories(int sessionCapacity, Duration idleTimeout, int globalCapacity) {
+        this(sessionCapacity, idleTimeout, globalCapacity, System::nanoTime);
+    }
+
+    SessionHistories(int sessionCapacity, Duration idleTimeout, int globalCapacity, LongSupplier clock) {
+        if (sessionCapacity <= 0 || idleTimeout.isNegative() || idleTimeout.isZero() || globalCapacity < sessionCapacity) {
+            throw new IllegalArgumentException("Некорректные лимиты истории сессий: " + sessionCapacity + ", "
+                    + idleTimeout + ", " + globalCapacity);
+        }
+        this.sessionCapacity = sessionCapacity;
+        this.idleNanos = idleTimeout.toNanos();
+        this.globalCapacity = globalCapacity;
+        this.clock = clock;
+    }
+
+    /**
+     * Записывает просмотр в историю сессии; сессия создаётся при первом обращении.
+     *
+     * @throws IllegalArgumentException если идентификатор сессии пуст или длиннее 128 символов
+     */
+    public void add(String sessionId, Task task) {
+        if (sessionId == null || sessionId.isBlank() || sessionId.length() > 128) {
+            throw new IllegalArgumentException("Некорректный идентификатор сессии");
+        }
+        long now = clock.getAsLong();
+        while (true) {
+            Session session = sessions.computeIfAbsent(sessionId,
+                    id -> new Session(id, new ConcurrentHistoryManager(sessionCapacity)));
+            synchronized (session) {
+                if (session.closed) continue; // сессию только что вытеснили — создаём заново
+                touch(session, now);
+                int before = session.history.size();
+                session.history.add(task);
+                total.addAndGet(session.history.size() - before);
+            }
+            break;
+        }
+        if (total.get() > globalCapacity) {
+            evictLeastRecentlyActive(sessionId);
+        }
+        if (accessesSinceSweep.incrementAndGet() >= SWEEP_INTERVAL) {
+            accessesSinceSweep.set(0);
+            expireIdle(now);
+        }
+    }
+
+    /**
+     * Удаляет задачу из историй всех сессий, например при удалении самой задачи.
+     */
+    public void remove(int taskId) {
+        for (Session session : sessions.values()) {
+            synchronized (session) {
+                if (session.closed) continue;
+                int before = session.history.size();
+                session.history.remove(taskId);
+                total.addAndGet(session.history.size() - before);
+            }
+        }
+    }
+
+    public int sessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * @return суммарное число записей во всех историях
+     */
+    public long totalSize() {
+        return total.get();
+    }
+
+    /**
+     * История сессии без её создания — для чтения: у неизвестной сессии история пуста.
+     */
+    public List<Task> getHistory(String sessionId) {
+        Session session = sessions.get(sessionId);
+        if (session == null) return List.of();
+        synchronized (session) {
+            if (session.closed) return List.of();
+            touch(session, clock.getAsLong());
+        }
+        return session.history.getHistory();
+    }
+
+    /**
+     * Переносит сессию в конец порядка обращений. Вызывается под монитором сессии.
+     */
+    private void touch(Session session, long now) {
+        if (session.stamp != 0) byAccess.remove(session.stamp, session);
+        session.stamp = stamps.incrementAndGet();
+        session.lastAccess = now;
+        byAccess.put(session.stamp, session);
+    }
+
+    /**
+     * Снимает с головы порядка сессии, неактивные дольше всех, пока общий объём больше лимита.
+     * Текущая сессия не удаляется.
+     */
+    private void evictLeastRecentlyActive(String current) {
+        for (Map.Entry<Long, Session> head = byAccess.firstEntry();
+             head != null && total.get() > globalCapacity;
+             head = byAccess.higherEntry(head.getKey())) {
+            Session session = head.getValue();
+            if (!session.id.equals(current)) close(session);
+        }
+    }
+
+    /**
+     * Удаляет сессии без обращений дольше таймаута: они лежат в голове порядка,
+     * поэтому просматриваются только истёкшие сессии и одна живая.
+     */
+    private void expireIdle(long now) {
+        for (Map.Entry<Long, Session> head = byAccess.firstEntry(); head != null; head = byAccess.firstEntry()) {
+            Session session = head.getValue();
+            synchronized (session) {
+                if (session.stamp != head.getKey()) continue; // к сессии обратились, пока мы её смотрели
+                if (now - session.lastAccess <= idleNanos) return;
+            }
+            close(session);
+        }
+    }
+
+    private void close(Session session) {
+        synchronized (session) {
+            if (session.closed) return;
+            session.closed = true;
+            byAccess.remove(session.stamp, session);
+            sessions.remove(session.id, session);
+            total.addAndGet(-session.history.size());
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package managers;
+
+import model.TaskEvent;
+
+/**
+ * Подписчик ленты изменений. Вызывается в отдельном потоке подписки, события приходят по возрастанию seq.
+ */
+@FunctionalInterface
+public interface TaskEventListener {
+    void onEvent(TaskEvent event);
+}
@@ -2,9 +2,14 @@ package managers;
 
 import exeptions.NotFoundException;
 import model.Epic;
+import model.Page;
 import model.Subtask;
 import model.Task;
+import utils.FullTextIndex;
+import utils.Status;
+import utils.TaskType;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface TaskManager {
@@ -13,13 +18,43 @@ public interface TaskManager {
 
     void removeAllTasks();
 
+    /**
+     * Страница задач по возрастанию id.
+     *
+     * @param limit  максимальное число задач на странице
+     * @param cursor токен продолжения из предыдущей страницы или null для первой
+     * @throws IllegalArgumentException если limit не положителен или курсор повреждён
+     */
+    Page<Task> getTasksPage(int limit, String cursor);
+
     Task getTaskById(int id) throws NotFoundException;
 
+    /**
+     * Как {@link #getTaskById(int)}, но просмотр записывается в историю сессии.
+     *
+     * @param session идентификатор сессии клиента или null для общей истории
+     */
+    Task getTaskById(int id, String session) throws NotFoundException;
+
     void addTask(Task task);
 
     void updateTask(Task task) throws NotFoundException;
 
     void removeTaskById(int id) throws NotFoundException;
+
+    /**
+     * Добавляет пакет задач целиком или не добавляет ни одной.
+     *
+     * @throws exeptions.ValidationException если задачи пересекаются между собой или с существующими
+     */
+    void addAllTasks(List<Task> batch);
+
+    /**
+     * Обновляет пакет задач целиком или не обновляет ни одной.
+     *
+     * @throws NotFoundException если какой-то задачи нет
+     */
+    void updateAllTasks(List<Task> batch) throws NotFoundException;
     //endregion
 
     //region model.Epic
@@ -27,13 +62,21 @@ public interface TaskManager {
 
     void removeAllEpics();
 
+    Page<Epic> getEpicsPage(int limit, String cursor);
+
     Epic getEpicById(int id) throws NotFoundException;
 
+    Epic getEpicById(int id, String session) throws NotFoundException;
+
     void addEpic(Epic epic);
 
     void updateEpic(Epic epic) throws NotFoundException;
 
     void removeEpicById(int id) throws NotFoundException;
+
+    void addAllEpics(List<Epic> batch);
+
+    void updateAllEpics(List<Epic> batch) throws NotFoundException;
     //endregion
 
     //region model.Subtask
@@ -41,18 +84,92 @@ public interface TaskManager {
 
     void removeAllSubtasks();
 
+    Page<Subtask> getSubtasksPage(int limit, String cursor);
+
     Subtask getSubtaskById(int id) throws NotFoundException;
 
+    Subtask getSubtaskById(int id, String session) throws NotFoundException;
+
     void addSubtask(Subtask subtask);
 
     void updateSubtask(Subtask subtask) throws NotFoundException;
 
     void removeSubtaskById(int id) throws NotFoundException;
 
+    void addAllSubtasks(List<Subtask> batch);
+
+    void updateAllSubtasks(List<Subtask> batch) throws NotFoundException;
+
     List<Subtask> getSubtasksOfEpic(int epicId);
 
     List<Task> getPrioritizedTasks();
 
+    /**
+     * Задачи и подзадачи, интервал которых пересекается с [from, to), в порядке приоритета.
+     *
+     * @throws IllegalArgumentException если from позже to
+     */
+    List<Task> getPrioritizedTasksBetween(LocalDateTime from, LocalDateTime to);
+
+    /**
+     * Не более limit задач и подзадач, начинающихся не раньше instant, в порядке приоритета.
+     *
+     * @throws IllegalArgumentException если limit не положителен
+     */
+    List<Task> getPrioritizedTasksAfter(LocalDateTime instant, int limit);
+
+    //endregion
+
+    //region Фильтры по статусу и типу
+    /**
+     * Задачи с указанным статусом за O(k), где k — размер результата; порядок не гарантирован.
+     */
+    List<Task> getTasksByStatus(Status status);
+
+    List<Epic> getEpicsByStatus(Status status);
+
+    List<Subtask> getSubtasksByStatus(Status status);
+
+    /**
+     * Число сущностей указанного типа за O(1).
+     */
+    int countByType(TaskType type);
+
+    /**
+     * Число сущностей указанного типа и статуса за O(1).
+     */
+    int countByStatus(TaskType type, Status status);
+
+    //endregion
+
+    //region Полнотекстовый поиск
+    /**
+     * Не более limit задач, эпиков и подзадач, в названии или описании которых
+     * каждое слово запроса встречается как начало слова (без учёта регистра).
+     *
+     * @throws IllegalArgumentException если запрос пуст или limit не положителен
+     */
+    List<Task> search(String query, int limit);
+
+    FullTextIndex.Stats getSearchIndexStats();
+
     //endregion
+
+    /**
+     * Начинает транзакцию: операции накапливаются в ней и применяются атомарно при commit.
+     */
+    Transaction beginTransaction();
+
+    /**
+     * Лента изменений: события о создании, изменении и удалении сущностей
+     * и о пересчёте статуса и времени эпиков с монотонным номером.
+     */
+    ChangeFeed getChangeFeed();
+
     List<Task> getFromHistory();
+
+    /**
+     * История просмотров сессии; session = null — общая история.
+     */
+    List<Task> getFromHistory(String session);
 }
\ No newline at end of file
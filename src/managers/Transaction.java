@@ -0,0 +1,120 @@
+package managers;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import utils.TaskType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Транзакция менеджера задач: изменения накапливаются в транзакции и применяются при {@link #commit()}.<br>
+ * До commit менеджер не меняется, поэтому {@link #rollback()} просто отбрасывает накопленное.
+ * При commit расписание проверяется по итоговому состоянию (старые версии изменяемых задач
+ * в проверке не участвуют), и применяется либо всё, либо ничего.<br>
+ * Id новым сущностям выдаются при commit. Одна сущность может изменяться в транзакции только один раз.
+ * Транзакция одноразовая: после commit (даже неудачного) или rollback её нельзя использовать.
+ */
+public final class Transaction {
+    enum Kind { ADD, UPDATE, REMOVE }
+
+    /**
+     * Накопленная операция. Для удаления entity = null и задан id.
+     */
+    record Op(Kind kind, TaskType type, Task entity, int id) {
+    }
+
+    private final Consumer<List<Op>> committer;
+    private final List<Op> ops = new ArrayList<>();
+    private boolean finished;
+
+    Transaction(Consumer<List<Op>> committer) {
+        this.committer = committer;
+    }
+
+    public Transaction addTask(Task task) {
+        return stage(Kind.ADD, TaskType.TASK, task);
+    }
+
+    public Transaction updateTask(Task task) {
+        return stage(Kind.UPDATE, TaskType.TASK, task);
+    }
+
+    public Transaction removeTask(int id) {
+        return stage(TaskType.TASK, id);
+    }
+
+    public Transaction addEpic(Epic epic) {
+        return stage(Kind.ADD, TaskType.EPIC, epic);
+    }
+
+    public Transaction updateEpic(Epic epic) {
+        return stage(Kind.UPDATE, TaskType.EPIC, epic);
+    }
+
+    public Transaction removeEpic(int id) {
+        return stage(TaskType.EPIC, id);
+    }
+
+    public Transaction addSubtask(Subtask subtask) {
+        return stage(Kind.ADD, TaskType.SUBTASK, subtask);
+    }
+
+    public Transaction updateSubtask(Subtask subtask) {
+        return stage(Kind.UPDATE, TaskType.SUBTASK, subtask);
+    }
+
+    public Transaction removeSubtask(int id) {
+        return stage(TaskType.SUBTASK, id);
+    }
+
+    /**
+     * @return число накопленных операций
+     */
+    public int size() {
+        return ops.size();
+    }
+
+    /**
+     * Применяет накопленные операции.
+     *
+     * @throws exeptions.ValidationException  если в итоговом расписании есть пересечения
+     * @throws exeptions.NotFoundException    если изменяемой или удаляемой сущности нет
+     * @throws IllegalArgumentException       если операции противоречат друг другу
+     * @throws IllegalStateException          если транзакция уже завершена
+     */
+    public void commit() {
+        ensureOpen();
+        finished = true;
+        committer.accept(List.copyOf(ops));
+    }
+
+    public void rollback() {
+        ensureOpen();
+        finished = true;
+        ops.clear();
+    }
+
+    private Transaction stage(Kind kind, TaskType type, Task entity) {
+        ensureOpen();
+        if (entity == null) {
+            throw new IllegalArgumentException("Нельзя добавить в транзакцию пустую сущность");
+        }
+        ops.add(new Op(kind, type, entity, entity.getId()));
+        return this;
+    }
+
+    private Transaction stage(TaskType type, int id) {
+        ensureOpen();
+        ops.add(new Op(Kind.REMOVE, type, null, id));
+        return this;
+    }
+
+    private void ensureOpen() {
+        if (finished) {
+            throw new IllegalStateException("Транзакция уже завершена");
+        }
+    }
+}
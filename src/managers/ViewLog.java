@@ -0,0 +1,337 @@
+package managers;
+
+import exeptions.ManagerSaveException;
+import utils.IntHashSet;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Журнал просмотров: файл, в который дописывается по строке на событие истории —
+ * {@code id} для просмотра и {@code -id} для удаления задачи из истории.<br>
+ * Вызывающий поток только кладёт событие в буфер в памяти; в файл буфер пачками пишет отдельный поток,
+ * поэтому запись просмотра не ждёт диска. Если поток записи не успевает и буфер заполнен, в нём остаётся
+ * только последнее событие каждой задачи, а если и этого много — самые свежие события на полбуфера,
+ * которых не меньше размера истории. Запрос при этом не блокируется, а история в файле остаётся точной
+ * с точностью до удалений, которые всё равно отсеиваются при загрузке.<br>
+ * Когда записей в файле становится в {@link #COMPACTION_FACTOR} раз больше размера истории,
+ * тот же поток переписывает файл, оставляя только текущую историю, и атомарно подменяет его.<br>
+ * Журнал просмотров вспомогательный: недописанная после сбоя последняя строка отбрасывается,
+ * а если файл повреждён сильнее, он удаляется и история начинается пустой — загрузка задач от него не зависит.
+ */
+class ViewLog implements AutoCloseable {
+    static final int COMPACTION_FACTOR = 4;
+    private static final int DEFAULT_BUFFER_CAPACITY = 8192;
+    private static final long FLUSH_INTERVAL_MILLIS = 50;
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final Path path;
+    private final int historyCapacity;
+    private final int bufferCapacity;
+
+    // Всё ниже защищено монитором this
+    private int[] pending;
+    private int pendingCount;
+    private long requestedFlush;
+    private long completedFlush;
+    private long dropped;
+    private final IntHashSet seen = new IntHashSet();
+    private Thread thread;   // текущий поток записи; поток, который больше не текущий, завершается
+    private Thread stopping; // поток, который закрывается в close(); пока он не завершится, новый не запускается
+    private RuntimeException failure;
+
+    // Только поток записи
+    private int[] writing;
+    private BufferedWriter writer;
+    private long records = -1; // -1 — число записей в файле ещё не подсчитано
+
+    /**
+     * @param path            файл журнала просмотров
+     * @param historyCapacity размер истории: при загрузке и сжатии остаётся не больше стольких задач
+     */
+    ViewLog(Path path, int historyCapacity) {
+        this.path = path;
+        this.historyCapacity = historyCapacity;
+        this.bufferCapacity = Math.max(DEFAULT_BUFFER_CAPACITY, 2 * historyCapacity);
+        this.pending = new int[bufferCapacity];
+        this.writing = new int[bufferCapacity];
+    }
+
+    void viewed(int id) {
+        enqueue(id);
+    }
+
+    void removed(int id) {
+        enqueue(-id);
+    }
+
+    private synchronized void enqueue(int event) {
+        if (pendingCount == pending.length) {
+            coalesce();
+        }
+        pending[pendingCount++] = event;
+        if (thread == null && stopping == null) start(); // после close() журнал открывается заново
+    }
+
+    /**
+     * Оставляет в буфере последнее событие каждой задачи, а если их больше половины буфера —
+     * только свежую половину. Выполняется раз на заполнение буфера, так что в среднем стоит O(1) на событие.
+     */
+    private void coalesce() {
+        int w = pendingCount;
+        for (int i = pendingCount - 1; i >= 0; i--) {
+            int event = pending[i];
+            if (seen.add(Math.abs(event))) pending[--w] = event;
+        }
+        seen.clear();
+        int kept = Math.min(pendingCount - w, bufferCapacity / 2);
+        dropped += pendingCount - w - kept;
+        System.arraycopy(pending, pendingCount - kept, pending, 0, kept);
+        pendingCount = kept;
+    }
+
+    /**
+     * Восстанавливает историю из файла за один проход с конца: у каждой задачи учитывается только
+     * последнее событие, удалённые из истории пропускаются, и остаются не больше historyCapacity
+     * самых свежих просмотров.
+     *
+     * @return id в порядке просмотра, от давнего к свежему; пустой массив, если файла нет или он повреждён
+     */
+    int[] load() {
+        int[] events;
+        try {
+            events = readEvents();
+        } catch (NoSuchFileException e) {
+            return new int[0];
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Журнал просмотров " + path + " не прочитан, история начинается пустой: " + e);
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ignored) {
+                // не удалось удалить — новые события допишутся к старым, а сжатие сообщит об ошибке
+            }
+            return new int[0];
+        }
+        return latestViews(events);
+    }
+
+    /**
+     * Барьер: возвращается, когда все события, записанные до вызова, дописаны в файл.
+     */
+    synchronized void flush() {
+        if (thread == null) return;
+        long target = ++requestedFlush;
+        notifyAll();
+        while (completedFlush < target && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ManagerSaveException("Ожидание записи журнала просмотров прервано", e);
+            }
+        }
+        if (failure != null) {
+            throw new ManagerSaveException("Ошибка записи журнала просмотров", failure);
+        }
+    }
+
+    /**
+     * Дописывает накопленные события, останавливает поток записи и закрывает файл.
+     */
+    @Override
+    public void close() {
+        Thread persister;
+        synchronized (this) {
+            if (thread == null) return;
+            flush();
+            persister = thread;
+            stopping = thread;
+            thread = null;
+            notifyAll();
+        }
+        try {
+            persister.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (this) {
+                stopping = null;
+                if (pendingCount > 0 && thread == null) start(); // события, записанные во время закрытия
+            }
+        }
+    }
+
+    /**
+     * @return сколько событий о разных задачах отброшено из-за переполненного буфера
+     */
+    synchronized long getDropped() {
+        return dropped;
+    }
+
+    private void start() {
+        failure = null;
+        thread = new Thread(this::run, "view-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                int count;
+                long generation;
+                boolean stop;
+                synchronized (this) {
+                    long deadline = System.currentTimeMillis() + FLUSH_INTERVAL_MILLIS;
+                    while (thread == Thread.currentThread() && requestedFlush == completedFlush
+                            && pendingCount < bufferCapacity / 2) {
+                        long left = deadline - System.currentTimeMillis();
+                        if (left <= 0) break;
+                        wait(left);
+                    }
+                    int[] batch = pending; // меняем буферы местами — вызывающие пишут в свободный
+                    pending = writing;
+                    writing = batch;
+                    count = pendingCount;
+                    pendingCount = 0;
+                    generation = requestedFlush;
+                    stop = thread != Thread.currentThread();
+                }
+                if (count > 0) {
+                    write(writing, count);
+                }
+                if (stop) {
+                    closeWriter();
+                }
+                synchronized (this) {
+                    completedFlush = Math.max(completedFlush, generation);
+                    notifyAll();
+                    if (stop) return;
+                }
+            }
+        } catch (InterruptedException e) {
+            closeWriter();
+        } catch (IOException | RuntimeException e) {
+            closeWriter();
+            synchronized (this) {
+                failure = e instanceof RuntimeException runtime ? runtime
+                        : new ManagerSaveException("Ошибка записи журнала просмотров " + path, e);
+                if (thread == Thread.currentThread()) thread = null;
+                notifyAll();
+            }
+        }
+    }
+
+    private void write(int[] events, int count) throws IOException {
+        if (writer == null) {
+            if (records < 0) records = countRecords();
+            writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        for (int i = 0; i < count; i++) {
+            writer.write(Integer.toString(events[i]));
+            writer.newLine();
+        }
+        writer.flush();
+        records += count;
+        if (records > (long) COMPACTION_FACTOR * historyCapacity) {
+            compact();
+        }
+    }
+
+    /**
+     * Переписывает файл текущей историей, восстановленной из него же: запись ведёт только этот поток,
+     * так что файл в это время не меняется.
+     */
+    private void compact() throws IOException {
+        closeWriter();
+        int[] history = latestViews(readEvents());
+        Path tmp = Path.of(path + TMP_SUFFIX);
+        try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+            for (int id : history) {
+                out.write(Integer.toString(id));
+                out.newLine();
+            }
+        }
+        try {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        records = history.length;
+    }
+
+    private void closeWriter() {
+        if (writer == null) return;
+        try {
+            writer.close();
+        } catch (IOException ignored) {
+            // события уже сброшены после каждой пачки
+        }
+        writer = null;
+    }
+
+    private long countRecords() throws IOException {
+        try {
+            return readEvents().length;
+        } catch (NoSuchFileException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Читает события журнала. Запись считается целой, только если за ней есть перевод строки:
+     * хвост после последнего перевода строки — недописанная при сбое запись, он отбрасывается и
+     * обрезается в файле, чтобы следующее событие не склеилось с ним. Вызывается, когда файл никто не пишет.
+     *
+     * @throws NumberFormatException если повреждена одна из целых записей
+     */
+    private int[] readEvents() throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        int end = bytes.length;
+        while (end > 0 && bytes[end - 1] != '\n') end--;
+        if (end < bytes.length) {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.truncate(end);
+            }
+        }
+        int[] events = new int[64];
+        int n = 0;
+        for (String line : new String(bytes, 0, end, StandardCharsets.UTF_8).split("\n")) {
+            line = line.strip(); // перевод строки мог быть записан как \r\n
+            if (line.isEmpty()) continue;
+            if (n == events.length) events = Arrays.copyOf(events, n * 2);
+            events[n++] = Integer.parseInt(line);
+        }
+        return Arrays.copyOf(events, n);
+    }
+
+    /**
+     * Последние historyCapacity различных просмотров в порядке от давнего к свежему.
+     */
+    private int[] latestViews(int[] events) {
+        IntHashSet seen = new IntHashSet();
+        int[] newestFirst = new int[Math.min(historyCapacity, events.length)];
+        int n = 0;
+        for (int i = events.length - 1; i >= 0 && n < newestFirst.length; i--) {
+            int event = events[i];
+            int id = Math.abs(event);
+            if (!seen.add(id)) continue; // у задачи уже учтено более позднее событие
+            if (event > 0) newestFirst[n++] = id;
+        }
+        int[] history = new int[n];
+        for (int i = 0; i < n; i++) {
+            history[i] = newestFirst[n - 1 - i];
+        }
+        return history;
+    }
+}
@@ -0,0 +1,203 @@
+package managers;
+
+import exeptions.ManagerSaveException;
+import utils.TaskType;
+
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Отложенная запись изменений в журнал в отдельном потоке.<br>
+ * Мутации только отмечают идентификаторы изменённых сущностей; поток раз в интервал забирает
+ * накопленный набор и пишет по одной записи на сущность в её текущем состоянии, поэтому
+ * десять обновлений одной задачи за интервал превращаются в одну запись.
+ * Набор ограничен: если он заполнен, мутирующий поток ждёт, пока поток записи его не разгрузит.
+ */
+class WriteBehindPersister {
+    /**
+     * Источник записей журнала: по набору изменённых идентификаторов строит записи
+     * из текущего состояния менеджера. Вызывается под монитором менеджера.
+     */
+    interface RecordSource {
+        List<String> records(Map<Integer, TaskType> dirty, Set<TaskType> cleared);
+    }
+
+    private final Object managerMonitor;
+    private final RecordSource source;
+    private final MutationJournal journal;
+    private final Runnable afterWrite;
+    private final int capacity;
+    private final long intervalMillis;
+
+    // Всё ниже защищено монитором this
+    private Map<Integer, TaskType> dirty = new HashMap<>();
+    private final Set<TaskType> cleared = EnumSet.noneOf(TaskType.class);
+    private long requestedFlush;
+    private long completedFlush;
+    private boolean closed;
+    private Thread thread;
+    private RuntimeException failure;
+
+    /**
+     * @param managerMonitor монитор, под которым менеджер выполняет мутации
+     * @param source         построение записей из текущего состояния
+     * @param journal        журнал, в который пишутся записи
+     * @param afterWrite     действие после записи пачки (под монитором менеджера), например сжатие журнала
+     * @param capacity       максимальное число отмеченных сущностей до ожидания мутирующих потоков
+     * @param intervalMillis интервал сброса накопленных изменений
+     */
+    WriteBehindPersister(Object managerMonitor, RecordSource source, MutationJournal journal,
+                         Runnable afterWrite, int capacity, long intervalMillis) {
+        this.managerMonitor = managerMonitor;
+        this.source = source;
+        this.journal = journal;
+        this.afterWrite = afterWrite;
+        this.capacity = capacity;
+        this.intervalMillis = intervalMillis;
+    }
+
+    synchronized void markDirty(int id, TaskType type) {
+        ensureStarted();
+        dirty.put(id, type);
+        if (dirty.size() >= capacity) {
+            notifyAll(); // будим поток записи, не дожидаясь интервала
+        }
+    }
+
+    synchronized void markCleared(TaskType type) {
+        ensureStarted();
+        cleared.add(type);
+    }
+
+    /**
+     * Ждёт, пока в наборе изменений появится место. Вызывается до захвата монитора менеджера,
+     * иначе поток записи не сможет прочитать состояние и освободить место.
+     */
+    synchronized void awaitCapacity() {
+        while (dirty.size() >= capacity && !closed && failure == null) {
+            notifyAll();
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ManagerSaveException("Ожидание отложенной записи прервано", e);
+            }
+        }
+        throwIfFailed();
+    }
+
+    /**
+     * Барьер: возвращается, когда все изменения, отмеченные до вызова, записаны в журнал
+     * и сброшены на диск согласно режиму сохранности журнала.
+     */
+    synchronized void flush() {
+        if (thread == null) return;
+        long target = ++requestedFlush;
+        notifyAll();
+        while (completedFlush < target && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ManagerSaveException("Ожидание отложенной записи прервано", e);
+            }
+        }
+        throwIfFailed();
+    }
+
+    /**
+     * Сбрасывает накопленные изменения и останавливает поток записи.
+     */
+    void close() {
+        Thread persister;
+        synchronized (this) {
+            if (thread == null) return;
+            flush();
+            closed = true;
+            notifyAll();
+            persister = thread;
+            thread = null;
+        }
+        try {
+            persister.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void ensureStarted() {
+        throwIfFailed();
+        if (thread != null) return;
+        closed = false;
+        thread = new Thread(this::run, "write-behind-persister");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void throwIfFailed() {
+        if (failure != null) {
+            throw new ManagerSaveException("Ошибка отложенной записи в журнал", failure);
+        }
+    }
+
+    private void run() {
+        while (true) {
+            Map<Integer, TaskType> batch;
+            Set<TaskType> batchCleared;
+            long generation;
+            synchronized (this) {
+                long deadline = System.currentTimeMillis() + intervalMillis;
+                while (!closed && requestedFlush == completedFlush && dirty.size() < capacity) {
+                    long left = deadline - System.currentTimeMillis();
+                    if (left <= 0) break;
+                    try {
+                        wait(left);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed && dirty.isEmpty() && cleared.isEmpty()) {
+                    completedFlush = requestedFlush;
+                    notifyAll();
+                    return;
+                }
+                generation = requestedFlush;
+                batch = dirty;
+                dirty = new HashMap<>();
+                batchCleared = EnumSet.noneOf(TaskType.class);
+                batchCleared.addAll(cleared);
+                cleared.clear();
+                notifyAll(); // место в наборе освободилось
+            }
+            try {
+                if (!batch.isEmpty() || !batchCleared.isEmpty()) {
+                    List<String> records;
+                    synchronized (managerMonitor) {
+                        records = source.records(batch, batchCleared);
+                    }
+                    long seq = 0;
+                    for (String record : records) {
+                        seq = journal.append(record);
+                    }
+                    journal.awaitDurable(seq);
+                    synchronized (managerMonitor) {
+                        afterWrite.run();
+                    }
+                }
+            } catch (RuntimeException e) {
+                synchronized (this) {
+                    failure = e;
+                    notifyAll();
+                }
+                return;
+            }
+            synchronized (this) {
+                completedFlush = Math.max(completedFlush, generation);
+                notifyAll();
+            }
+        }
+    }
+}
@@ -1,41 +1,192 @@
 package model;
 
+import utils.IntHashSet;
+import utils.IntObjectMap;
 import utils.Status;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
 
 public class Epic extends Task {
-    private final List<Integer> subtaskIDs;
+    private IntHashSet subtaskIDs;
     private LocalDateTime endTime; //Дата и время окончания выполнения задачи
+    private transient Aggregates aggregates; //Счётчики по подзадачам, создаются при первом обращении
 
     public Epic(int id, String name, String description, Status status, LocalDateTime startTime, Duration duration) {
         super(id, name, description, status, startTime, duration);
-        this.subtaskIDs = new ArrayList<>();
+        this.subtaskIDs = new IntHashSet();
     }
 
     public Epic(String name, String description, Status status, Duration duration, LocalDateTime startTime) {
         this(0, name, description, status, startTime, duration);
     }
 
+    /**
+     * Неизменяемое представление ID подзадач. Для изменений — add/remove/clearSubtaskId(s).
+     */
     public List<Integer> getSubtaskIDs() {
+        return getSubtaskIdSet().asList();
+    }
+
+    /**
+     * ID подзадач без упаковки — для обхода внутри менеджеров.
+     */
+    public IntHashSet getSubtaskIdSet() {
+        if (subtaskIDs == null) { // Gson создаёт объекты без конструктора, а поле в JSON может отсутствовать
+            subtaskIDs = new IntHashSet();
+        }
         return subtaskIDs;
     }
 
     public void addSubtaskId(int subtaskId) {
-        subtaskIDs.add(subtaskId);
+        getSubtaskIdSet().add(subtaskId);
     }
 
     public void removeSubtaskId(int subtaskId) {
-        subtaskIDs.remove(Integer.valueOf(subtaskId));
+        getSubtaskIdSet().remove(subtaskId); // O(1): последний элемент переносится на место удалённого
     }
 
     public void clearSubtaskIds() {
-        subtaskIDs.clear();
+        getSubtaskIdSet().clear();
+    }
+
+    //region Инкрементальные агрегаты по подзадачам
+
+    /**
+     * Учитывает подзадачу в статусе и времени эпика за O(log k).
+     *
+     * @param subtask добавленная подзадача
+     * @return изменились ли статус или время эпика
+     */
+    public boolean onSubtaskAdded(Subtask subtask) {
+        aggregates().add(subtask);
+        return applyAggregates();
+    }
+
+    /**
+     * Исключает подзадачу из статуса и времени эпика за O(log k).
+     * Вычитается вклад, запомненный при учёте подзадачи с этим id, а не текущие поля объекта.
+     *
+     * @param subtask удалённая подзадача
+     * @return изменились ли статус или время эпика
+     */
+    public boolean onSubtaskRemoved(Subtask subtask) {
+        aggregates().remove(subtask);
+        return applyAggregates();
+    }
+
+    /**
+     * Заменяет вклад подзадачи с тем же id новым. Прежний вклад берётся из агрегатов, поэтому
+     * обновление работает и тогда, когда сохранённый объект подзадачи изменили на месте.
+     *
+     * @param updated новая версия подзадачи
+     * @return изменились ли статус или время эпика
+     */
+    public boolean onSubtaskUpdated(Subtask updated) {
+        aggregates().add(updated);
+        return applyAggregates();
+    }
+
+    /**
+     * Пересобирает агрегаты с нуля по переданным подзадачам.<br>
+     * Нужен после массовой загрузки и при замене объекта эпика.
+     *
+     * @param subtasks все подзадачи эпика
+     * @return изменились ли статус или время эпика
+     */
+    public boolean rebuildAggregates(Iterable<Subtask> subtasks) {
+        aggregates = new Aggregates();
+        for (Subtask s : subtasks) {
+            aggregates.add(s);
+        }
+        return applyAggregates();
+    }
+
+    private Aggregates aggregates() {
+        if (aggregates == null) { // Gson создаёт объекты без конструктора — поле может быть пустым
+            aggregates = new Aggregates();
+        }
+        return aggregates;
+    }
+
+    private boolean applyAggregates() {
+        Aggregates a = aggregates;
+        Status status = a.status();
+        LocalDateTime start = a.starts.isEmpty() ? null : a.starts.firstKey();
+        LocalDateTime end = a.ends.isEmpty() ? null : a.ends.lastKey();
+        boolean changed = status != getStatus()
+                || !Objects.equals(a.totalDuration, getDuration())
+                || !Objects.equals(start, getStartTime())
+                || !Objects.equals(end, endTime);
+        setStatus(status);
+        setDuration(a.totalDuration);
+        setStartTime(start);
+        this.endTime = end;
+        return changed;
+    }
+
+    /**
+     * Счётчики статусов, суммарная длительность и мультимножества начал и окончаний подзадач.<br>
+     * Вклад каждой подзадачи запоминается по её id: объект подзадачи могут изменить на месте,
+     * и тогда по его полям уже не вычесть то, что было учтено.
+     */
+    private static final class Aggregates {
+        private record Contribution(Status status, Duration duration, LocalDateTime start, LocalDateTime end) {
+        }
+
+        private final IntObjectMap<Contribution> byId = new IntObjectMap<>();
+        private int count;
+        private int newCount;
+        private int doneCount;
+        private Duration totalDuration = Duration.ZERO;
+        private final TreeMap<LocalDateTime, Integer> starts = new TreeMap<>();
+        private final TreeMap<LocalDateTime, Integer> ends = new TreeMap<>();
+
+        /**
+         * Учитывает подзадачу; если подзадача с этим id уже учтена, её прежний вклад заменяется.
+         */
+        void add(Subtask s) {
+            LocalDateTime start = s.getStartTime();
+            LocalDateTime end = start != null && s.getDuration() != null ? s.getEndTime() : null;
+            Contribution c = new Contribution(s.getStatus(), s.getDuration(), start, end);
+            Contribution previous = byId.put(s.getId(), c);
+            if (previous != null) subtract(previous);
+            count++;
+            if (c.status() == Status.NEW) newCount++;
+            if (c.status() == Status.DONE) doneCount++;
+            if (c.duration() != null) totalDuration = totalDuration.plus(c.duration());
+            if (c.start() != null) starts.merge(c.start(), 1, Integer::sum);
+            if (c.end() != null) ends.merge(c.end(), 1, Integer::sum);
+        }
+
+        void remove(Subtask s) {
+            Contribution previous = byId.remove(s.getId());
+            if (previous != null) subtract(previous);
+        }
+
+        private void subtract(Contribution c) {
+            count--;
+            if (c.status() == Status.NEW) newCount--;
+            if (c.status() == Status.DONE) doneCount--;
+            if (c.duration() != null) totalDuration = totalDuration.minus(c.duration());
+            if (c.start() != null) decrement(starts, c.start());
+            if (c.end() != null) decrement(ends, c.end());
+        }
+
+        Status status() {
+            if (count == 0 || newCount == count) return Status.NEW;
+            return doneCount == count ? Status.DONE : Status.IN_PROGRESS;
+        }
+
+        private static void decrement(Map<LocalDateTime, Integer> multiset, LocalDateTime key) {
+            multiset.computeIfPresent(key, (k, n) -> n == 1 ? null : n - 1);
+        }
     }
+    //endregion
 
     @Override
     public boolean equals(Object o) {
@@ -43,12 +194,12 @@ public class Epic extends Task {
         if (o == null || getClass() != o.getClass()) return false;
         if (!super.equals(o)) return false;
         Epic epic = (Epic) o;
-        return Objects.equals(subtaskIDs, epic.subtaskIDs);
+        return Objects.equals(getSubtaskIdSet(), epic.getSubtaskIdSet());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(super.hashCode(), subtaskIDs);
+        return Objects.hash(super.hashCode(), getSubtaskIdSet());
     }
 
     public LocalDateTime getEndTime() {
@@ -0,0 +1,61 @@
+package model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Страница результата постраничного обхода.<br>
+ * nextCursor — непрозрачный токен продолжения (null, если страница последняя).
+ * Курсор означает «после id N», поэтому он остаётся корректным при параллельных вставках
+ * (новые id всегда больше) и даже если сама задача N уже удалена.
+ *
+ * @param <T> тип элементов
+ */
+public class Page<T> {
+    private static final String CURSOR_PREFIX = "after:";
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Кодирует позицию «после id» в курсор.
+     */
+    public static String cursorAfter(int id) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Раскодирует курсор; для null возвращает позицию перед первым элементом.
+     *
+     * @throws IllegalArgumentException если курсор повреждён
+     */
+    public static int decodeCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return Integer.MIN_VALUE;
+        }
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!decoded.startsWith(CURSOR_PREFIX)) {
+                throw new IllegalArgumentException("Некорректный курсор: " + cursor);
+            }
+            return Integer.parseInt(decoded.substring(CURSOR_PREFIX.length()));
+        } catch (IllegalArgumentException e) { // сюда же попадает NumberFormatException
+            throw new IllegalArgumentException("Некорректный курсор: " + cursor, e);
+        }
+    }
+}
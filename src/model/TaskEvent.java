@@ -0,0 +1,79 @@
+package model;
+
+import utils.TaskType;
+
+/**
+ * Событие ленты изменений менеджера задач.<br>
+ * seq — монотонно возрастающий номер события в пределах менеджера: по разрыву в номерах
+ * подписчик понимает, что пропустил события. entity — копия сущности на момент события
+ * (у эпика без списка подзадач), для удаления — null.
+ */
+public final class TaskEvent {
+    public enum Kind {
+        CREATED,
+        UPDATED,
+        DELETED,
+        /**
+         * Статус или время эпика пересчитаны после изменения его подзадач.
+         */
+        DERIVED
+    }
+
+    private final long seq;
+    private final Kind kind;
+    private final TaskType type;
+    private final int id;
+    private final Task entity;
+
+    public TaskEvent(long seq, Kind kind, TaskType type, int id, Task entity) {
+        this.seq = seq;
+        this.kind = kind;
+        this.type = type;
+        this.id = id;
+        this.entity = entity;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public TaskType getType() {
+        return type;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public Task getEntity() {
+        return entity;
+    }
+
+    /**
+     * Копия сущности, которую менеджер больше не изменит.<br>
+     * Подзадачи эпика не копируются: иначе каждое изменение подзадачи стоило бы O(k) вместо O(1).
+     */
+    public static Task snapshotOf(Task task) {
+        if (task instanceof Epic epic) {
+            Epic copy = new Epic(epic.getId(), epic.getName(), epic.getDescription(), epic.getStatus(),
+                    epic.getStartTime(), epic.getDuration());
+            copy.setEndTime(epic.getEndTime());
+            return copy;
+        }
+        if (task instanceof Subtask subtask) {
+            return new Subtask(subtask.getId(), subtask.getName(), subtask.getDescription(), subtask.getStatus(),
+                    subtask.getStartTime(), subtask.getDuration(), subtask.getEpicId());
+        }
+        return new Task(task.getId(), task.getName(), task.getDescription(), task.getStatus(),
+                task.getStartTime(), task.getDuration());
+    }
+
+    @Override
+    public String toString() {
+        return "TaskEvent{seq=" + seq + ", kind=" + kind + ", type=" + type + ", id=" + id + '}';
+    }
+}
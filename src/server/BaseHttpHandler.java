@@ -2,12 +2,103 @@ package server;
 
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import utils.Status;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
 
 public abstract class BaseHttpHandler implements HttpHandler {
+    protected static final String SESSION_HEADER = "X-Session-Id";
+    protected static final int DEFAULT_PAGE_LIMIT = 100;
+    protected static final int MAX_PAGE_LIMIT = 1_000;
+
+    /**
+     * Разбирает строку запроса вида a=1&amp;b=2 в отображение параметров (значения декодируются).
+     */
+    protected Map<String, String> parseQuery(String query) {
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    /**
+     * Запрос страницы — если передан limit или cursor.
+     */
+    protected boolean isPageRequest(Map<String, String> params) {
+        return params.containsKey("limit") || params.containsKey("cursor");
+    }
+
+    /**
+     * Размер страницы из параметра limit: по умолчанию {@value #DEFAULT_PAGE_LIMIT},
+     * не больше {@value #MAX_PAGE_LIMIT}.
+     *
+     * @throws IllegalArgumentException если limit не число или не положителен
+     */
+    protected int pageLimit(Map<String, String> params) {
+        String raw = params.get("limit");
+        if (raw == null || raw.isEmpty()) {
+            return DEFAULT_PAGE_LIMIT;
+        }
+        int limit;
+        try {
+            limit = Integer.parseInt(raw);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректный limit: " + raw);
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit должен быть положительным: " + raw);
+        }
+        return Math.min(limit, MAX_PAGE_LIMIT);
+    }
+
+    /**
+     * Запрос с фильтром — если передан status или count.
+     */
+    protected boolean isFilterRequest(Map<String, String> params) {
+        return params.containsKey("status") || params.containsKey("count");
+    }
+
+    /**
+     * Статус из параметра status или null, если фильтра по статусу нет.
+     *
+     * @throws IllegalArgumentException если статус неизвестен
+     */
+    protected Status statusParam(Map<String, String> params) {
+        String raw = params.get("status");
+        return raw == null || raw.isEmpty() ? null : Status.statusFromString(raw);
+    }
+
+    /**
+     * Нужно вернуть только число записей — count=true.
+     */
+    protected boolean isCountRequest(Map<String, String> params) {
+        return Boolean.parseBoolean(params.get("count"));
+    }
+
+    protected String countJson(int count) {
+        return "{\"count\":" + count + "}";
+    }
+
+    /**
+     * Идентификатор сессии клиента из заголовка {@value #SESSION_HEADER} или null, если заголовка нет:
+     * просмотры и история такого запроса относятся к общей истории.
+     */
+    protected String sessionOf(HttpExchange exchange) {
+        String session = exchange.getRequestHeaders().getFirst(SESSION_HEADER);
+        return session == null || session.isBlank() ? null : session.trim();
+    }
 
     protected void sendText(HttpExchange exchange, String text, int statusCode) throws IOException {
         byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
@@ -18,6 +109,10 @@ public abstract class BaseHttpHandler implements HttpHandler {
         }
     }
 
+    protected void sendBadRequest(HttpExchange exchange, String message) throws IOException {
+        sendText(exchange, "{\\\"error\\\":\\\"" + message + "\\\"}", 400);
+    }
+
     protected void sendNotFound(HttpExchange exchange, String message) throws IOException {
         sendText(exchange, "{\\\"error\\\":\\\"" + message + "\\\"}", 404);
     }
@@ -0,0 +1,95 @@
+package server;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import com.sun.net.httpserver.HttpExchange;
+import exeptions.NotFoundException;
+import exeptions.ValidationException;
+import managers.TaskManager;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import utils.DurationAdapter;
+import utils.IntHashSet;
+import utils.IntHashSetAdapter;
+import utils.LocalDateTimeAdapter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class BatchHandler extends BaseHttpHandler {
+    private static final Type TASK_LIST = new TypeToken<List<Task>>() { }.getType();
+    private static final Type EPIC_LIST = new TypeToken<List<Epic>>() { }.getType();
+    private static final Type SUBTASK_LIST = new TypeToken<List<Subtask>>() { }.getType();
+
+    private final TaskManager manager;
+    private static final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+            .registerTypeAdapter(Duration.class, new DurationAdapter())
+            .registerTypeAdapter(IntHashSet.class, new IntHashSetAdapter())
+            .create();
+
+    public BatchHandler(TaskManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * POST /batch/tasks, /batch/epics или /batch/subtasks с JSON-массивом в теле.<br>
+     * Если у всех элементов id = 0, пакет добавляется, если у всех задан id — обновляется;
+     * смешанный пакет отклоняется. Пакет применяется целиком или не применяется вовсе.
+     * В ответ приходят id элементов пакета в том же порядке.
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            sendServerError(exchange, "Only POST supported");
+            return;
+        }
+        try {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            String path = exchange.getRequestURI().getPath();
+            List<? extends Task> applied;
+            if (path.endsWith("/tasks")) {
+                applied = apply(gson.fromJson(body, TASK_LIST), manager::addAllTasks, manager::updateAllTasks);
+            } else if (path.endsWith("/epics")) {
+                applied = apply(gson.fromJson(body, EPIC_LIST), manager::addAllEpics, manager::updateAllEpics);
+            } else if (path.endsWith("/subtasks")) {
+                applied = apply(gson.fromJson(body, SUBTASK_LIST), manager::addAllSubtasks, manager::updateAllSubtasks);
+            } else {
+                sendNotFound(exchange, "Неизвестный тип пакета: " + path);
+                return;
+            }
+            sendText(exchange, gson.toJson(applied.stream().map(Task::getId).toList()), 201);
+        } catch (ValidationException e) {
+            sendHasOverlaps(exchange, e.getMessage());
+        } catch (NotFoundException e) {
+            sendNotFound(exchange, e.getMessage());
+        } catch (IllegalArgumentException | JsonParseException e) {
+            sendBadRequest(exchange, e.getMessage());
+        } catch (Exception e) {
+            sendServerError(exchange, "Внутренняя ошибка:" + e.getMessage());
+        }
+    }
+
+    private static <T extends Task> List<T> apply(List<T> batch, Consumer<List<T>> add, Consumer<List<T>> update) {
+        if (batch == null || batch.isEmpty()) {
+            throw new IllegalArgumentException("Пустой пакет");
+        }
+        long fresh = batch.stream().filter(t -> t.getId() == 0).count();
+        if (fresh == batch.size()) {
+            add.accept(batch);
+        } else if (fresh == 0) {
+            update.accept(batch);
+        } else {
+            throw new IllegalArgumentException("Пакет должен содержать либо только новые, либо только существующие элементы");
+        }
+        return batch;
+    }
+}
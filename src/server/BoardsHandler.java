@@ -0,0 +1,107 @@
+package server;
+
+import com.google.gson.Gson;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import managers.BoardRegistry;
+import managers.TaskManager;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+public class BoardsHandler extends BaseHttpHandler {
+    private static final Map<String, Function<TaskManager, HttpHandler>> RESOURCES = Map.of(
+            "tasks", TasksHandler::new,
+            "subtasks", SubtasksHandler::new,
+            "epics", EpicsHandler::new,
+            "history", HistoryHandler::new,
+            "prioritized", PrioritizedHandler::new,
+            "search", SearchHandler::new,
+            "batch", BatchHandler::new,
+            "transaction", TransactionHandler::new);
+
+    private final BoardRegistry boards;
+    private final String fixedKey; // null — ключ доски берётся из пути
+    private final Map<String, Map<String, HttpHandler>> handlers = new ConcurrentHashMap<>();
+    private final Gson gson = new Gson();
+
+    public BoardsHandler(BoardRegistry boards) {
+        this(boards, null);
+    }
+
+    private BoardsHandler(BoardRegistry boards, String fixedKey) {
+        this.boards = boards;
+        this.fixedKey = fixedKey;
+    }
+
+    /**
+     * Обработчик путей без префикса (/tasks, /epics, ...), направляющий их к одной доске.
+     */
+    public static BoardsHandler forBoard(BoardRegistry boards, String key) {
+        return new BoardsHandler(boards, key);
+    }
+
+    /**
+     * Ресурсы, доступные у каждой доски.
+     */
+    public static Set<String> resources() {
+        return RESOURCES.keySet();
+    }
+
+    /**
+     * GET /boards — ключи досок;<br>
+     * /boards/{ключ}/{tasks|subtasks|epics|history|prioritized|search|batch|transaction}... —
+     * те же запросы, что и без префикса, но к менеджеру указанной доски.<br>
+     * Менеджеры досок потокобезопасны ({@link managers.ConcurrentTaskManager} или
+     * {@link managers.FileBackedTaskManager}), поэтому запросы не сериализуются целиком: чтение тела
+     * и запись ответа идут параллельно, а параллельные изменения доски с файлом попадают в один групповой коммит.
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        String[] parts = exchange.getRequestURI().getPath().split("/"); // "", "boards", ключ, ресурс, ...
+        try {
+            if (fixedKey != null) {
+                dispatch(exchange, fixedKey, parts.length > 1 ? parts[1] : "");
+                return;
+            }
+            if (parts.length <= 2) {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    sendServerError(exchange, "Only GET supported");
+                    return;
+                }
+                sendText(exchange, gson.toJson(boards.keys()), 200);
+                return;
+            }
+            if (parts.length == 3) {
+                sendNotFound(exchange, "Не указан ресурс доски " + parts[2]);
+                return;
+            }
+            dispatch(exchange, parts[2], parts[3]);
+        } catch (IllegalArgumentException e) {
+            sendBadRequest(exchange, e.getMessage());
+        } catch (Exception e) {
+            sendServerError(exchange, "Внутренняя ошибка:" + e.getMessage());
+        }
+    }
+
+    private void dispatch(HttpExchange exchange, String key, String resource) throws IOException {
+        TaskManager manager = boards.get(key);
+        HttpHandler handler = handlersOf(key, manager).get(resource);
+        if (handler == null) {
+            sendNotFound(exchange, "Неизвестный ресурс доски: " + resource);
+            return;
+        }
+        handler.handle(exchange);
+    }
+
+    private Map<String, HttpHandler> handlersOf(String key, TaskManager manager) {
+        return handlers.computeIfAbsent(key, k -> {
+            Map<String, HttpHandler> byResource = new ConcurrentHashMap<>();
+            RESOURCES.forEach((resource, factory) -> byResource.put(resource, factory.apply(manager)));
+            return byResource;
+        });
+    }
+}
@@ -7,9 +7,14 @@ import managers.TaskManager;
 import com.google.gson.Gson;
 import com.sun.net.httpserver.HttpExchange;
 import model.Epic;
+import model.Page;
 import exeptions.ValidationException;
 import utils.DurationAdapter;
+import utils.IntHashSet;
+import utils.IntHashSetAdapter;
 import utils.LocalDateTimeAdapter;
+import utils.Status;
+import utils.TaskType;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -18,12 +23,14 @@ import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 public class EpicsHandler extends BaseHttpHandler {
     private final TaskManager manager;
     private static final Gson gson = new GsonBuilder()
             .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
             .registerTypeAdapter(Duration.class, new DurationAdapter())
+            .registerTypeAdapter(IntHashSet.class, new IntHashSetAdapter())
             .create();
 
     public EpicsHandler(TaskManager manager) {
@@ -39,12 +46,27 @@ public class EpicsHandler extends BaseHttpHandler {
 
             switch (method) {
                 case "GET" -> {
+                    Map<String, String> params = parseQuery(query);
                     if (query == null) {
                         List<Epic> all = manager.getAllEpics();
                         sendText(exchange, gson.toJson(all), 200);
+                    } else if (isPageRequest(params)) {
+                        Page<Epic> page = manager.getEpicsPage(pageLimit(params), params.get("cursor"));
+                        sendText(exchange, gson.toJson(page), 200);
+                    } else if (isFilterRequest(params)) {
+                        Status status = statusParam(params);
+                        if (isCountRequest(params)) {
+                            int count = status == null
+                                    ? manager.countByType(TaskType.EPIC)
+                                    : manager.countByStatus(TaskType.EPIC, status);
+                            sendText(exchange, countJson(count), 200);
+                        } else {
+                            List<Epic> filtered = status == null ? manager.getAllEpics() : manager.getEpicsByStatus(status);
+                            sendText(exchange, gson.toJson(filtered), 200);
+                        }
                     } else {
                         int id = Integer.parseInt(query.split("=")[1]);
-                        Epic epic = manager.getEpicById(id);
+                        Epic epic = manager.getEpicById(id, sessionOf(exchange));
                         sendText(exchange, gson.toJson(epic), 200);
                     }
                 }
@@ -78,6 +100,8 @@ public class EpicsHandler extends BaseHttpHandler {
             sendNotFound(exchange, e.getMessage());
         } catch (NumberFormatException e) {
             sendNotFound(exchange, "Invalid id format");
+        } catch (IllegalArgumentException e) {
+            sendBadRequest(exchange, e.getMessage());
         } catch (Exception e) {
             sendServerError(exchange, "Internal error: " + e.getMessage());
         }
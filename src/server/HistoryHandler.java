@@ -6,6 +6,8 @@ import com.sun.net.httpserver.HttpExchange;
 import managers.TaskManager;
 import model.Task;
 import utils.DurationAdapter;
+import utils.IntHashSet;
+import utils.IntHashSetAdapter;
 import utils.LocalDateTimeAdapter;
 
 import java.io.IOException;
@@ -19,6 +21,7 @@ public class HistoryHandler extends BaseHttpHandler {
     private static final Gson gson = new GsonBuilder()
             .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
             .registerTypeAdapter(Duration.class, new DurationAdapter())
+            .registerTypeAdapter(IntHashSet.class, new IntHashSetAdapter())
             .create();
 
     public HistoryHandler(TaskManager manager) {
@@ -36,7 +39,11 @@ public class HistoryHandler extends BaseHttpHandler {
             sendServerError(exchange, "History endpoint does not accept query parameters");
             return;
         }
-        List<Task> history = manager.getFromHistory();
-        sendText(exchange, gson.toJson(history), 200);
+        try {
+            List<Task> history = manager.getFromHistory(sessionOf(exchange));
+            sendText(exchange, gson.toJson(history), 200);
+        } catch (IllegalArgumentException e) {
+            sendBadRequest(exchange, e.getMessage());
+        }
     }
 }
@@ -3,22 +3,31 @@ package server;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
+import managers.BoardRegistry;
+import managers.ConcurrentTaskManager;
+import managers.FileBackedTaskManager;
 import managers.TaskManager;
 import utils.Managers;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class HttpTaskServer {
     private static final int PORT = 8080;
+    public static final String DEFAULT_BOARD = "default";
     private final HttpServer server;
     private final TaskManager taskManager;
+    private ExecutorService executor;
 
     public HttpTaskServer() throws Exception {
         this.server = HttpServer.create(new InetSocketAddress(PORT), 0);
-        // берём реализацию менеджера
-        taskManager = Managers.getDefault();
+        // берём потокобезопасную реализацию менеджера и обрабатываем запросы пулом потоков
+        taskManager = Managers.getConcurrent();
+        executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        server.setExecutor(executor);
 
         // регистрируем обработчики, передавая экземпляр менеджера
         server.createContext("/tasks", new TasksHandler(taskManager));
@@ -26,29 +35,82 @@ public class HttpTaskServer {
         server.createContext("/epics", new EpicsHandler(taskManager));
         server.createContext("/history", new HistoryHandler(taskManager));
         server.createContext("/prioritized", new PrioritizedHandler(taskManager));
+        server.createContext("/search", new SearchHandler(taskManager));
+        server.createContext("/batch", new BatchHandler(taskManager));
+        server.createContext("/transaction", new TransactionHandler(taskManager));
 
         System.out.println("HTTP-сервер запущен на порту " + PORT);
     }
 
+    /**
+     * Сервер досок: запросы /boards/{ключ}/... идут к менеджеру доски, а пути без префикса —
+     * к доске {@value #DEFAULT_BOARD}. Запросы обрабатываются пулом потоков, поэтому
+     * независимые доски используют все ядра.
+     *
+     * @param boards реестр досок
+     */
+    public HttpTaskServer(BoardRegistry boards) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(PORT), 0);
+        taskManager = boards.get(DEFAULT_BOARD);
+        executor = Executors.newFixedThreadPool(poolSize(taskManager)); // все доски реестра одного типа
+        server.setExecutor(executor);
+
+        BoardsHandler defaultBoard = BoardsHandler.forBoard(boards, DEFAULT_BOARD);
+        for (String resource : BoardsHandler.resources()) {
+            server.createContext("/" + resource, defaultBoard);
+        }
+        server.createContext("/boards", new BoardsHandler(boards));
+
+        System.out.println("HTTP-сервер запущен на порту " + PORT);
+    }
+
+    /**
+     * Сервер поверх переданного менеджера. Потокобезопасные менеджеры ({@link ConcurrentTaskManager},
+     * {@link FileBackedTaskManager}) обслуживаются пулом потоков — только так параллельные запросы
+     * к менеджеру с файлом попадают в один групповой коммит; остальные — по одному запросу за раз.
+     */
     public HttpTaskServer(TaskManager manager) throws IOException {
         this.taskManager = manager;
         server = HttpServer.create(new InetSocketAddress(PORT), 0);
+        int threads = poolSize(manager);
+        if (threads > 1) {
+            executor = Executors.newFixedThreadPool(threads);
+            server.setExecutor(executor);
+        }
 
         server.createContext("/tasks", new TasksHandler(taskManager));
         server.createContext("/subtasks", new SubtasksHandler(taskManager));
         server.createContext("/epics", new EpicsHandler(taskManager));
         server.createContext("/history", new HistoryHandler(taskManager));
         server.createContext("/prioritized", new PrioritizedHandler(taskManager));
+        server.createContext("/search", new SearchHandler(taskManager));
+        server.createContext("/batch", new BatchHandler(taskManager));
+        server.createContext("/transaction", new TransactionHandler(taskManager));
 
         System.out.println("HTTP-сервер запущен на порту " + PORT);
     }
 
+    /**
+     * Размер пула для менеджера: 1 — менеджер не рассчитан на параллельные вызовы.
+     * Запросы к менеджеру с файлом большую часть времени ждут fsync, а не занимают ядро,
+     * поэтому для него потоков больше, чем ядер.
+     */
+    static int poolSize(TaskManager manager) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        if (manager instanceof FileBackedTaskManager) return Math.max(8, 2 * cores);
+        if (manager instanceof ConcurrentTaskManager) return cores;
+        return 1;
+    }
+
     public void start() {
         server.start();
     }
 
     public void stop() {
         server.stop(0);
+        if (executor != null) {
+            executor.shutdown();
+        }
     }
 
     public static void main(String[] args) {
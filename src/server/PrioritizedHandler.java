@@ -6,25 +6,35 @@ import com.sun.net.httpserver.HttpExchange;
 import managers.TaskManager;
 import model.Task;
 import utils.DurationAdapter;
+import utils.IntHashSet;
+import utils.IntHashSetAdapter;
 import utils.LocalDateTimeAdapter;
 
 import java.io.IOException;
 import java.net.URI;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Map;
 
 public class PrioritizedHandler extends BaseHttpHandler {
     private final TaskManager manager;
     private static final Gson gson = new GsonBuilder()
             .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
             .registerTypeAdapter(Duration.class, new DurationAdapter())
+            .registerTypeAdapter(IntHashSet.class, new IntHashSetAdapter())
             .create();
 
     public PrioritizedHandler(TaskManager manager) {
         this.manager = manager;
     }
 
+    /**
+     * GET без параметров — вся очередь; from и to — окно [from, to);
+     * after (и необязательный limit) — ближайшие задачи начиная с момента after.
+     * Время передаётся в формате ISO, например 2025-06-02T00:00.
+     */
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         if (!"GET".equals(exchange.getRequestMethod())) {
@@ -32,11 +42,29 @@ public class PrioritizedHandler extends BaseHttpHandler {
             return;
         }
         URI uri = exchange.getRequestURI();
-        if (uri.getQuery() != null) {
-            sendServerError(exchange, "Prioritized endpoint does not accept query parameters");
-            return;
+        try {
+            if (uri.getQuery() == null) {
+                List<Task> prioritized = manager.getPrioritizedTasks();
+                sendText(exchange, gson.toJson(prioritized), 200);
+                return;
+            }
+            Map<String, String> params = parseQuery(uri.getQuery());
+            if (params.containsKey("from") || params.containsKey("to")) {
+                List<Task> window = manager.getPrioritizedTasksBetween(
+                        parseTime(params.get("from")), parseTime(params.get("to")));
+                sendText(exchange, gson.toJson(window), 200);
+            } else if (params.containsKey("after")) {
+                List<Task> next = manager.getPrioritizedTasksAfter(parseTime(params.get("after")), pageLimit(params));
+                sendText(exchange, gson.toJson(next), 200);
+            } else {
+                sendServerError(exchange, "Prioritized endpoint accepts only from/to or after/limit");
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            sendBadRequest(exchange, e.getMessage());
         }
-        List<Task> prioritized = manager.getPrioritizedTasks();
-        sendText(exchange, gson.toJson(prioritized), 200);
+    }
+
+    private static LocalDateTime parseTime(String value) {
+        return value == null ? null : LocalDateTime.parse(value);
     }
 }
@@ -0,0 +1,57 @@
+package server;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.sun.net.httpserver.HttpExchange;
+import managers.TaskManager;
+import model.Task;
+import utils.DurationAdapter;
+import utils.IntHashSet;
+import utils.IntHashSetAdapter;
+import utils.LocalDateTimeAdapter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public class SearchHandler extends BaseHttpHandler {
+    private final TaskManager manager;
+    private static final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+            .registerTypeAdapter(Duration.class, new DurationAdapter())
+            .registerTypeAdapter(IntHashSet.class, new IntHashSetAdapter())
+            .create();
+
+    public SearchHandler(TaskManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * GET /search?q=слова[&amp;limit=N] — задачи, эпики и подзадачи, найденные по названию и описанию;
+     * GET /search/stats — размер полнотекстового индекса.
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            sendServerError(exchange, "Only GET supported");
+            return;
+        }
+        URI uri = exchange.getRequestURI();
+        try {
+            if (uri.getPath().endsWith("/stats")) {
+                sendText(exchange, gson.toJson(manager.getSearchIndexStats()), 200);
+                return;
+            }
+            Map<String, String> params = parseQuery(uri.getRawQuery());
+            List<Task> found = manager.search(params.get("q"), pageLimit(params));
+            sendText(exchange, gson.toJson(found), 200);
+        } catch (IllegalArgumentException e) {
+            sendBadRequest(exchange, e.getMessage());
+        } catch (Exception e) {
+            sendServerError(exchange, "Внутренняя ошибка:" + e.getMessage());
+        }
+    }
+}
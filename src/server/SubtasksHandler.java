@@ -6,9 +6,14 @@ import com.sun.net.httpserver.HttpExchange;
 import exeptions.NotFoundException;
 import managers.TaskManager;
 import model.Subtask;
+import model.Page;
 import exeptions.ValidationException;
 import utils.DurationAdapter;
+import utils.IntHashSet;
+import utils.IntHashSetAdapter;
 import utils.LocalDateTimeAdapter;
+import utils.Status;
+import utils.TaskType;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -17,12 +22,14 @@ import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 public class SubtasksHandler extends BaseHttpHandler {
     private final TaskManager manager;
     private static final Gson gson = new GsonBuilder()
             .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
             .registerTypeAdapter(Duration.class, new DurationAdapter())
+            .registerTypeAdapter(IntHashSet.class, new IntHashSetAdapter())
             .create();
 
     public SubtasksHandler(TaskManager manager) {
@@ -38,12 +45,27 @@ public class SubtasksHandler extends BaseHttpHandler {
 
             switch (method) {
                 case "GET" -> {
+                    Map<String, String> params = parseQuery(query);
                     if (query == null) {
                         List<Subtask> all = manager.getAllSubtasks();
                         sendText(exchange, gson.toJson(all), 200);
+                    } else if (isPageRequest(params)) {
+                        Page<Subtask> page = manager.getSubtasksPage(pageLimit(params), params.get("cursor"));
+                        sendText(exchange, gson.toJson(page), 200);
+                    } else if (isFilterRequest(params)) {
+                        Status status = statusParam(params);
+                        if (isCountRequest(params)) {
+                            int count = status == null
+                                    ? manager.countByType(TaskType.SUBTASK)
+                                    : manager.countByStatus(TaskType.SUBTASK, status);
+                            sendText(exchange, countJson(count), 200);
+                        } else {
+                            List<Subtask> filtered = status == null ? manager.getAllSubtasks() : manager.getSubtasksByStatus(status);
+                            sendText(exchange, gson.toJson(filtered), 200);
+                        }
                     } else {
                         int id = Integer.parseInt(query.split("=")[1]);
-                        Subtask sub = manager.getSubtaskById(id);
+                        Subtask sub = manager.getSubtaskById(id, sessionOf(exchange));
                         sendText(exchange, gson.toJson(sub), 200);
                     }
                 }
@@ -77,6 +99,8 @@ public class SubtasksHandler extends BaseHttpHandler {
             sendNotFound(exchange, e.getMessage());
         } catch (NumberFormatException e) {
             sendNotFound(exchange, "Неверный формат идентификатора");
+        } catch (IllegalArgumentException e) {
+            sendBadRequest(exchange, e.getMessage());
         } catch (Exception e) {
             sendServerError(exchange, "Внутренняя ошибка:" + e.getMessage());
         }
@@ -6,8 +6,13 @@ import com.sun.net.httpserver.HttpExchange;
 import exeptions.NotFoundException;
 import managers.TaskManager;
 import model.Task;
+import model.Page;
 import utils.DurationAdapter;
+import utils.IntHashSet;
+import utils.IntHashSetAdapter;
 import utils.LocalDateTimeAdapter;
+import utils.Status;
+import utils.TaskType;
 import exeptions.ValidationException;
 
 import java.io.IOException;
@@ -17,12 +22,14 @@ import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 public class TasksHandler extends BaseHttpHandler {
     private final TaskManager manager;
     private static final Gson gson = new GsonBuilder()
             .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
             .registerTypeAdapter(Duration.class, new DurationAdapter())
+            .registerTypeAdapter(IntHashSet.class, new IntHashSetAdapter())
             .create();
 
     public TasksHandler(TaskManager manager) {
@@ -38,13 +45,28 @@ public class TasksHandler extends BaseHttpHandler {
 
             switch (method) {
                 case "GET" -> {
+                    Map<String, String> params = parseQuery(query);
                     if (query == null) {
                         List<Task> all = manager.getAllTasks();
                         String json = gson.toJson(all);
                         sendText(exchange, json, 200);
+                    } else if (isPageRequest(params)) {
+                        Page<Task> page = manager.getTasksPage(pageLimit(params), params.get("cursor"));
+                        sendText(exchange, gson.toJson(page), 200);
+                    } else if (isFilterRequest(params)) {
+                        Status status = statusParam(params);
+                        if (isCountRequest(params)) {
+                            int count = status == null
+                                    ? manager.countByType(TaskType.TASK)
+                                    : manager.countByStatus(TaskType.TASK, status);
+                            sendText(exchange, countJson(count), 200);
+                        } else {
+                            List<Task> filtered = status == null ? manager.getAllTasks() : manager.getTasksByStatus(status);
+                            sendText(exchange, gson.toJson(filtered), 200);
+                        }
                     } else {
                         int id = Integer.parseInt(query.split("=")[1]);
-                        Task task = manager.getTaskById(id);
+                        Task task = manager.getTaskById(id, sessionOf(exchange));
                         sendText(exchange, gson.toJson(task), 200);
 
                     }
@@ -81,6 +103,8 @@ public class TasksHandler extends BaseHttpHandler {
             sendNotFound(exchange, e.getMessage());
         } catch (NumberFormatException e) {
             sendNotFound(exchange, "Неверный формат идентификатора задачи");
+        } catch (IllegalArgumentException e) {
+            sendBadRequest(exchange, e.getMessage());
         } catch (Exception e) {
             sendServerError(exchange, "Внутренняя ошибка:" + e.getMessage());
         }
@@ -0,0 +1,123 @@
+package server;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.sun.net.httpserver.HttpExchange;
+import exeptions.NotFoundException;
+import exeptions.ValidationException;
+import managers.TaskManager;
+import managers.Transaction;
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import utils.DurationAdapter;
+import utils.IntHashSet;
+import utils.IntHashSetAdapter;
+import utils.LocalDateTimeAdapter;
+import utils.TaskType;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+public class TransactionHandler extends BaseHttpHandler {
+    private final TaskManager manager;
+    private static final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+            .registerTypeAdapter(Duration.class, new DurationAdapter())
+            .registerTypeAdapter(IntHashSet.class, new IntHashSetAdapter())
+            .create();
+
+    public TransactionHandler(TaskManager manager) {
+        this.manager = manager;
+    }
+
+    /**
+     * POST /transaction с JSON-массивом операций, например<br>
+     * {@code [{"op":"update","type":"SUBTASK","entity":{...}}, {"op":"remove","type":"TASK","id":3}]}.<br>
+     * Операции add и update передают сущность в entity, remove — id. Применяется всё или ничего;
+     * в ответ приходят id сущностей в порядке операций.
+     */
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            sendServerError(exchange, "Only POST supported");
+            return;
+        }
+        try {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            Transaction tx = manager.beginTransaction();
+            List<Supplier<Integer>> ids = new ArrayList<>(); // id новых сущностей известны только после commit
+            for (JsonElement element : JsonParser.parseString(body).getAsJsonArray()) {
+                JsonObject op = element.getAsJsonObject();
+                TaskType type = TaskType.taskTypeFromString(required(op, "type").getAsString());
+                String kind = required(op, "op").getAsString().toLowerCase();
+                if (kind.equals("remove")) {
+                    int id = required(op, "id").getAsInt();
+                    stageRemove(tx, type, id);
+                    ids.add(() -> id);
+                } else if (kind.equals("add") || kind.equals("update")) {
+                    Task task = stage(tx, type, kind.equals("add"), required(op, "entity"));
+                    ids.add(task::getId);
+                } else {
+                    throw new IllegalArgumentException("Неизвестная операция транзакции: " + kind);
+                }
+            }
+            tx.commit();
+            sendText(exchange, gson.toJson(ids.stream().map(Supplier::get).toList()), 200);
+        } catch (ValidationException e) {
+            sendHasOverlaps(exchange, e.getMessage());
+        } catch (NotFoundException e) {
+            sendNotFound(exchange, e.getMessage());
+        } catch (IllegalArgumentException | IllegalStateException | JsonParseException e) {
+            // IllegalStateException бросает Gson, если поле операции не того типа
+            sendBadRequest(exchange, "Некорректная транзакция: " + e.getMessage());
+        } catch (Exception e) {
+            sendServerError(exchange, "Внутренняя ошибка:" + e.getMessage());
+        }
+    }
+
+    private static JsonElement required(JsonObject op, String field) {
+        JsonElement value = op.get(field);
+        if (value == null || value.isJsonNull()) {
+            throw new IllegalArgumentException("В операции нет поля " + field);
+        }
+        return value;
+    }
+
+    private static Task stage(Transaction tx, TaskType type, boolean add, JsonElement json) {
+        switch (type) {
+            case TASK -> {
+                Task task = gson.fromJson(json, Task.class);
+                if (add) tx.addTask(task); else tx.updateTask(task);
+                return task;
+            }
+            case EPIC -> {
+                Epic epic = gson.fromJson(json, Epic.class);
+                if (add) tx.addEpic(epic); else tx.updateEpic(epic);
+                return epic;
+            }
+            default -> {
+                Subtask subtask = gson.fromJson(json, Subtask.class);
+                if (add) tx.addSubtask(subtask); else tx.updateSubtask(subtask);
+                return subtask;
+            }
+        }
+    }
+
+    private static void stageRemove(Transaction tx, TaskType type, int id) {
+        switch (type) {
+            case TASK -> tx.removeTask(id);
+            case EPIC -> tx.removeEpic(id);
+            case SUBTASK -> tx.removeSubtask(id);
+        }
+    }
+}
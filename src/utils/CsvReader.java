@@ -0,0 +1,253 @@
+package utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Потоковый разбор CSV по RFC 4180.<br>
+ * Читает исходный поток в буфер символов и разбирает поля по одному, без {@code split} и
+ * промежуточных массивов строк. Поля в кавычках могут содержать запятые, переводы строк
+ * и удвоенные кавычки. Числа, перечисления и дата-время разбираются прямо из буфера поля,
+ * строка создаётся только для текстовых полей.
+ */
+public final class CsvReader implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Reader in;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder field = new StringBuilder();
+    private int pos;
+    private int limit;
+    private boolean endOfRecord = true;
+    private boolean terminated = true;
+    private long record;
+
+    public CsvReader(Reader in) {
+        this.in = in;
+    }
+
+    /**
+     * Переходит к следующей записи, пропуская непрочитанные поля текущей и пустые строки.
+     *
+     * @return false, если записей больше нет
+     */
+    public boolean nextRecord() throws IOException {
+        skipRecord();
+        int c;
+        while ((c = peek()) == '\n' || c == '\r') {
+            pos++;
+        }
+        if (c == -1) return false;
+        endOfRecord = false;
+        record++;
+        return true;
+    }
+
+    /**
+     * @return номер текущей записи, начиная с 1 — для сообщений об ошибках
+     */
+    public long recordNumber() {
+        return record;
+    }
+
+    /**
+     * @return true, если в текущей записи остались непрочитанные поля
+     */
+    public boolean hasField() {
+        return !endOfRecord;
+    }
+
+    /**
+     * Отличает целую последнюю запись от оборванной: у дописанной до конца записи есть перевод строки.
+     *
+     * @return true, если текущая запись дочитана и закончилась переводом строки, а не концом ввода
+     */
+    public boolean recordTerminated() {
+        return endOfRecord && terminated;
+    }
+
+    /**
+     * Пропускает оставшиеся поля текущей записи.
+     */
+    public void skipRecord() throws IOException {
+        while (!endOfRecord) {
+            readField();
+        }
+    }
+
+    public String readString() throws IOException {
+        readField();
+        return field.toString();
+    }
+
+    public int readInt() throws IOException {
+        long value = readLong();
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw error("Число вне диапазона int");
+        }
+        return (int) value;
+    }
+
+    public long readLong() throws IOException {
+        readField();
+        return parseLong(0, field.length());
+    }
+
+    /**
+     * Читает поле как константу перечисления без учёта регистра.
+     *
+     * @param values все значения перечисления
+     * @return найденная константа
+     */
+    public <E extends Enum<E>> E readEnum(E[] values) throws IOException {
+        readField();
+        for (E value : values) {
+            if (equalsIgnoreCase(value.name())) return value;
+        }
+        throw error("Неизвестное значение: " + field);
+    }
+
+    /**
+     * Читает дату-время в формате ISO ({@code yyyy-MM-ddTHH:mm[:ss[.nnnnnnnnn]]}).
+     * Пустое поле и {@code null} означают отсутствие значения.
+     *
+     * @return дата-время или null
+     */
+    public LocalDateTime readDateTime() throws IOException {
+        readField();
+        int length = field.length();
+        if (length == 0 || equalsIgnoreCase("null")) return null;
+        if (length < 16 || field.charAt(4) != '-' || field.charAt(7) != '-' || field.charAt(10) != 'T'
+                || field.charAt(13) != ':') {
+            return parseDateTimeSlow();
+        }
+        int year = (int) parseLong(0, 4);
+        int month = (int) parseLong(5, 7);
+        int day = (int) parseLong(8, 10);
+        int hour = (int) parseLong(11, 13);
+        int minute = (int) parseLong(14, 16);
+        int second = 0;
+        int nano = 0;
+        if (length > 16) {
+            if (length < 19 || field.charAt(16) != ':') return parseDateTimeSlow();
+            second = (int) parseLong(17, 19);
+            if (length > 19) {
+                if (field.charAt(19) != '.' || length > 29) return parseDateTimeSlow();
+                nano = (int) parseLong(20, length);
+                for (int i = length - 20; i < 9; i++) {
+                    nano *= 10; // дробная часть может быть короче 9 знаков
+                }
+            }
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+    }
+
+    private LocalDateTime parseDateTimeSlow() {
+        try {
+            return LocalDateTime.parse(field);
+        } catch (DateTimeParseException e) {
+            throw error("Неверный формат даты: " + field);
+        }
+    }
+
+    /**
+     * Читает очередное поле в общий буфер {@link #field}, снимая кавычки.
+     */
+    private void readField() throws IOException {
+        if (endOfRecord) {
+            throw error("Недостаточно полей в записи");
+        }
+        field.setLength(0);
+        int c = next();
+        if (c == '"') {
+            while (true) {
+                c = next();
+                if (c == -1) throw error("Незакрытая кавычка");
+                if (c == '"') {
+                    if (peek() != '"') break;
+                    pos++; // удвоенная кавычка внутри поля
+                }
+                field.append((char) c);
+            }
+            c = next();
+            if (c != ',' && c != '\n' && c != '\r' && c != -1) {
+                throw error("Лишние символы после закрывающей кавычки");
+            }
+        } else {
+            int start = pos - 1;
+            // быстрый путь: поле целиком в буфере, копируем его одним вызовом
+            while (c != ',' && c != '\n' && c != '\r' && c != -1) {
+                if (pos == limit) {
+                    field.append(buffer, start, pos - start);
+                    c = next();
+                    start = pos - 1;
+                    continue;
+                }
+                c = buffer[pos++];
+            }
+            if (c != -1) {
+                field.append(buffer, start, pos - 1 - start); // на конце файла хвост уже скопирован
+            }
+        }
+        if (c == ',') return;
+        if (c == '\r' && peek() == '\n') pos++;
+        terminated = c != -1;
+        endOfRecord = true;
+    }
+
+    private long parseLong(int from, int to) {
+        if (from >= to) throw error("Пустое числовое поле");
+        boolean negative = field.charAt(from) == '-';
+        int i = negative ? from + 1 : from;
+        if (i == to) throw error("Неверное число: " + field);
+        long value = 0;
+        for (; i < to; i++) {
+            char ch = field.charAt(i);
+            if (ch < '0' || ch > '9') throw error("Неверное число: " + field);
+            value = value * 10 + (ch - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private boolean equalsIgnoreCase(String s) {
+        if (s.length() != field.length()) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (Character.toUpperCase(s.charAt(i)) != Character.toUpperCase(field.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private int next() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        return buffer[pos++];
+    }
+
+    private int peek() throws IOException {
+        if (pos == limit && !fill()) return -1;
+        return buffer[pos];
+    }
+
+    private boolean fill() throws IOException {
+        int n = in.read(buffer, 0, buffer.length);
+        if (n <= 0) {
+            pos = 0;
+            limit = 0;
+            return false;
+        }
+        pos = 0;
+        limit = n;
+        return true;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " (запись " + record + ")");
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,42 @@
+package utils;
+
+/**
+ * Запись полей CSV по RFC 4180: поле берётся в кавычки, только если содержит
+ * запятую, кавычку или перевод строки; кавычки внутри поля удваиваются.
+ */
+public final class CsvWriter {
+    private CsvWriter() {
+        // Приватный конструктор для предотвращения создания экземпляров
+    }
+
+    /**
+     * Дописывает значение поля в строку записи.
+     *
+     * @param out   строка записи
+     * @param value значение поля; null записывается как {@code null}, как и раньше
+     * @return та же строка записи
+     */
+    public static StringBuilder appendField(StringBuilder out, String value) {
+        if (value == null) {
+            return out.append("null");
+        }
+        if (!needsQuotes(value)) {
+            return out.append(value);
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') out.append('"');
+            out.append(c);
+        }
+        return out.append('"');
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') return true;
+        }
+        return false;
+    }
+}
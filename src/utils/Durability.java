@@ -0,0 +1,13 @@
+package utils;
+
+/**
+ * Гарантия сохранности записей FileBackedTaskManager при сбое.
+ */
+public enum Durability {
+    // Данные остаются в буферах ОС, fsync не вызывается
+    NONE,
+    // Один fsync покрывает все записи, накопленные за окно группового коммита
+    GROUP_COMMIT,
+    // fsync после каждой мутации
+    PER_WRITE
+}
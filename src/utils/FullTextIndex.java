@@ -0,0 +1,179 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Инвертированный индекс «слово → множество id» по названию и описанию задач.<br>
+ * Слова — непрерывные последовательности букв и цифр в нижнем регистре. Каждое слово запроса
+ * ищется как префикс: «раз» найдёт «разработка». Все слова запроса должны встретиться в задаче.<br>
+ * Для каждого id хранятся его слова, поэтому переиндексация не требует прежней версии задачи.
+ */
+public final class FullTextIndex {
+    private final TreeMap<String, IntHashSet> postings = new TreeMap<>();
+    private final IntObjectMap<String[]> termsOf = new IntObjectMap<>();
+    private long postingCount;
+
+    /**
+     * Индексирует текст под указанным id, заменяя прежние слова этого id.
+     */
+    public void put(int id, String... texts) {
+        remove(id);
+        List<String> tokens = new ArrayList<>();
+        for (String text : texts) {
+            tokenize(text, tokens);
+        }
+        if (tokens.isEmpty()) return;
+        String[] terms = new String[tokens.size()];
+        int n = 0;
+        for (String token : tokens) {
+            String term = postings.floorKey(token);
+            IntHashSet ids;
+            if (token.equals(term)) {
+                ids = postings.get(term); // берём уже хранящуюся строку, чтобы не дублировать её у каждого id
+            } else {
+                term = token;
+                ids = new IntHashSet(1);
+                postings.put(term, ids);
+            }
+            if (ids.add(id)) {
+                terms[n++] = term;
+                postingCount++;
+            }
+        }
+        termsOf.put(id, n == terms.length ? terms : Arrays.copyOf(terms, n));
+    }
+
+    public void remove(int id) {
+        String[] terms = termsOf.remove(id);
+        if (terms == null) return;
+        for (String term : terms) {
+            IntHashSet ids = postings.get(term);
+            ids.remove(id);
+            postingCount--;
+            if (ids.isEmpty()) postings.remove(term);
+        }
+    }
+
+    public void clear() {
+        postings.clear();
+        termsOf.clear();
+        postingCount = 0;
+    }
+
+    /**
+     * Не более limit id, в которых каждое слово запроса встречается как префикс слова задачи.<br>
+     * Перебираются только кандидаты самого редкого слова запроса, остальные слова проверяются
+     * по словам кандидата, поэтому стоимость — O(log T + k·m), где k — число кандидатов, а не всех задач.
+     *
+     * @throws IllegalArgumentException если в запросе нет ни одного слова или limit не положителен
+     */
+    public int[] search(String query, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit должен быть положительным: " + limit);
+        }
+        List<String> tokens = new ArrayList<>();
+        tokenize(query, tokens);
+        if (tokens.isEmpty()) {
+            throw new IllegalArgumentException("Пустой поисковый запрос");
+        }
+        String driver = tokens.get(0);
+        Collection<IntHashSet> driverSets = withPrefix(driver).values();
+        if (driverSets.isEmpty()) return new int[0];
+        // для запроса из одного слова сравнивать не с чем — не тратим время на подсчёт размеров
+        long driverSize = tokens.size() == 1 ? Long.MAX_VALUE : totalSize(driverSets, Long.MAX_VALUE);
+        for (int t = 1; t < tokens.size(); t++) {
+            String token = tokens.get(t);
+            Collection<IntHashSet> sets = withPrefix(token).values();
+            long size = totalSize(sets, driverSize);
+            if (size == 0) return new int[0];
+            if (size < driverSize) {
+                driver = token;
+                driverSets = sets;
+                driverSize = size;
+            }
+        }
+
+        int capacity = (int) Math.min(limit, driverSize);
+        IntHashSet found = new IntHashSet(capacity); // у задачи может быть несколько слов с одним префиксом
+        for (IntHashSet ids : driverSets) {
+            for (int i = 0; i < ids.size() && found.size() < capacity; i++) {
+                int id = ids.get(i);
+                if (!found.contains(id) && matchesAll(termsOf.get(id), tokens, driver)) found.add(id);
+            }
+            if (found.size() == capacity) break;
+        }
+        return found.toArray();
+    }
+
+    public Stats stats() {
+        long chars = 0;
+        for (String term : postings.keySet()) chars += term.length();
+        int terms = postings.size();
+        // Оценка: строка (заголовок + массив байт) и узел TreeMap на слово, IntHashSet с индексом позиций
+        // на непустой список, по ~16 байт на вхождение и массив слов на каждую задачу
+        long bytes = terms * (40L + 48 + 88) + chars
+                + postingCount * 16
+                + (long) termsOf.size() * (16 + 24) + postingCount * 4;
+        return new Stats(terms, termsOf.size(), postingCount, bytes);
+    }
+
+    /**
+     * Объём индекса: число слов, проиндексированных задач, пар «слово–задача» и приблизительный размер в байтах.
+     */
+    public record Stats(int terms, int documents, long postings, long approxBytes) {
+    }
+
+    private NavigableMap<String, IntHashSet> withPrefix(String prefix) {
+        return postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * Суммарный размер множеств; счёт прекращается, как только сумма достигла bound.
+     */
+    private static long totalSize(Collection<IntHashSet> sets, long bound) {
+        long size = 0;
+        for (IntHashSet ids : sets) {
+            size += ids.size();
+            if (size >= bound) break;
+        }
+        return size;
+    }
+
+    private static boolean matchesAll(String[] terms, List<String> tokens, String driver) {
+        for (String token : tokens) {
+            if (token.equals(driver)) continue;
+            boolean found = false;
+            for (String term : terms) {
+                if (term.startsWith(token)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Делит текст на слова из букв и цифр и добавляет их в нижнем регистре в out.
+     */
+    static void tokenize(String text, List<String> out) {
+        if (text == null) return;
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                out.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+    }
+}
@@ -2,24 +2,45 @@ package utils;
 
 import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Счётчик идентификаторов.<br>
+ * Статические методы работают с общим счётчиком JVM, которым по умолчанию пользуются все менеджеры.
+ * Менеджеры независимых досок получают собственный экземпляр, чтобы у каждой доски было своё
+ * пространство id и доски не соперничали за один счётчик.
+ */
 public final class IdGenerator {
-    private static final AtomicInteger nextId = new AtomicInteger(1);
+    private static final IdGenerator SHARED = new IdGenerator();
 
-    private IdGenerator() {
-    //Приватный конструктор для предотвращения создания экземпляров
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    public static IdGenerator shared() {
+        return SHARED;
     }
 
     public static int generateId() {
-        return nextId.getAndIncrement();
+        return SHARED.next();
     }
 
     public static void updateMaxId(int maxId) {
-        if (maxId >= nextId.get()) {
-            nextId.set(maxId + 1);
-        }
+        SHARED.ensureAbove(maxId);
     }
 
     public static void reset() {
+        SHARED.restart();
+    }
+
+    public int next() {
+        return nextId.getAndIncrement();
+    }
+
+    /**
+     * Сдвигает счётчик так, чтобы следующий id был больше maxId, например после загрузки из файла.
+     */
+    public void ensureAbove(int maxId) {
+        nextId.accumulateAndGet(maxId + 1, Math::max);
+    }
+
+    public void restart() {
         nextId.set(1);
     }
 }
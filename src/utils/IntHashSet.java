@@ -0,0 +1,140 @@
+package utils;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Множество int без упаковки: плотный массив элементов плюс индекс «значение → позиция».<br>
+ * add, remove и contains — O(1); удаление переносит последний элемент на место удалённого,
+ * поэтому порядок обхода — порядок добавления до первого удаления.
+ */
+public final class IntHashSet {
+    private int[] items;
+    private int size;
+    private final IntIntMap positions;
+
+    public IntHashSet() {
+        this(4);
+    }
+
+    public IntHashSet(int expectedSize) {
+        this.items = new int[Math.max(expectedSize, 1)];
+        this.positions = new IntIntMap(expectedSize);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(int value) {
+        return positions.containsKey(value);
+    }
+
+    /**
+     * @return true, если элемента ещё не было
+     */
+    public boolean add(int value) {
+        if (positions.containsKey(value)) return false;
+        if (size == items.length) {
+            items = Arrays.copyOf(items, items.length * 2);
+        }
+        positions.put(value, size);
+        items[size++] = value;
+        return true;
+    }
+
+    public void addAll(IntHashSet other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.items[i]);
+        }
+    }
+
+    /**
+     * @return true, если элемент был в множестве
+     */
+    public boolean remove(int value) {
+        int pos = positions.remove(value, -1);
+        if (pos < 0) return false;
+        int last = items[--size];
+        if (pos != size) {
+            items[pos] = last;
+            positions.put(last, pos);
+        }
+        return true;
+    }
+
+    public void clear() {
+        size = 0;
+        positions.clear();
+    }
+
+    /**
+     * Элемент на позиции index в текущем порядке обхода.
+     */
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Индекс " + index + " вне диапазона 0.." + (size - 1));
+        }
+        return items[index];
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            action.accept(items[i]);
+        }
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(items, size);
+    }
+
+    /**
+     * Неизменяемое представление в виде списка (элементы упаковываются при чтении).
+     */
+    public List<Integer> asList() {
+        return new AbstractList<>() {
+            @Override
+            public Integer get(int index) {
+                return IntHashSet.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Сравнение как множеств — порядок элементов не учитывается.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof IntHashSet other) || other.size != size) return false;
+        for (int i = 0; i < size; i++) {
+            if (!other.contains(items[i])) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = 0;
+        for (int i = 0; i < size; i++) {
+            h += items[i];
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+}
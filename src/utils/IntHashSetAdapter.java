@@ -0,0 +1,26 @@
+package utils;
+
+import com.google.gson.*;
+
+import java.lang.reflect.Type;
+
+public class IntHashSetAdapter implements JsonSerializer<IntHashSet>, JsonDeserializer<IntHashSet> {
+    @Override
+    public JsonElement serialize(IntHashSet src, Type typeOfSrc, JsonSerializationContext context) {
+        // Пишем обычным JSON-массивом чисел, как раньше писался List<Integer>
+        JsonArray array = new JsonArray(src.size());
+        src.forEach(array::add);
+        return array;
+    }
+
+    @Override
+    public IntHashSet deserialize(JsonElement json, Type typeOfT, JsonDeserializationContext context)
+            throws JsonParseException {
+        JsonArray array = json.getAsJsonArray();
+        IntHashSet set = new IntHashSet(array.size());
+        for (JsonElement element : array) {
+            set.add(element.getAsInt());
+        }
+        return set;
+    }
+}
@@ -1,5 +1,8 @@
 package utils;
 
+import managers.ArrayHistoryManager;
+import managers.ConcurrentHistoryManager;
+import managers.ConcurrentTaskManager;
 import managers.HistoryManager;
 import managers.InMemoryHistoryManager;
 import managers.InMemoryTaskManager;
@@ -14,7 +17,35 @@ public final class Managers {
         return new InMemoryTaskManager();
     }
 
+    /**
+     * Потокобезопасный менеджер для многопоточного HTTP-сервера.
+     */
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager();
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
+
+    /**
+     * История, хранящая не больше capacity последних просмотренных задач.
+     */
+    public static HistoryManager getDefaultHistory(int capacity) {
+        return new InMemoryHistoryManager(capacity);
+    }
+
+    /**
+     * История на заранее выделенных массивах: запись просмотра не выделяет память.
+     */
+    public static HistoryManager getArrayHistory(int capacity) {
+        return new ArrayHistoryManager(capacity);
+    }
+
+    /**
+     * Потокобезопасная история: просмотры из разных потоков записываются без общей блокировки.
+     */
+    public static HistoryManager getConcurrentHistory(int capacity) {
+        return new ConcurrentHistoryManager(capacity);
+    }
 }
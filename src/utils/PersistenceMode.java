@@ -0,0 +1,13 @@
+package utils;
+
+/**
+ * Режим сохранения состояния FileBackedTaskManager на диск.
+ */
+public enum PersistenceMode {
+    // Полная перезапись CSV-файла после каждой мутации
+    SNAPSHOT,
+    // Дозапись одной записи в журнал мутаций, снимок пишется только явно
+    JOURNAL,
+    // Журнал пишется отдельным потоком: изменения копятся и объединяются по идентификатору
+    WRITE_BEHIND
+}
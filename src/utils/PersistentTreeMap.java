@@ -0,0 +1,263 @@
+package utils;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Неизменяемое упорядоченное отображение на AVL-дереве с копированием пути.<br>
+ * put и remove возвращают новую версию за O(log n), разделяя с прежней все нетронутые узлы,
+ * поэтому старые версии остаются валидными снимками и читаются без блокировок.<br>
+ * Узлы хранят размер поддерева: доступ по позиции в порядке ключей — тоже O(log n).
+ *
+ * @param <K> тип ключа
+ * @param <V> тип значения
+ */
+public final class PersistentTreeMap<K, V> {
+    private final Comparator<? super K> comparator;
+    private final Node<K, V> root;
+
+    private PersistentTreeMap(Comparator<? super K> comparator, Node<K, V> root) {
+        this.comparator = comparator;
+        this.root = root;
+    }
+
+    public static <K, V> PersistentTreeMap<K, V> empty(Comparator<? super K> comparator) {
+        return new PersistentTreeMap<>(comparator, null);
+    }
+
+    /**
+     * Строит сбалансированное дерево из уже отсортированных по comparator ключей за O(n).
+     *
+     * @param comparator порядок ключей
+     * @param keys       ключи по возрастанию, без повторов
+     * @param values     значения в том же порядке
+     */
+    public static <K, V> PersistentTreeMap<K, V> fromSorted(Comparator<? super K> comparator,
+                                                            List<? extends K> keys, List<? extends V> values) {
+        if (keys.size() != values.size()) {
+            throw new IllegalArgumentException("Количество ключей и значений не совпадает");
+        }
+        return new PersistentTreeMap<>(comparator, build(keys, values, 0, keys.size()));
+    }
+
+    private static <K, V> Node<K, V> build(List<? extends K> keys, List<? extends V> values, int from, int to) {
+        if (from >= to) return null;
+        int mid = (from + to) >>> 1;
+        return new Node<>(keys.get(mid), values.get(mid), build(keys, values, from, mid), build(keys, values, mid + 1, to));
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public V get(K key) {
+        Node<K, V> n = root;
+        while (n != null) {
+            int c = comparator.compare(key, n.key);
+            if (c == 0) return n.value;
+            n = c < 0 ? n.left : n.right;
+        }
+        return null;
+    }
+
+    /**
+     * Значение на позиции index в порядке возрастания ключей.
+     */
+    public V valueAt(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Индекс " + index + " вне диапазона 0.." + (size() - 1));
+        }
+        Node<K, V> n = root;
+        while (true) {
+            int leftSize = size(n.left);
+            if (index < leftSize) {
+                n = n.left;
+            } else if (index == leftSize) {
+                return n.value;
+            } else {
+                index -= leftSize + 1;
+                n = n.right;
+            }
+        }
+    }
+
+    /**
+     * Количество ключей, строго меньших key — позиция, с которой key стоял бы в порядке обхода.
+     */
+    public int rank(K key) {
+        int rank = 0;
+        Node<K, V> n = root;
+        while (n != null) {
+            int c = comparator.compare(key, n.key);
+            if (c <= 0) {
+                n = n.left;
+            } else {
+                rank += size(n.left) + 1;
+                n = n.right;
+            }
+        }
+        return rank;
+    }
+
+    public PersistentTreeMap<K, V> put(K key, V value) {
+        return new PersistentTreeMap<>(comparator, put(root, key, value));
+    }
+
+    public PersistentTreeMap<K, V> remove(K key) {
+        Node<K, V> updated = remove(root, key);
+        return updated == root ? this : new PersistentTreeMap<>(comparator, updated);
+    }
+
+    /**
+     * Неизменяемое представление значений в порядке ключей.<br>
+     * Ничего не копирует: get(i) — O(log n), последовательный обход — O(n).
+     */
+    public List<V> values() {
+        return new ValuesView<>(root);
+    }
+
+    //region Реализация дерева
+    private Node<K, V> put(Node<K, V> n, K key, V value) {
+        if (n == null) return new Node<>(key, value, null, null);
+        int c = comparator.compare(key, n.key);
+        if (c == 0) return new Node<>(key, value, n.left, n.right);
+        return c < 0
+                ? balance(n.key, n.value, put(n.left, key, value), n.right)
+                : balance(n.key, n.value, n.left, put(n.right, key, value));
+    }
+
+    private Node<K, V> remove(Node<K, V> n, K key) {
+        if (n == null) return null;
+        int c = comparator.compare(key, n.key);
+        if (c < 0) {
+            Node<K, V> left = remove(n.left, key);
+            return left == n.left ? n : balance(n.key, n.value, left, n.right);
+        }
+        if (c > 0) {
+            Node<K, V> right = remove(n.right, key);
+            return right == n.right ? n : balance(n.key, n.value, n.left, right);
+        }
+        if (n.left == null) return n.right;
+        if (n.right == null) return n.left;
+        Node<K, V> min = n.right;
+        while (min.left != null) {
+            min = min.left;
+        }
+        return balance(min.key, min.value, n.left, removeMin(n.right));
+    }
+
+    private static <K, V> Node<K, V> removeMin(Node<K, V> n) {
+        if (n.left == null) return n.right;
+        return balance(n.key, n.value, removeMin(n.left), n.right);
+    }
+
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        int diff = height(left) - height(right);
+        if (diff > 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node<>(left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+            }
+            Node<K, V> lr = left.right;
+            return new Node<>(lr.key, lr.value,
+                    new Node<>(left.key, left.value, left.left, lr.left),
+                    new Node<>(key, value, lr.right, right));
+        }
+        if (diff < -1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+            }
+            Node<K, V> rl = right.left;
+            return new Node<>(rl.key, rl.value,
+                    new Node<>(key, value, left, rl.left),
+                    new Node<>(right.key, right.value, rl.right, right.right));
+        }
+        return new Node<>(key, value, left, right);
+    }
+
+    private static int height(Node<?, ?> n) {
+        return n == null ? 0 : n.height;
+    }
+
+    private static int size(Node<?, ?> n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final Node<K, V> left;
+        final Node<K, V> right;
+        final int height;
+        final int size;
+
+        Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+
+    private static final class ValuesView<V> extends AbstractList<V> {
+        private final PersistentTreeMap<?, V> map;
+
+        ValuesView(Node<?, V> root) {
+            this.map = new PersistentTreeMap<>(null, root);
+        }
+
+        @Override
+        public V get(int index) {
+            return map.valueAt(index);
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public Iterator<V> iterator() {
+            return new InOrderIterator<>(map.root);
+        }
+    }
+
+    private static final class InOrderIterator<V> implements Iterator<V> {
+        private final Deque<Node<?, V>> stack = new ArrayDeque<>();
+
+        InOrderIterator(Node<?, V> root) {
+            pushLeft(root);
+        }
+
+        private void pushLeft(Node<?, V> n) {
+            while (n != null) {
+                stack.push(n);
+                n = n.left;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public V next() {
+            if (stack.isEmpty()) throw new NoSuchElementException();
+            Node<?, V> n = stack.pop();
+            pushLeft(n.right);
+            return n.value;
+        }
+    }
+    //endregion
+}
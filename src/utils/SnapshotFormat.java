@@ -0,0 +1,11 @@
+package utils;
+
+/**
+ * Формат файла снимка FileBackedTaskManager.
+ */
+public enum SnapshotFormat {
+    // Текстовый CSV — формат импорта и экспорта
+    CSV,
+    // Версионированный двоичный формат, загружается через отображение файла в память
+    BINARY
+}
@@ -0,0 +1,110 @@
+package utils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Упорядоченный по возрастанию массив id для постраничного обхода.<br>
+ * Новые id выдаются по возрастанию, поэтому добавление — почти всегда дозапись в конец за O(1).
+ * Удаление лишь помечает ячейку «надгробием» за O(log n); массив уплотняется,
+ * когда надгробий становится больше, чем живых id.
+ */
+public final class SortedIdIndex {
+    private int[] ids = new int[16];
+    private int length;
+    private final BitSet removed = new BitSet();
+    private int removedCount;
+
+    public int size() {
+        return length - removedCount;
+    }
+
+    public void add(int id) {
+        if (length == 0 || id > ids[length - 1]) {
+            ensureCapacity();
+            ids[length++] = id;
+            return;
+        }
+        int pos = Arrays.binarySearch(ids, 0, length, id);
+        if (pos >= 0) {
+            if (removed.get(pos)) { // id вернулся (например, при загрузке журнала) — снимаем надгробие
+                removed.clear(pos);
+                removedCount--;
+            }
+            return;
+        }
+        int insertAt = -pos - 1; // редкий случай: id меньше последнего, сдвигаем хвост
+        ensureCapacity();
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, length - insertAt);
+        ids[insertAt] = id;
+        for (int bit = removed.previousSetBit(length - 1); bit >= insertAt; bit = removed.previousSetBit(bit - 1)) {
+            removed.clear(bit);
+            removed.set(bit + 1);
+        }
+        length++;
+    }
+
+    public void remove(int id) {
+        int pos = Arrays.binarySearch(ids, 0, length, id);
+        if (pos < 0 || removed.get(pos)) return;
+        removed.set(pos);
+        if (++removedCount > length - removedCount) {
+            compact();
+        }
+    }
+
+    public void clear() {
+        length = 0;
+        removed.clear();
+        removedCount = 0;
+    }
+
+    /**
+     * Позиция первого живого id, строго большего afterId, или -1.
+     */
+    public int firstAfter(int afterId) {
+        int pos = Arrays.binarySearch(ids, 0, length, afterId);
+        pos = pos >= 0 ? pos + 1 : -pos - 1;
+        return nextLive(pos);
+    }
+
+    /**
+     * Позиция следующего живого id начиная с pos включительно, или -1.
+     */
+    public int nextLive(int pos) {
+        int next = removed.nextClearBit(pos);
+        return next < length ? next : -1;
+    }
+
+    public int idAt(int pos) {
+        return ids[pos];
+    }
+
+    /**
+     * Живые id по возрастанию (новый массив).
+     */
+    public int[] toArray() {
+        int[] result = new int[size()];
+        int n = 0;
+        for (int pos = nextLive(0); pos >= 0; pos = nextLive(pos + 1)) {
+            result[n++] = ids[pos];
+        }
+        return result;
+    }
+
+    private void ensureCapacity() {
+        if (length == ids.length) {
+            ids = Arrays.copyOf(ids, ids.length * 2);
+        }
+    }
+
+    private void compact() {
+        int n = 0;
+        for (int pos = 0; pos < length; pos++) {
+            if (!removed.get(pos)) ids[n++] = ids[pos];
+        }
+        length = n;
+        removed.clear();
+        removedCount = 0;
+    }
+}
@@ -4,14 +4,21 @@ import exeptions.NotFoundException;
 import exeptions.ValidationException;
 import model.Task;
 import model.Epic;
+import model.Page;
 import model.Subtask;
+import model.TaskEvent;
 import utils.Status;
+import utils.TaskType;
 import org.junit.jupiter.api.*;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 public abstract class AbstractTaskManagerTest<T extends TaskManager> {
     protected T manager;
@@ -136,6 +143,421 @@ public abstract class AbstractTaskManagerTest<T extends TaskManager> {
                 "Пересекающиеся задачи должны приводить к исключению");
     }
 
+    @Test
+    void overlapCheckUsesNeighboursOnBothSides() {
+        LocalDateTime base = LocalDateTime.of(2025, 7, 1, 8, 0);
+        for (int i = 0; i < 10; i++) { // 08:00-08:30, 09:00-09:30, ...
+            manager.addTask(new Task(0, "Slot" + i, "D", Status.NEW, base.plusHours(i), Duration.ofMinutes(30)));
+        }
+        assertThrows(ValidationException.class, () -> manager.addTask(new Task(0, "L", "D", Status.NEW,
+                base.plusHours(3).minusMinutes(10), Duration.ofMinutes(20))), "Пересечение с последующей задачей");
+        assertThrows(ValidationException.class, () -> manager.addTask(new Task(0, "R", "D", Status.NEW,
+                base.plusHours(3).plusMinutes(20), Duration.ofMinutes(20))), "Пересечение с предыдущей задачей");
+        assertThrows(ValidationException.class, () -> manager.addTask(new Task(0, "W", "D", Status.NEW,
+                base.plusHours(2).plusMinutes(40), Duration.ofHours(3))), "Интервал, накрывающий несколько задач");
+        Task gap = new Task(0, "Gap", "D", Status.NEW, base.plusHours(3).plusMinutes(30), Duration.ofMinutes(30));
+        manager.addTask(gap);
+        Task point = new Task(0, "Point", "D", Status.NEW, base.plusHours(5), Duration.ZERO);
+        manager.addTask(point); // нулевая длительность на границе не пересекается
+        gap.setStartTime(base.plusHours(3).plusMinutes(35));
+        gap.setDuration(Duration.ofMinutes(25));
+        manager.updateTask(gap); // задача не конфликтует сама с собой
+        assertEquals(12, manager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void epicAggregatesFollowSubtaskChanges() {
+        Epic epic = new Epic(0, "Agg", "D", Status.NEW, null, Duration.ZERO);
+        manager.addEpic(epic);
+        LocalDateTime base = LocalDateTime.of(2025, 8, 1, 10, 0);
+        Subtask first = new Subtask(0, "S1", "D", Status.NEW, base, Duration.ofMinutes(30), epic.getId());
+        Subtask last = new Subtask(0, "S2", "D", Status.DONE, base.plusHours(2), Duration.ofMinutes(45), epic.getId());
+        manager.addSubtask(first);
+        manager.addSubtask(last);
+        assertEquals(Status.IN_PROGRESS, epic.getStatus());
+        assertEquals(base, epic.getStartTime());
+        assertEquals(base.plusHours(2).plusMinutes(45), epic.getEndTime());
+        assertEquals(Duration.ofMinutes(75), epic.getDuration());
+
+        Subtask done = new Subtask(first.getId(), "S1", "D", Status.DONE, base.plusHours(1), Duration.ofMinutes(15), epic.getId());
+        manager.updateSubtask(done);
+        assertEquals(Status.DONE, epic.getStatus(), "Все подзадачи выполнены");
+        assertEquals(base.plusHours(1), epic.getStartTime(), "Начало эпика сдвигается вместе с подзадачей");
+        assertEquals(Duration.ofMinutes(60), epic.getDuration());
+
+        manager.removeSubtaskById(last.getId());
+        assertEquals(base.plusHours(1).plusMinutes(15), epic.getEndTime(), "Удалённая подзадача не влияет на окончание");
+        assertEquals(List.of(done.getId()), epic.getSubtaskIDs());
+
+        manager.removeSubtaskById(done.getId());
+        assertEquals(Status.NEW, epic.getStatus());
+        assertNull(epic.getStartTime());
+        assertNull(epic.getEndTime());
+        assertEquals(Duration.ZERO, epic.getDuration());
+    }
+
+    @Test
+    void inPlaceSubtaskChangeFollowedByUpdateRecalculatesEpic() {
+        Epic epic = new Epic(0, "InPlace", "D", Status.NEW, null, Duration.ZERO);
+        manager.addEpic(epic);
+        LocalDateTime base = LocalDateTime.of(2025, 8, 3, 10, 0);
+        Subtask sub = new Subtask(0, "S", "D", Status.NEW, base, Duration.ofMinutes(30), epic.getId());
+        manager.addSubtask(sub);
+
+        sub.setStatus(Status.DONE); // меняем сохранённый объект и передаём его же в update
+        sub.setStartTime(base.plusHours(3));
+        manager.updateSubtask(sub);
+        Epic updated = manager.getEpicById(epic.getId());
+        assertEquals(Status.DONE, updated.getStatus(), "Статус эпика следует за подзадачей, изменённой на месте");
+        assertEquals(base.plusHours(3), updated.getStartTime(), "Начало эпика не должно остаться прежним");
+        assertEquals(base.plusHours(3).plusMinutes(30), updated.getEndTime());
+        assertEquals(Duration.ofMinutes(30), updated.getDuration());
+
+        manager.removeSubtaskById(sub.getId());
+        updated = manager.getEpicById(epic.getId());
+        assertEquals(Status.NEW, updated.getStatus());
+        assertNull(updated.getStartTime());
+        assertNull(updated.getEndTime());
+    }
+
+    @Test
+    void subtaskMovedToAnotherEpicUpdatesBoth() {
+        Epic from = new Epic(0, "From", "D", Status.NEW, null, Duration.ZERO);
+        Epic to = new Epic(0, "To", "D", Status.NEW, null, Duration.ZERO);
+        manager.addEpic(from);
+        manager.addEpic(to);
+        Subtask sub = new Subtask(0, "S", "D", Status.IN_PROGRESS,
+                LocalDateTime.of(2025, 8, 2, 9, 0), Duration.ofMinutes(20), from.getId());
+        manager.addSubtask(sub);
+        manager.updateSubtask(new Subtask(sub.getId(), "S", "D", Status.IN_PROGRESS,
+                sub.getStartTime(), sub.getDuration(), to.getId()));
+        assertEquals(Status.NEW, from.getStatus());
+        assertNull(from.getStartTime());
+        assertEquals(Status.IN_PROGRESS, to.getStatus());
+        assertEquals(List.of(sub.getId()), to.getSubtaskIDs());
+    }
+
+    @Test
+    void removingSubtasksKeepsEpicChildSetConsistent() {
+        Epic epic = new Epic(0, "Big", "D", Status.NEW, null, Duration.ZERO);
+        manager.addEpic(epic);
+        List<Integer> ids = new java.util.ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            Subtask s = new Subtask(0, "S" + i, "D", Status.NEW, null, Duration.ofMinutes(1), epic.getId());
+            manager.addSubtask(s);
+            ids.add(s.getId());
+        }
+        for (int i = 0; i < ids.size(); i += 2) {
+            manager.removeSubtaskById(ids.get(i));
+        }
+        List<Integer> expected = new java.util.ArrayList<>();
+        for (int i = 1; i < ids.size(); i += 2) {
+            expected.add(ids.get(i));
+        }
+        List<Integer> actual = new java.util.ArrayList<>(epic.getSubtaskIDs());
+        actual.sort(null);
+        assertEquals(expected, actual, "Остались только нечётные подзадачи");
+        assertEquals(500, manager.getSubtasksOfEpic(epic.getId()).size());
+        assertEquals(Duration.ofMinutes(500), epic.getDuration());
+        assertThrows(NotFoundException.class, () -> manager.getSubtaskById(ids.get(0)));
+    }
+
+    @Test
+    void pagingIsStableUnderInsertsAndRemovals() {
+        List<Integer> ids = new java.util.ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Task t = new Task(0, "P" + i, "D", Status.NEW, null, Duration.ZERO);
+            manager.addTask(t);
+            ids.add(t.getId());
+        }
+        Page<Task> first = manager.getTasksPage(10, null);
+        assertEquals(ids.subList(0, 10), first.getItems().stream().map(Task::getId).toList());
+        assertNotNull(first.getNextCursor());
+
+        manager.removeTaskById(ids.get(9)); // задача, на которой остановился курсор
+        manager.removeTaskById(ids.get(10));
+        Task late = new Task(0, "Late", "D", Status.NEW, null, Duration.ZERO);
+        manager.addTask(late);
+
+        Page<Task> second = manager.getTasksPage(10, first.getNextCursor());
+        assertEquals(ids.subList(11, 21), second.getItems().stream().map(Task::getId).toList());
+        Page<Task> third = manager.getTasksPage(10, second.getNextCursor());
+        List<Integer> tail = new java.util.ArrayList<>(ids.subList(21, 25));
+        tail.add(late.getId());
+        assertEquals(tail, third.getItems().stream().map(Task::getId).toList());
+        assertNull(third.getNextCursor(), "Последняя страница без курсора");
+
+        assertThrows(IllegalArgumentException.class, () -> manager.getTasksPage(0, null));
+        assertThrows(IllegalArgumentException.class, () -> manager.getTasksPage(5, "не-курсор"));
+        assertTrue(manager.getEpicsPage(5, null).getItems().isEmpty());
+    }
+
+    @Test
+    void prioritizedWindowIncludesTasksRunningIntoIt() {
+        LocalDateTime base = LocalDateTime.of(2025, 6, 2, 0, 0); // понедельник
+        Task sunday = new Task(0, "Sun", "D", Status.NEW, base.minusHours(2), Duration.ofHours(3)); // идёт в понедельник
+        Task saturday = new Task(0, "Sat", "D", Status.NEW, base.minusDays(2), Duration.ofHours(1));
+        Task monday = new Task(0, "Mon", "D", Status.NEW, base.plusHours(9), Duration.ofHours(1));
+        Task friday = new Task(0, "Fri", "D", Status.NEW, base.plusDays(4).plusHours(9), Duration.ofHours(1));
+        Task nextMonday = new Task(0, "NextMon", "D", Status.NEW, base.plusDays(7), Duration.ofHours(1));
+        for (Task t : List.of(sunday, saturday, monday, friday, nextMonday)) {
+            manager.addTask(t);
+        }
+        assertEquals(List.of(sunday, monday, friday), manager.getPrioritizedTasksBetween(base, base.plusDays(5)));
+        assertEquals(List.of(monday), manager.getPrioritizedTasksBetween(base.plusHours(1), base.plusDays(1)));
+        assertTrue(manager.getPrioritizedTasksBetween(base.plusDays(5), base.plusDays(5)).isEmpty());
+        assertEquals(List.of(monday, friday), manager.getPrioritizedTasksAfter(base, 2));
+        assertEquals(List.of(nextMonday), manager.getPrioritizedTasksAfter(base.plusDays(4).plusHours(9).plusMinutes(1), 5));
+        assertThrows(IllegalArgumentException.class,
+                () -> manager.getPrioritizedTasksBetween(base.plusDays(1), base));
+    }
+
+    @Test
+    void statusIndexesFollowTaskAndEpicChanges() {
+        Task task = new Task(0, "T", "D", Status.NEW, null, Duration.ZERO);
+        manager.addTask(task);
+        manager.addTask(new Task(0, "T2", "D", Status.DONE, null, Duration.ZERO));
+        assertEquals(1, manager.countByStatus(TaskType.TASK, Status.NEW));
+        assertEquals(2, manager.countByType(TaskType.TASK));
+
+        manager.updateTask(new Task(task.getId(), "T", "D", Status.DONE, null, Duration.ZERO));
+        assertEquals(0, manager.countByStatus(TaskType.TASK, Status.NEW));
+        assertEquals(2, manager.getTasksByStatus(Status.DONE).size());
+
+        Epic epic = new Epic(0, "E", "D", Status.NEW, null, Duration.ZERO);
+        manager.addEpic(epic);
+        assertEquals(List.of(epic), manager.getEpicsByStatus(Status.NEW));
+        Subtask sub = new Subtask(0, "S", "D", Status.IN_PROGRESS, null, Duration.ZERO, epic.getId());
+        manager.addSubtask(sub);
+        assertEquals(List.of(sub), manager.getSubtasksByStatus(Status.IN_PROGRESS));
+        assertEquals(List.of(epic), manager.getEpicsByStatus(Status.IN_PROGRESS), "Статус эпика пересчитан — индекс тоже");
+        assertTrue(manager.getEpicsByStatus(Status.NEW).isEmpty());
+
+        manager.updateSubtask(new Subtask(sub.getId(), "S", "D", Status.DONE, null, Duration.ZERO, epic.getId()));
+        assertEquals(1, manager.countByStatus(TaskType.EPIC, Status.DONE));
+        assertEquals(0, manager.countByStatus(TaskType.SUBTASK, Status.IN_PROGRESS));
+
+        manager.removeAllSubtasks();
+        assertEquals(1, manager.countByStatus(TaskType.EPIC, Status.NEW));
+        assertEquals(0, manager.countByType(TaskType.SUBTASK));
+        manager.removeTaskById(task.getId());
+        assertEquals(1, manager.countByStatus(TaskType.TASK, Status.DONE));
+        manager.removeAllEpics();
+        assertEquals(0, manager.countByStatus(TaskType.EPIC, Status.NEW));
+    }
+
+    @Test
+    void searchMatchesWordPrefixesAndFollowsChanges() {
+        Task task = new Task(0, "Починить сборку", "Падает CI на ветке main", Status.NEW, null, Duration.ZERO);
+        manager.addTask(task);
+        Epic epic = new Epic(0, "Релиз 2.0", "Сборка и публикация", Status.NEW, null, Duration.ZERO);
+        manager.addEpic(epic);
+        manager.addSubtask(new Subtask(0, "Changelog", "Собрать список изменений", Status.NEW, null, Duration.ZERO, epic.getId()));
+
+        assertEquals(2, manager.search("сборк", 10).size(), "Префикс, без учёта регистра, по названию и описанию");
+        assertEquals(List.of(task), manager.search("сбор ci", 10), "Все слова запроса должны встретиться");
+        assertEquals(1, manager.search("сбор", 1).size(), "limit ограничивает выдачу");
+        assertTrue(manager.search("deploy", 10).isEmpty());
+
+        manager.updateTask(new Task(task.getId(), "Обновить зависимости", "", Status.NEW, null, Duration.ZERO));
+        assertEquals(List.of(epic), manager.search("сборк", 10), "Старые слова задачи удаляются из индекса");
+        manager.removeAllEpics();
+        assertTrue(manager.search("changelog", 10).isEmpty());
+        assertEquals(2, manager.getSearchIndexStats().terms());
+        assertThrows(IllegalArgumentException.class, () -> manager.search(" , ", 10));
+    }
+
+    @Test
+    void batchIsValidatedAsAWholeBeforeAnyChange() {
+        LocalDateTime base = LocalDateTime.of(2025, 10, 1, 9, 0);
+        manager.addTask(new Task(0, "Existing", "D", Status.NEW, base.plusHours(5), Duration.ofMinutes(60)));
+
+        List<Task> clashing = List.of(
+                new Task(0, "A", "D", Status.NEW, base, Duration.ofMinutes(60)),
+                new Task(0, "B", "D", Status.NEW, base.plusMinutes(30), Duration.ofMinutes(10)));
+        assertThrows(ValidationException.class, () -> manager.addAllTasks(clashing), "Пересечение внутри пакета");
+        List<Task> againstExisting = List.of(
+                new Task(0, "C", "D", Status.NEW, base, Duration.ofMinutes(60)),
+                new Task(0, "D", "D", Status.NEW, base.plusHours(5).plusMinutes(30), Duration.ofMinutes(10)));
+        assertThrows(ValidationException.class, () -> manager.addAllTasks(againstExisting), "Пересечение с расписанием");
+        assertEquals(1, manager.getAllTasks().size(), "Неудачный пакет не меняет состояние");
+
+        List<Task> batch = List.of(
+                new Task(0, "E", "D", Status.NEW, base, Duration.ofMinutes(60)),
+                new Task(0, "F", "D", Status.NEW, base.plusHours(1), Duration.ofMinutes(60)),
+                new Task(0, "G", "D", Status.NEW, null, Duration.ZERO));
+        manager.addAllTasks(batch);
+        assertEquals(4, manager.getAllTasks().size());
+        assertEquals(3, manager.getPrioritizedTasks().size());
+
+        // Сдвиг двух задач местами: по отдельности каждое обновление пересекалось бы со старой версией другой
+        Task e = batch.get(0);
+        Task f = batch.get(1);
+        manager.updateAllTasks(List.of(
+                new Task(e.getId(), "E", "D", Status.DONE, base.plusHours(1), Duration.ofMinutes(60)),
+                new Task(f.getId(), "F", "D", Status.DONE, base, Duration.ofMinutes(60))));
+        assertEquals(f.getId(), manager.getPrioritizedTasks().get(0).getId());
+        assertThrows(NotFoundException.class, () -> manager.updateAllTasks(
+                List.of(new Task(9999, "X", "D", Status.NEW, null, Duration.ZERO))));
+    }
+
+    @Test
+    void batchItemWithStaleIdOfOverlappedTaskIsRejected() {
+        LocalDateTime base = LocalDateTime.of(2025, 10, 4, 9, 0);
+        Task existing = new Task(0, "Existing", "D", Status.NEW, base, Duration.ofMinutes(60));
+        manager.addTask(existing);
+        List<Task> tasks = List.of(
+                new Task(existing.getId(), "Copy", "D", Status.NEW, base.plusMinutes(30), Duration.ofMinutes(60)));
+        assertThrows(ValidationException.class, () -> manager.addAllTasks(tasks), "id из запроса не скрывает пересечение");
+        assertEquals(1, manager.getAllTasks().size());
+
+        Epic epic = new Epic(0, "E", "D", Status.NEW, null, Duration.ZERO);
+        manager.addEpic(epic);
+        Subtask subtask = new Subtask(0, "S", "D", Status.NEW, base.plusHours(2), Duration.ofMinutes(60), epic.getId());
+        manager.addSubtask(subtask);
+        List<Subtask> subtasks = List.of(new Subtask(subtask.getId(), "Copy", "D", Status.NEW,
+                base.plusHours(2).plusMinutes(30), Duration.ofMinutes(60), epic.getId()));
+        assertThrows(ValidationException.class, () -> manager.addAllSubtasks(subtasks));
+        assertEquals(1, manager.getAllSubtasks().size());
+        assertEquals(List.of(subtask.getId()), epic.getSubtaskIDs());
+        assertEquals(2, manager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void subtaskBatchRecalculatesEachEpicOnce() {
+        Epic first = new Epic(0, "E1", "D", Status.NEW, null, Duration.ZERO);
+        Epic second = new Epic(0, "E2", "D", Status.NEW, null, Duration.ZERO);
+        manager.addAllEpics(List.of(first, second));
+        LocalDateTime base = LocalDateTime.of(2025, 10, 2, 9, 0);
+        List<Subtask> batch = List.of(
+                new Subtask(0, "S1", "D", Status.DONE, base, Duration.ofMinutes(30), first.getId()),
+                new Subtask(0, "S2", "D", Status.DONE, base.plusHours(1), Duration.ofMinutes(30), first.getId()),
+                new Subtask(0, "S3", "D", Status.NEW, base.plusHours(2), Duration.ofMinutes(30), second.getId()));
+        manager.addAllSubtasks(batch);
+        assertEquals(Status.DONE, first.getStatus());
+        assertEquals(base.plusHours(1).plusMinutes(30), first.getEndTime());
+        assertEquals(2, first.getSubtaskIDs().size());
+
+        Subtask moved = new Subtask(batch.get(1).getId(), "S2", "D", Status.NEW, base.plusHours(1), Duration.ofMinutes(30), second.getId());
+        manager.updateAllSubtasks(List.of(moved));
+        assertEquals(List.of(batch.get(0).getId()), first.getSubtaskIDs());
+        assertEquals(2, second.getSubtaskIDs().size());
+        assertEquals(base.plusHours(1), second.getStartTime());
+        assertEquals(1, manager.countByStatus(TaskType.EPIC, Status.DONE));
+    }
+
+    @Test
+    void transactionMovesSubtasksBetweenSlotsAtomically() {
+        Epic epic = new Epic(0, "Tx", "D", Status.NEW, null, Duration.ZERO);
+        manager.addEpic(epic);
+        LocalDateTime base = LocalDateTime.of(2025, 11, 3, 9, 0);
+        Subtask a = new Subtask(0, "A", "D", Status.NEW, base, Duration.ofMinutes(60), epic.getId());
+        Subtask b = new Subtask(0, "B", "D", Status.NEW, base.plusHours(1), Duration.ofMinutes(60), epic.getId());
+        manager.addSubtask(a);
+        manager.addSubtask(b);
+        Task other = new Task(0, "Other", "D", Status.NEW, base.plusHours(3), Duration.ofMinutes(30));
+        manager.addTask(other);
+
+        // Сдвиг обеих подзадач на час позже: b занимает слот, который освобождается только вместе с ним
+        Transaction tx = manager.beginTransaction()
+                .updateSubtask(new Subtask(a.getId(), "A", "D", Status.NEW, base.plusHours(1), Duration.ofMinutes(60), epic.getId()))
+                .updateSubtask(new Subtask(b.getId(), "B", "D", Status.DONE, base.plusHours(2), Duration.ofMinutes(60), epic.getId()))
+                .removeTask(other.getId())
+                .addTask(new Task(0, "New", "D", Status.NEW, base, Duration.ofMinutes(30)));
+        tx.commit();
+        assertEquals(base.plusHours(1), epic.getStartTime());
+        assertEquals(Status.IN_PROGRESS, epic.getStatus());
+        assertEquals(3, manager.getPrioritizedTasks().size());
+        assertEquals("New", manager.getPrioritizedTasks().get(0).getName());
+        assertThrows(NotFoundException.class, () -> manager.getTaskById(other.getId()));
+        assertThrows(IllegalStateException.class, tx::commit, "Транзакция одноразовая");
+    }
+
+    @Test
+    void failedOrRolledBackTransactionLeavesStateUntouched() {
+        LocalDateTime base = LocalDateTime.of(2025, 11, 4, 9, 0);
+        Task first = new Task(0, "First", "D", Status.NEW, base, Duration.ofMinutes(60));
+        manager.addTask(first);
+        List<Task> before = manager.getPrioritizedTasks();
+
+        Transaction clash = manager.beginTransaction()
+                .addTask(new Task(0, "Free", "D", Status.NEW, base.plusHours(5), Duration.ofMinutes(30)))
+                .addTask(new Task(0, "Clash", "D", Status.NEW, base.plusMinutes(30), Duration.ofMinutes(30)));
+        assertThrows(ValidationException.class, clash::commit);
+        assertEquals(before, manager.getPrioritizedTasks());
+        assertEquals(1, manager.getAllTasks().size());
+
+        Transaction missing = manager.beginTransaction()
+                .updateTask(new Task(first.getId(), "Renamed", "D", Status.DONE, base, Duration.ofMinutes(60)))
+                .removeTask(9999);
+        assertThrows(NotFoundException.class, missing::commit);
+        assertEquals("First", manager.getTaskById(first.getId()).getName());
+
+        Transaction dropped = manager.beginTransaction().removeTask(first.getId());
+        dropped.rollback();
+        assertEquals(1, manager.getAllTasks().size());
+        assertThrows(IllegalArgumentException.class, () -> manager.beginTransaction()
+                .removeTask(first.getId()).updateTask(first).commit(), "Одна сущность дважды в транзакции");
+    }
+
+    @Test
+    void changeFeedDeliversTypedEventsWithDerivedEpicChanges() throws InterruptedException {
+        BlockingQueue<TaskEvent> events = new LinkedBlockingQueue<>();
+        try (ChangeFeed.Subscription subscription = manager.getChangeFeed().subscribe(events::add)) {
+            Epic epic = new Epic(0, "Feed", "D", Status.NEW, null, Duration.ZERO);
+            manager.addEpic(epic);
+            LocalDateTime start = LocalDateTime.of(2025, 11, 5, 9, 0);
+            Subtask subtask = new Subtask(0, "S", "D", Status.DONE, start, Duration.ofMinutes(30), epic.getId());
+            manager.addSubtask(subtask);
+            manager.updateSubtask(new Subtask(subtask.getId(), "S2", "D", Status.DONE, start, Duration.ofMinutes(30), epic.getId()));
+            manager.removeSubtaskById(subtask.getId());
+
+            List<String> expected = List.of("CREATED EPIC", "CREATED SUBTASK", "DERIVED EPIC",
+                    "UPDATED SUBTASK", "DELETED SUBTASK", "DERIVED EPIC"); // переименование агрегаты не меняет
+            long previousSeq = 0;
+            TaskEvent derived = null;
+            for (String kindAndType : expected) {
+                TaskEvent event = events.poll(5, TimeUnit.SECONDS);
+                assertNotNull(event, "Ожидалось событие " + kindAndType);
+                assertEquals(kindAndType, event.getKind() + " " + event.getType());
+                assertTrue(event.getSeq() > previousSeq, "Номера событий возрастают");
+                previousSeq = event.getSeq();
+                if (derived == null && event.getKind() == TaskEvent.Kind.DERIVED) derived = event;
+            }
+            assertEquals(Status.DONE, derived.getEntity().getStatus(), "Событие хранит копию, а не живой эпик");
+            assertEquals(start.plusMinutes(30), ((Epic) derived.getEntity()).getEndTime());
+            assertEquals(Status.NEW, epic.getStatus());
+            assertEquals(0, subscription.getLag());
+            assertEquals(6, subscription.getDelivered());
+        }
+        assertEquals(0, manager.getChangeFeed().getSubscriberCount());
+    }
+
+    @Test
+    void slowSubscriberDropsEventsInsteadOfBlockingMutations() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        ChangeFeed.Subscription slow = manager.getChangeFeed().subscribe(event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 1);
+        for (int i = 0; i < 5; i++) {
+            manager.addTask(new Task(0, "T" + i, "D", Status.NEW, null, null));
+        }
+        assertEquals(5, slow.getLag());
+        assertTrue(slow.getDropped() >= 3, "В буфер на одно событие помещается не больше двух из пяти");
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (slow.getDelivered() + slow.getDropped() < 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(5, slow.getDelivered() + slow.getDropped());
+        assertEquals(0, slow.getPending());
+        slow.close();
+    }
+
     @Test
     void subtaskHasEpic_association() {
         Epic epic = new Epic(0, "Epic5", "E5", Status.NEW,
@@ -0,0 +1,80 @@
+package managers;
+
+import model.Task;
+import org.junit.jupiter.api.*;
+import utils.Status;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArrayHistoryManagerTest {
+
+    private static Task task(int id) {
+        return new Task(id, "H" + id, "", Status.NEW, null, Duration.ZERO);
+    }
+
+    @Test
+    void keepsLatestViewOrderWithoutDuplicates() {
+        ArrayHistoryManager history = new ArrayHistoryManager(3);
+        history.add(task(1));
+        history.add(task(2));
+        history.add(task(1));
+        history.add(task(3));
+        assertEquals(List.of(2, 1, 3), ids(history));
+        history.remove(1);
+        history.remove(42);
+        assertEquals(List.of(2, 3), ids(history));
+    }
+
+    @Test
+    void evictsLeastRecentlyViewedAndReusesFreedSlots() {
+        ArrayHistoryManager history = new ArrayHistoryManager(2);
+        history.add(task(1));
+        history.add(task(2));
+        history.add(task(3));
+        assertEquals(List.of(2, 3), ids(history));
+        history.remove(2);
+        history.add(task(4));
+        history.add(task(5));
+        assertEquals(List.of(4, 5), ids(history));
+        history.remove(4);
+        history.remove(5);
+        assertTrue(history.getHistory().isEmpty());
+        history.add(task(0)); // id 0 хранится в IntIntMap отдельно от остальных ключей
+        assertEquals(List.of(0), ids(history));
+    }
+
+    /**
+     * Профиль выделений памяти на один просмотр: 1000 задач в истории, случайные просмотры по 2000 id,
+     * так что примерно половина просмотров вытесняет старые записи, а половина переносит существующие в конец.
+     */
+    @Test
+    void recordingViewsAllocatesNothingUnlikeLinkedNodes() {
+        Task[] pool = new Task[2_000];
+        for (int i = 0; i < pool.length; i++) pool[i] = task(i + 1);
+        Random random = new Random(1);
+        Task[] views = new Task[200_000];
+        for (int i = 0; i < views.length; i++) views[i] = pool[random.nextInt(pool.length)];
+        double linked = bytesPerView(new InMemoryHistoryManager(1_000), views);
+        double array = bytesPerView(new ArrayHistoryManager(1_000), views);
+        assertTrue(array < 1, "Массивная история не должна выделять память на просмотр: " + array);
+        assertTrue(linked > 16, "Узловая история выделяет узел на просмотр: " + linked);
+    }
+
+    private static double bytesPerView(HistoryManager history, Task[] views) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        for (Task view : views) history.add(view); // прогрев
+        long before = threads.getThreadAllocatedBytes(tid);
+        for (Task view : views) history.add(view);
+        return (double) (threads.getThreadAllocatedBytes(tid) - before) / views.length;
+    }
+
+    private static List<Integer> ids(HistoryManager history) {
+        return history.getHistory().stream().map(Task::getId).toList();
+    }
+}
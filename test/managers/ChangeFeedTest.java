@@ -0,0 +1,47 @@
+package managers;
+
+import model.TaskEvent;
+import org.junit.jupiter.api.Test;
+import utils.TaskType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeFeedTest {
+    @Test
+    void subscriptionDuringPublishingAccountsForEveryLaterEvent() throws InterruptedException {
+        ChangeFeed feed = new ChangeFeed();
+        AtomicBoolean stop = new AtomicBoolean();
+        Thread publisher = new Thread(() -> {
+            for (int i = 1; !stop.get(); i++) {
+                feed.publish(TaskEvent.Kind.CREATED, TaskType.TASK, i, null);
+            }
+        });
+        List<ChangeFeed.Subscription> subscriptions = new ArrayList<>();
+        publisher.start();
+        while (feed.getLastSeq() == 0) {
+            Thread.onSpinWait();
+        }
+        for (int i = 0; i < 200; i++) {
+            subscriptions.add(feed.subscribe(event -> { }));
+        }
+        stop.set(true);
+        publisher.join();
+
+        long last = feed.getLastSeq();
+        for (ChangeFeed.Subscription subscription : subscriptions) {
+            long expected = last - subscription.getStartSeq();
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (subscription.getDelivered() + subscription.getDropped() < expected
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(expected, subscription.getDelivered() + subscription.getDropped(),
+                    "Каждое событие после подписки доставлено или учтено как отброшенное");
+            subscription.close();
+        }
+    }
+}
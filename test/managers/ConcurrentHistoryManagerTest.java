@@ -0,0 +1,96 @@
+package managers;
+
+import model.Task;
+import org.junit.jupiter.api.*;
+import utils.Status;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentHistoryManagerTest {
+
+    private static Task task(int id) {
+        return new Task(id, "H" + id, "", Status.NEW, null, Duration.ZERO);
+    }
+
+    @Test
+    void latestViewWinsAndEvictedEntriesDoNotComeBack() {
+        ConcurrentHistoryManager history = new ConcurrentHistoryManager(2);
+        history.add(task(1));
+        history.add(task(2));
+        history.add(task(1));
+        assertEquals(List.of(2, 1), ids(history));
+        history.add(task(3));
+        assertEquals(List.of(1, 3), ids(history));
+        history.remove(3);
+        assertEquals(List.of(1), ids(history), "Вытесненная задача 2 не возвращается после удаления");
+        history.add(task(4));
+        assertEquals(List.of(1, 4), ids(history));
+    }
+
+    @Test
+    void removingManyTasksTrimsOnceAndKeepsNewestViews() {
+        ConcurrentHistoryManager history = new ConcurrentHistoryManager(100);
+        for (int id = 1; id <= 150; id++) history.add(task(id));
+        for (int id = 51; id <= 140; id++) history.remove(id);
+        assertEquals(List.of(141, 142, 143, 144, 145, 146, 147, 148, 149, 150), ids(history),
+                "Вытесненные задачи 1..50 не возвращаются после удаления более свежих");
+    }
+
+    @Test
+    void readsDuringParallelViewsDoNotCacheStaleHistory() throws Exception {
+        ConcurrentHistoryManager history = new ConcurrentHistoryManager(20_000); // все просмотры помещаются
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 3; t++) {
+                int offset = t * 10_000;
+                futures.add(pool.submit(() -> {
+                    for (int i = 1; i <= 5_000; i++) history.add(task(offset + i));
+                }));
+            }
+            Future<?> reader = pool.submit(() -> {
+                while (futures.stream().anyMatch(f -> !f.isDone())) history.getHistory();
+            });
+            for (Future<?> f : futures) f.get();
+            reader.get();
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(15_000, history.getHistory().size(), "После записи видны все просмотры, а не закэшированный обход");
+    }
+
+    @Test
+    void parallelViewsKeepHistoryWithoutDuplicates() throws Exception {
+        ConcurrentHistoryManager history = new ConcurrentHistoryManager(100);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int offset = t;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 20_000; i++) history.add(task((i * 31 + offset) % 500));
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        } finally {
+            pool.shutdown();
+        }
+        history.add(task(7));
+        List<Integer> ids = ids(history);
+        assertEquals(100, ids.size());
+        assertEquals(ids.size(), new HashSet<>(ids).size(), "В истории нет повторов");
+        assertEquals(7, ids.get(ids.size() - 1), "Последний просмотр — в конце истории");
+    }
+
+    private static List<Integer> ids(HistoryManager history) {
+        return history.getHistory().stream().map(Task::getId).toList();
+    }
+}
@@ -0,0 +1,175 @@
+package managers;
+
+import model.Epic;
+import model.Subtask;
+import model.Task;
+import org.junit.jupiter.api.Test;
+import utils.Status;
+import exeptions.ValidationException;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentTaskManagerTest extends AbstractTaskManagerTest<ConcurrentTaskManager> {
+    @Override
+    protected ConcurrentTaskManager createManager() {
+        return new ConcurrentTaskManager();
+    }
+
+    @Test
+    void concurrentOverlappingAddsAcceptOnlyOneTaskPerSlot() throws Exception {
+        LocalDateTime base = LocalDateTime.of(2025, 9, 1, 0, 0);
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                int slot = i % 50; // по 8 претендентов на каждый из 50 слотов
+                futures.add(pool.submit(() -> {
+                    try {
+                        manager.addTask(new Task(0, "T", "D", Status.NEW,
+                                base.plusHours(slot), Duration.ofMinutes(30)));
+                    } catch (ValidationException e) {
+                        rejected.incrementAndGet();
+                    }
+                    manager.getAllTasks();
+                    manager.getPrioritizedTasks();
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(50, manager.getAllTasks().size(), "В каждый слот должна попасть ровно одна задача");
+        assertEquals(350, rejected.get());
+        assertEquals(50, manager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void concurrentSubtaskAddsKeepEpicConsistent() throws Exception {
+        Epic epic = new Epic(0, "E", "D", Status.NEW, null, Duration.ZERO);
+        manager.addEpic(epic);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                Status status = i % 2 == 0 ? Status.DONE : Status.NEW;
+                futures.add(pool.submit(() -> {
+                    Subtask s = new Subtask(0, "S", "D", status, null, Duration.ofMinutes(1), epic.getId());
+                    manager.addSubtask(s);
+                    manager.getSubtaskById(s.getId());
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(200, manager.getSubtasksOfEpic(epic.getId()).size());
+        assertEquals(Duration.ofMinutes(200), epic.getDuration());
+        assertEquals(Status.IN_PROGRESS, epic.getStatus());
+        assertEquals(200, manager.getFromHistory().size(), "Все просмотры должны попасть в историю");
+    }
+
+    @Test
+    void listReadsAreStablePointInTimeSnapshots() {
+        LocalDateTime base = LocalDateTime.of(2025, 9, 2, 0, 0);
+        Task first = new Task(0, "A", "D", Status.NEW, base, Duration.ofMinutes(10));
+        manager.addTask(first);
+        List<Task> tasksBefore = manager.getAllTasks();
+        List<Task> prioritizedBefore = manager.getPrioritizedTasks();
+
+        manager.addTask(new Task(0, "B", "D", Status.NEW, base.minusHours(1), Duration.ofMinutes(10)));
+        manager.removeTaskById(first.getId());
+
+        assertEquals(List.of(first), tasksBefore, "Снимок не видит последующих изменений");
+        assertEquals(List.of(first), prioritizedBefore);
+        assertEquals(1, manager.getAllTasks().size());
+        assertEquals("B", manager.getPrioritizedTasks().get(0).getName());
+        assertThrows(UnsupportedOperationException.class, () -> tasksBefore.add(first));
+
+        Epic epic = new Epic(0, "E", "D", Status.NEW, null, Duration.ZERO);
+        manager.addEpic(epic);
+        Subtask sub = new Subtask(0, "S", "D", Status.NEW, base.plusHours(5), Duration.ofMinutes(20), epic.getId());
+        manager.addSubtask(sub);
+        List<Epic> epicsBefore = manager.getAllEpics();
+
+        manager.updateSubtask(new Subtask(sub.getId(), "S", "D", Status.DONE, base.plusHours(8),
+                Duration.ofMinutes(30), epic.getId()));
+
+        Epic old = epicsBefore.get(0);
+        assertEquals(Status.NEW, old.getStatus(), "Снимок эпика не видит пересчёта после изменения подзадачи");
+        assertEquals(base.plusHours(5), old.getStartTime());
+        assertEquals(base.plusHours(5).plusMinutes(20), old.getEndTime());
+        assertEquals(Duration.ofMinutes(20), old.getDuration());
+        Epic current = manager.getAllEpics().get(0);
+        assertEquals(Status.DONE, current.getStatus(), "Новая версия публикует пересчитанный эпик");
+        assertEquals(base.plusHours(8), current.getStartTime());
+        assertEquals(base.plusHours(8).plusMinutes(30), current.getEndTime());
+        assertEquals(List.of(sub.getId()), current.getSubtaskIDs());
+        assertEquals(Status.DONE, manager.getEpicsPage(10, null).getItems().get(0).getStatus());
+    }
+
+    @Test
+    void snapshotMatchesLiveStateAfterRandomMutations() {
+        Random random = new Random(11);
+        LocalDateTime base = LocalDateTime.of(2025, 10, 1, 0, 0);
+        Epic epic = new Epic(0, "E", "D", Status.NEW, null, Duration.ZERO);
+        manager.addEpic(epic);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            int op = random.nextInt(4);
+            try {
+                if (op == 0 || ids.isEmpty()) {
+                    Task t = random.nextBoolean()
+                            ? new Task(0, "T", "D", Status.NEW, base.plusMinutes(random.nextInt(50_000)), Duration.ofMinutes(5))
+                            : new Subtask(0, "S", "D", Status.NEW, base.plusMinutes(random.nextInt(50_000)),
+                            Duration.ofMinutes(5), epic.getId());
+                    if (t instanceof Subtask s) manager.addSubtask(s); else manager.addTask(t);
+                    ids.add(t.getId());
+                } else if (op == 1) {
+                    int id = ids.remove(random.nextInt(ids.size()));
+                    if (manager.getAllTasks().stream().anyMatch(t -> t.getId() == id)) {
+                        manager.removeTaskById(id);
+                    } else {
+                        manager.removeSubtaskById(id);
+                    }
+                } else {
+                    int id = ids.get(random.nextInt(ids.size()));
+                    Task current = manager.getAllTasks().stream().filter(t -> t.getId() == id).findFirst().orElse(null);
+                    if (current != null) {
+                        manager.updateTask(new Task(id, "U", "D", Status.DONE,
+                                base.plusMinutes(random.nextInt(50_000)), Duration.ofMinutes(5)));
+                    }
+                }
+            } catch (ValidationException ignored) {
+                // пересечения ожидаемы — снимок при этом не должен меняться
+            }
+        }
+        InMemoryTaskManager live = manager;
+        assertEquals(live.tasks.size(), manager.getAllTasks().size());
+        assertEquals(live.subtasks.size(), manager.getAllSubtasks().size());
+        assertEquals(List.copyOf(live.prioritizedTasks), List.copyOf(manager.getPrioritizedTasks()));
+        Epic published = manager.getAllEpics().get(0);
+        assertEquals(epic.getStatus(), published.getStatus());
+        assertEquals(epic.getStartTime(), published.getStartTime());
+        assertEquals(epic.getEndTime(), published.getEndTime());
+        assertEquals(epic.getSubtaskIDs(), published.getSubtaskIDs(), "Опубликованный эпик видит актуальный состав");
+        assertEquals(Arrays.stream(live.tasks.keys()).sorted().boxed().collect(Collectors.toList()),
+                manager.getAllTasks().stream().map(Task::getId).collect(Collectors.toList()));
+    }
+}
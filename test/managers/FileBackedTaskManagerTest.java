@@ -1,14 +1,30 @@
 package managers;
 
+import exeptions.ManagerLoadException;
+import model.Epic;
+import model.Subtask;
 import model.Task;
 import org.junit.jupiter.api.*;
+import utils.Durability;
+import utils.PersistenceMode;
+import utils.SnapshotFormat;
 import utils.Status;
+import utils.TaskType;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -19,13 +35,26 @@ public class FileBackedTaskManagerTest extends AbstractTaskManagerTest<FileBacke
     protected FileBackedTaskManager createManager() {
         try {
             file = File.createTempFile("tasks", ".csv");
-            file.deleteOnExit();
+            deleteWithSidecarsOnExit(file);
         } catch (IOException e) {
             fail("Не удалось создать временный файл");
         }
         return new FileBackedTaskManager(file);
     }
 
+    @Override
+    @AfterEach
+    void tearDown() {
+        super.tearDown();
+        manager.close(); // останавливает запись журнала просмотров до удаления файлов
+    }
+
+    private static void deleteWithSidecarsOnExit(File file) {
+        for (String suffix : List.of("", ".log", ".tmp", ".views", ".views.tmp")) {
+            new File(file.getPath() + suffix).deleteOnExit();
+        }
+    }
+
     @Test
     void saveToFile() {
         Task task = new Task(0, "TASK", "Description", Status.NEW,
@@ -51,4 +80,466 @@ public class FileBackedTaskManagerTest extends AbstractTaskManagerTest<FileBacke
         assertEquals(task.getName(), loaded.getTaskById(task.getId()).getName(),
                 "Загруженная задача должна иметь корректные данные");
     }
-}
\ No newline at end of file
+
+    @Test
+    void journalReplayRestoresStateWithoutRewritingSnapshot() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, PersistenceMode.JOURNAL);
+        Task task = new Task(0, "JT", "JD", Status.NEW,
+                LocalDateTime.of(2025, 6, 26, 9, 0), Duration.ofMinutes(30));
+        journaled.addTask(task); // первая запись создаёт пустой снимок
+        String snapshot = Files.readString(file.toPath());
+        Epic epic = new Epic(0, "JE", "JED", Status.NEW, null, Duration.ZERO);
+        journaled.addEpic(epic);
+        Subtask sub = new Subtask(0, "JS", "JSD", Status.DONE,
+                LocalDateTime.of(2025, 6, 26, 11, 0), Duration.ofMinutes(15), epic.getId());
+        journaled.addSubtask(sub);
+        task.setName("JT2");
+        journaled.updateTask(task);
+        journaled.close();
+        assertEquals(snapshot, Files.readString(file.toPath()), "Снимок не должен перезаписываться в режиме журнала");
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertEquals("JT2", loaded.getTaskById(task.getId()).getName(), "Обновление из журнала должно примениться");
+        assertEquals(Status.DONE, loaded.getEpicById(epic.getId()).getStatus(), "Статус эпика пересчитывается после журнала");
+        assertEquals(1, loaded.getSubtasksOfEpic(epic.getId()).size());
+        assertEquals(2, loaded.getPrioritizedTasks().size());
+        loaded.close();
+    }
+
+    @Test
+    void batchesArePersistedInBothModes() {
+        LocalDateTime start = LocalDateTime.of(2025, 10, 3, 9, 0);
+        manager.addAllTasks(List.of(
+                new Task(0, "B1", "D", Status.NEW, start, Duration.ofMinutes(30)),
+                new Task(0, "B2", "D", Status.NEW, start.plusHours(1), Duration.ofMinutes(30))));
+        assertEquals(2, FileBackedTaskManager.loadFromFile(file).getAllTasks().size());
+
+        FileBackedTaskManager journaled = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        Epic epic = new Epic(0, "BE", "D", Status.NEW, null, Duration.ZERO);
+        journaled.addAllEpics(List.of(epic));
+        journaled.addAllSubtasks(List.of(
+                new Subtask(0, "BS1", "D", Status.DONE, start.plusHours(2), Duration.ofMinutes(30), epic.getId()),
+                new Subtask(0, "BS2", "D", Status.DONE, start.plusHours(3), Duration.ofMinutes(30), epic.getId())));
+        journaled.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertEquals(Status.DONE, loaded.getEpicById(epic.getId()).getStatus());
+        assertEquals(4, loaded.getPrioritizedTasks().size());
+        loaded.close();
+    }
+
+    @Test
+    void transactionIsJournaledAsOneRecordAndTornTransactionIsSkipped() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, PersistenceMode.JOURNAL);
+        Task kept = new Task(0, "Kept", "D", Status.NEW, null, Duration.ZERO);
+        journaled.addTask(kept); // первая запись создаёт снимок
+        Epic epic = new Epic(0, "E, с запятой", "D", Status.NEW, null, Duration.ZERO);
+        journaled.beginTransaction()
+                .addEpic(epic)
+                .updateTask(new Task(kept.getId(), "Kept2", "D", Status.DONE, null, Duration.ZERO))
+                .commit();
+        Subtask sub = new Subtask(0, "S", "D", Status.DONE, LocalDateTime.of(2025, 11, 5, 9, 0), Duration.ofMinutes(30), epic.getId());
+        journaled.beginTransaction().addSubtask(sub).removeTask(kept.getId()).commit();
+        journaled.close();
+
+        File log = new File(file.getPath() + ".log");
+        List<String> lines = Files.readAllLines(log.toPath());
+        assertEquals(2, lines.size(), "Каждая транзакция — одна запись журнала");
+        assertTrue(lines.get(0).matches("\\d+,\\d+,TXN,2,.*"), "Запись в кадре с длиной и CRC32");
+
+        String last = lines.get(1);
+        Files.writeString(log.toPath(), lines.get(0) + "\n"
+                + last.substring(0, last.length() - 2)); // обрываем последнюю транзакцию перед маркером конца
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertEquals("Kept2", loaded.getTaskById(kept.getId()).getName(), "Удаление из оборванной транзакции не применяется");
+        assertTrue(loaded.getAllSubtasks().isEmpty(), "Оборванная транзакция не применяется частично");
+        assertEquals("E, с запятой", loaded.getEpicById(epic.getId()).getName());
+        loaded.close();
+    }
+
+    @Test
+    void boardsHaveOwnIdSpacesAndFiles() throws IOException {
+        File dir = Files.createTempDirectory("boards").toFile();
+        try (BoardRegistry boards = BoardRegistry.fileBacked(dir, PersistenceMode.JOURNAL)) {
+            boards.get("team-a").addTask(new Task(0, "A1", "D", Status.NEW, null, Duration.ZERO));
+            boards.get("team-a").addTask(new Task(0, "A2", "D", Status.NEW, null, Duration.ZERO));
+            boards.get("team_b").addTask(new Task(0, "B1", "D", Status.NEW, null, Duration.ZERO));
+            assertEquals("B1", boards.get("team_b").getTaskById(1).getName(), "У каждой доски id начинаются с 1");
+            assertThrows(IllegalArgumentException.class, () -> boards.get("../etc"));
+        }
+        try (BoardRegistry reopened = BoardRegistry.fileBacked(dir, PersistenceMode.JOURNAL)) {
+            assertEquals(Set.of("team-a", "team_b"), reopened.keys());
+            TaskManager a = reopened.get("team-a");
+            assertEquals(2, a.getAllTasks().size());
+            Task next = new Task(0, "A3", "D", Status.NEW, null, Duration.ZERO);
+            a.addTask(next);
+            assertEquals(3, next.getId(), "Счётчик доски продолжается после загрузки");
+            assertEquals(1, reopened.get("team_b").getAllTasks().size());
+        }
+        for (File f : dir.listFiles()) f.delete();
+        dir.delete();
+    }
+
+    @Test
+    void journalReplayAppliesRemovals() {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, PersistenceMode.JOURNAL);
+        Epic epic = new Epic(0, "E", "D", Status.NEW, null, Duration.ZERO);
+        journaled.addEpic(epic);
+        journaled.addSubtask(new Subtask(0, "S", "D", Status.NEW,
+                LocalDateTime.of(2025, 6, 27, 9, 0), Duration.ofMinutes(15), epic.getId()));
+        journaled.removeEpicById(epic.getId());
+        journaled.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertTrue(loaded.getAllEpics().isEmpty(), "Удалённый эпик не должен восстановиться");
+        assertTrue(loaded.getAllSubtasks().isEmpty(), "Подзадачи удалённого эпика не должны восстановиться");
+        loaded.close();
+    }
+
+    @Test
+    void compactionMovesJournalIntoSnapshot() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, PersistenceMode.JOURNAL);
+        journaled.setCompactionThresholds(5, Long.MAX_VALUE);
+        for (int i = 0; i < 12; i++) {
+            journaled.addTask(new Task(0, "C" + i, "D", Status.NEW,
+                    LocalDateTime.of(2025, 7, 1, 0, 0).plusHours(i), Duration.ofMinutes(30)));
+        }
+        journaled.awaitCompaction();
+        journaled.close();
+        File log = new File(file.getPath() + ".log");
+        long journalLines = log.exists() ? Files.readAllLines(log.toPath()).size() : 0;
+        assertTrue(journalLines <= 6, "Записи до первого сжатия должны уйти из журнала");
+        assertTrue(Files.readString(file.toPath()).contains("C5"), "Снимок должен содержать сжатые записи");
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertEquals(12, loaded.getAllTasks().size(), "Снимок и хвост журнала вместе дают полное состояние");
+        loaded.close();
+    }
+
+    @Test
+    void groupCommitPersistsConcurrentWrites() throws InterruptedException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, PersistenceMode.JOURNAL);
+        journaled.setDurability(Durability.GROUP_COMMIT, 1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 200; i++) {
+            pool.submit(() -> journaled.addTask(new Task("G", "D", Status.NEW, null, null)));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        journaled.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertEquals(200, loaded.getAllTasks().size(), "Все подтверждённые записи должны быть в журнале");
+        loaded.close();
+    }
+
+    @Test
+    void readsRunSafelyAlongsideConcurrentWrites() throws Exception {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, PersistenceMode.JOURNAL);
+        LocalDateTime base = LocalDateTime.of(2025, 11, 1, 0, 0);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < 2; w++) {
+                int offset = w * 10_000;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        journaled.addTask(new Task("R", "D", Status.NEW, base.plusMinutes(offset + i * 10L),
+                                Duration.ofMinutes(5)));
+                    }
+                }));
+            }
+            for (int r = 0; r < 2; r++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        for (Task t : journaled.getAllTasks()) journaled.getTaskById(t.getId());
+                        journaled.getPrioritizedTasks();
+                        journaled.getTasksByStatus(Status.NEW);
+                    }
+                }));
+            }
+            for (Future<?> f : futures) f.get(); // ConcurrentModificationException упала бы здесь
+        } finally {
+            pool.shutdown();
+        }
+        assertEquals(1_000, journaled.getAllTasks().size());
+        assertEquals(1_000, journaled.getPrioritizedTasks().size());
+        journaled.close();
+    }
+
+    @Test
+    void binarySnapshotRoundTripAndCsvExport() throws IOException {
+        manager.setSnapshotFormat(SnapshotFormat.BINARY);
+        Task task = new Task(0, "Бинарная задача", "BD", Status.IN_PROGRESS,
+                LocalDateTime.of(2025, 8, 1, 9, 30), Duration.ofMinutes(45));
+        manager.addTask(task);
+        Epic epic = new Epic(0, "BE", "BD", Status.NEW, null, Duration.ZERO);
+        manager.addEpic(epic);
+        manager.addSubtask(new Subtask(0, "BS", "BSD", Status.DONE,
+                LocalDateTime.of(2025, 8, 1, 11, 0), Duration.ofMinutes(15), epic.getId()));
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        Task restored = loaded.getTaskById(task.getId());
+        assertEquals(task, restored, "Задача должна восстановиться из двоичного снимка");
+        assertEquals(task.getStartTime(), restored.getStartTime());
+        assertEquals(task.getDuration(), restored.getDuration());
+        assertEquals(Status.DONE, loaded.getEpicById(epic.getId()).getStatus());
+
+        File csv = File.createTempFile("export", ".csv");
+        deleteWithSidecarsOnExit(csv);
+        loaded.exportToCsv(csv);
+        assertTrue(Files.readString(csv.toPath()).startsWith("id,type,name"), "Экспорт должен быть в CSV");
+        FileBackedTaskManager imported = FileBackedTaskManager.loadFromFile(csv);
+        assertEquals(task.getName(), imported.getTaskById(task.getId()).getName());
+        assertEquals(1, imported.getSubtasksOfEpic(epic.getId()).size());
+        imported.close();
+    }
+
+    @Test
+    void csvQuotesNamesWithCommasQuotesAndNewlines() {
+        Task task = new Task(0, "Купить, молоко", "Сказать \"привет\"\nи уйти", Status.NEW,
+                LocalDateTime.of(2025, 8, 2, 9, 0, 15), Duration.ofMinutes(10));
+        manager.addTask(task);
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        Task restored = loaded.getTaskById(task.getId());
+        assertEquals(task.getName(), restored.getName(), "Запятая в имени не должна ломать файл");
+        assertEquals(task.getDescription(), restored.getDescription(), "Кавычки и перевод строки сохраняются");
+        assertEquals(task.getStartTime(), restored.getStartTime());
+    }
+
+    @Test
+    void journalIgnoresTornLastRecord() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, PersistenceMode.JOURNAL);
+        journaled.addTask(new Task(0, "A", "D", Status.NEW, null, Duration.ZERO));
+        Task second = new Task(0, "B, с запятой", "D", Status.NEW, null, Duration.ZERO);
+        journaled.addTask(second);
+        journaled.close();
+        File log = new File(file.getPath() + ".log");
+        Files.writeString(log.toPath(), "PUT,999,TASK,\"недописан", StandardOpenOption.APPEND);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertEquals(2, loaded.getAllTasks().size(), "Недописанная запись в конце журнала отбрасывается");
+        assertEquals(second.getName(), loaded.getTaskById(second.getId()).getName());
+        loaded.close();
+    }
+
+    @Test
+    void truncatedRecordIsNotReplayedEvenIfItStillParses() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, PersistenceMode.JOURNAL);
+        Task task = new Task(0, "A", "D", Status.NEW, null, Duration.ZERO);
+        journaled.addTask(task);
+        journaled.updateTask(new Task(task.getId(), "A2", "D", Status.NEW, null, Duration.ofMinutes(30)));
+        journaled.close();
+        File log = new File(file.getPath() + ".log");
+        byte[] bytes = Files.readAllBytes(log.toPath());
+        Files.write(log.toPath(), Arrays.copyOf(bytes, bytes.length - 3)); // «…,30,\n» → «…,3»
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertEquals(Duration.ZERO, loaded.getTaskById(task.getId()).getDuration(), "Обрезанная запись не проигрывается");
+        loaded.updateTask(new Task(task.getId(), "A3", "D", Status.DONE, null, Duration.ZERO));
+        loaded.close();
+        FileBackedTaskManager reloaded = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertEquals("A3", reloaded.getTaskById(task.getId()).getName(), "Хвост обрезан, и новая запись читается");
+        reloaded.close();
+    }
+
+    @Test
+    void corruptRecordInTheMiddleOfJournalFailsLoading() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, PersistenceMode.JOURNAL);
+        journaled.addTask(new Task(0, "A", "D", Status.NEW, null, Duration.ZERO));
+        journaled.addTask(new Task(0, "Bbb", "D", Status.NEW, null, Duration.ZERO));
+        journaled.addTask(new Task(0, "C", "D", Status.NEW, null, Duration.ZERO));
+        journaled.close();
+        File log = new File(file.getPath() + ".log");
+        String journal = Files.readString(log.toPath());
+        Files.writeString(log.toPath(), journal.replace("Bbb", "Bxb"));
+
+        assertThrows(ManagerLoadException.class, () -> FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL));
+    }
+
+    @Test
+    void journalWithoutFramesIsReplayedAndReplacedBySnapshot() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, PersistenceMode.JOURNAL);
+        journaled.addTask(new Task(0, "A", "D", Status.NEW, null, Duration.ZERO));
+        journaled.addTask(new Task(0, "B", "D", Status.NEW, null, Duration.ZERO));
+        journaled.close();
+        File log = new File(file.getPath() + ".log");
+        StringBuilder unframed = new StringBuilder();
+        for (String line : Files.readAllLines(log.toPath())) {
+            unframed.append(line.replaceFirst("^\\d+,\\d+,", "")).append('\n'); // формат прежних версий
+        }
+        Files.writeString(log.toPath(), unframed);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertEquals(2, loaded.getAllTasks().size());
+        assertEquals(0, Files.size(log.toPath()), "Старый журнал сразу заменяется снимком");
+        loaded.close();
+    }
+
+    @Test
+    void unterminatedLastRecordOfJournalWithoutFramesIsNotReplayed() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, PersistenceMode.JOURNAL);
+        Task task = new Task(0, "A", "D", Status.NEW, null, Duration.ZERO);
+        journaled.addTask(task);
+        journaled.updateTask(new Task(task.getId(), "A2", "D", Status.NEW, null, Duration.ofMinutes(30)));
+        journaled.close();
+        File log = new File(file.getPath() + ".log");
+        StringBuilder unframed = new StringBuilder();
+        for (String line : Files.readAllLines(log.toPath())) {
+            unframed.append(line.replaceFirst("^\\d+,\\d+,", "")).append('\n');
+        }
+        unframed.setLength(unframed.length() - 3); // «…,30,\n» → «…,3»: поля разбираются, но перевода строки нет
+        Files.writeString(log.toPath(), unframed);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL);
+        assertEquals(Duration.ZERO, loaded.getTaskById(task.getId()).getDuration(),
+                "Запись без завершающего перевода строки не проигрывается");
+        loaded.close();
+    }
+
+    @Test
+    void writeBehindCoalescesUpdatesOfOneTask() throws IOException {
+        FileBackedTaskManager delayed = new FileBackedTaskManager(file, PersistenceMode.WRITE_BEHIND);
+        delayed.setWriteBehindLimits(100, 60_000);
+        delayed.addTask(new Task(0, "First", "D", Status.NEW, null, Duration.ZERO)); // пишет начальный снимок
+        Task task = new Task(0, "WB", "D", Status.NEW, null, Duration.ZERO);
+        delayed.addTask(task);
+        for (int i = 0; i < 10; i++) {
+            task.setName("WB" + i);
+            delayed.updateTask(task);
+        }
+        delayed.flush();
+        List<String> journalLines = Files.readAllLines(new File(file.getPath() + ".log").toPath());
+        assertEquals(1, journalLines.size(), "Обновления одной задачи за интервал объединяются в одну запись");
+        delayed.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, PersistenceMode.WRITE_BEHIND);
+        assertEquals("WB9", loaded.getTaskById(task.getId()).getName());
+        loaded.close();
+    }
+
+    @Test
+    void writeBehindAppliesBackpressureWhenFull() {
+        FileBackedTaskManager delayed = new FileBackedTaskManager(file, PersistenceMode.WRITE_BEHIND);
+        delayed.setWriteBehindLimits(2, 60_000);
+        for (int i = 0; i < 20; i++) {
+            delayed.addTask(new Task(0, "BP" + i, "D", Status.NEW, null, Duration.ZERO));
+        }
+        delayed.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, PersistenceMode.WRITE_BEHIND);
+        assertEquals(20, loaded.getAllTasks().size(), "Все изменения должны дойти до журнала");
+        loaded.close();
+    }
+
+    @Test
+    void bulkLoadRecomputesEpicOnceWithCorrectAggregates() {
+        Epic epic = new Epic(0, "BL", "D", Status.NEW, null, Duration.ZERO);
+        manager.addEpic(epic);
+        LocalDateTime start = LocalDateTime.of(2025, 9, 1, 8, 0);
+        for (int i = 0; i < 50; i++) {
+            manager.addSubtask(new Subtask(0, "S" + i, "D", i == 0 ? Status.IN_PROGRESS : Status.NEW,
+                    start.plusHours(i), Duration.ofMinutes(30), epic.getId()));
+        }
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        Epic restored = loaded.getEpicById(epic.getId());
+        assertEquals(Status.IN_PROGRESS, restored.getStatus());
+        assertEquals(start, restored.getStartTime(), "Начало эпика — минимальное начало подзадач");
+        assertEquals(start.plusHours(49).plusMinutes(30), restored.getEndTime());
+        assertEquals(Duration.ofMinutes(50 * 30), restored.getDuration());
+        assertEquals(50, loaded.getPrioritizedTasks().size());
+        assertEquals(start, loaded.getPrioritizedTasks().get(0).getStartTime());
+        assertEquals(List.of(restored), loaded.getEpicsByStatus(Status.IN_PROGRESS), "Индекс статусов строится после загрузки");
+        assertEquals(49, loaded.countByStatus(TaskType.SUBTASK, Status.NEW));
+    }
+
+    @Test
+    void viewHistoryIsRestoredInOrderWithoutDeletedTasks() {
+        Task first = new Task(0, "V1", "D", Status.NEW, null, Duration.ZERO);
+        Task second = new Task(0, "V2", "D", Status.NEW, null, Duration.ZERO);
+        Task removed = new Task(0, "V3", "D", Status.NEW, null, Duration.ZERO);
+        Epic epic = new Epic(0, "VE", "D", Status.NEW, null, Duration.ZERO);
+        manager.addTask(first);
+        manager.addTask(second);
+        manager.addTask(removed);
+        manager.addEpic(epic);
+        manager.getTaskById(first.getId());
+        manager.getTaskById(removed.getId());
+        manager.getEpicById(epic.getId());
+        manager.getTaskById(second.getId());
+        manager.getTaskById(first.getId()); // повторный просмотр переносит задачу в конец
+        manager.removeTaskById(removed.getId());
+        manager.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(List.of(epic.getId(), second.getId(), first.getId()),
+                loaded.getFromHistory().stream().map(Task::getId).toList(),
+                "История восстанавливается в порядке последних просмотров без удалённых задач");
+        loaded.getTaskById(second.getId());
+        loaded.close();
+        assertEquals(List.of(epic.getId(), first.getId(), second.getId()),
+                FileBackedTaskManager.loadFromFile(file).getFromHistory().stream().map(Task::getId).toList(),
+                "Просмотры после загрузки дописываются в тот же журнал");
+    }
+
+    @Test
+    void viewLogIsCompactedToCurrentHistory() throws IOException {
+        Task a = new Task(0, "A", "D", Status.NEW, null, Duration.ZERO);
+        Task b = new Task(0, "B", "D", Status.NEW, null, Duration.ZERO);
+        manager.addTask(a);
+        manager.addTask(b);
+        int views = ViewLog.COMPACTION_FACTOR * InMemoryHistoryManager.DEFAULT_CAPACITY + 10;
+        for (int i = 0; i < views; i++) {
+            manager.getTaskById(i % 2 == 0 ? b.getId() : a.getId());
+            if (i % 1000 == 0) manager.flush(); // несколько пачек, чтобы порог сработал посреди записи
+        }
+        manager.flush();
+        long lines = Files.readAllLines(new File(file.getPath() + ".views").toPath()).size();
+        assertTrue(lines < views / 2, "Журнал просмотров должен сжаться, строк: " + lines);
+
+        manager.close();
+        assertEquals(List.of(b.getId(), a.getId()),
+                FileBackedTaskManager.loadFromFile(file).getFromHistory().stream().map(Task::getId).toList());
+    }
+
+    @Test
+    void tornLastViewIsDroppedAndNextViewStartsOnNewLine() throws IOException {
+        Task a = new Task(0, "A", "D", Status.NEW, null, Duration.ZERO);
+        Task b = new Task(0, "B", "D", Status.NEW, null, Duration.ZERO);
+        manager.addTask(a);
+        manager.addTask(b);
+        manager.getTaskById(a.getId());
+        manager.getTaskById(b.getId());
+        manager.close();
+        File views = new File(file.getPath() + ".views");
+        Files.writeString(views.toPath(), "-", StandardOpenOption.APPEND); // сбой посреди записи удаления
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(List.of(a.getId(), b.getId()), loaded.getFromHistory().stream().map(Task::getId).toList(),
+                "Недописанная последняя строка отбрасывается");
+        loaded.getTaskById(a.getId());
+        loaded.close();
+        assertEquals(List.of(b.getId(), a.getId()),
+                FileBackedTaskManager.loadFromFile(file).getFromHistory().stream().map(Task::getId).toList(),
+                "Новый просмотр не склеивается с отброшенным хвостом");
+    }
+
+    @Test
+    void corruptViewLogDoesNotBlockLoading() throws IOException {
+        Task a = new Task(0, "A", "D", Status.NEW, null, Duration.ZERO);
+        manager.addTask(a);
+        manager.getTaskById(a.getId());
+        manager.close();
+        File views = new File(file.getPath() + ".views");
+        Files.writeString(views.toPath(), "1\nмусор\n1\n");
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(1, loaded.getAllTasks().size(), "Задачи загружаются независимо от журнала просмотров");
+        assertTrue(loaded.getFromHistory().isEmpty(), "Повреждённый журнал просмотров даёт пустую историю");
+        loaded.getTaskById(a.getId());
+        loaded.close();
+        assertEquals(List.of(a.getId()),
+                FileBackedTaskManager.loadFromFile(file).getFromHistory().stream().map(Task::getId).toList(),
+                "Журнал начинается заново");
+    }
+}
@@ -6,6 +6,7 @@ import utils.Managers;
 import utils.Status;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 
 public class HistoryManagerTest {
@@ -64,4 +65,18 @@ public class HistoryManagerTest {
         assertFalse(history.getHistory().contains(t2), "Последний элемент должен быть удален");
         assertEquals(1, history.getHistory().size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void leastRecentlyViewedIsEvictedAtCapacity() {
+        HistoryManager bounded = Managers.getDefaultHistory(2);
+        Task t1 = new Task(1, "H1", "", Status.NEW, LocalDateTime.now(), Duration.ZERO);
+        Task t2 = new Task(2, "H2", "", Status.NEW, LocalDateTime.now(), Duration.ZERO);
+        Task t3 = new Task(3, "H3", "", Status.NEW, LocalDateTime.now(), Duration.ZERO);
+        bounded.add(t1);
+        bounded.add(t2);
+        bounded.add(t1); // повторный просмотр делает t1 самым свежим
+        bounded.add(t3);
+        assertEquals(List.of(t1, t3), bounded.getHistory(), "Вытесняется давно не просмотренная t2");
+        assertThrows(IllegalArgumentException.class, () -> Managers.getDefaultHistory(0));
+    }
+}
@@ -1,8 +1,41 @@
 package managers;
 
+import model.Task;
+import org.junit.jupiter.api.Test;
+import utils.Status;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
 public class InMemoryTaskManagerTest extends AbstractTaskManagerTest<InMemoryTaskManager> {
     @Override
     protected InMemoryTaskManager createManager() {
         return new InMemoryTaskManager();
     }
+
+    @Test
+    void sortedListViewSupportsRangeViews() {
+        LocalDateTime base = LocalDateTime.of(2025, 12, 1, 9, 0);
+        Task a = new Task(1, "A", "D", Status.NEW, base, Duration.ofMinutes(30));
+        Task b = new Task(2, "B", "D", Status.NEW, base.plusHours(1), Duration.ofMinutes(30));
+        Task c = new Task(3, "C", "D", Status.NEW, base.plusHours(2), Duration.ofMinutes(30));
+        Task between = new Task(4, "X", "D", Status.NEW, base.plusMinutes(90), Duration.ofMinutes(10));
+        SortedSet<Task> view = new InMemoryTaskManager.SortedListView(List.of(a, b, c));
+
+        assertTrue(view.contains(b));
+        assertFalse(view.contains(between));
+        assertEquals(List.of(a), List.copyOf(view.headSet(b)));
+        assertEquals(List.of(c), List.copyOf(view.tailSet(between)), "Граница может отсутствовать в наборе");
+        assertEquals(List.of(a, b), List.copyOf(view.subSet(a, c)));
+        assertEquals(b, view.tailSet(b).first());
+        assertThrows(IllegalArgumentException.class, () -> view.subSet(c, a));
+        assertThrows(NoSuchElementException.class, () -> view.headSet(a).first());
+        assertEquals(List.of(b, c), List.copyOf(new TreeSet<>(view.tailSet(b))));
+    }
 }
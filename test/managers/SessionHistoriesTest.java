@@ -0,0 +1,67 @@
+package managers;
+
+import model.Task;
+import org.junit.jupiter.api.*;
+import utils.Status;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SessionHistoriesTest {
+    private final AtomicLong now = new AtomicLong();
+
+    private static Task task(int id) {
+        return new Task(id, "H" + id, "", Status.NEW, null, Duration.ZERO);
+    }
+
+    @Test
+    void sessionsHaveSeparateBoundedHistories() {
+        SessionHistories sessions = new SessionHistories(2, Duration.ofMinutes(1), 100, now::get);
+        sessions.add("a", task(1));
+        sessions.add("a", task(2));
+        sessions.add("a", task(3));
+        sessions.add("b", task(1));
+        assertEquals(List.of(task(2), task(3)), sessions.getHistory("a"));
+        assertEquals(List.of(task(1)), sessions.getHistory("b"));
+        assertTrue(sessions.getHistory("c").isEmpty());
+
+        sessions.remove(1);
+        assertTrue(sessions.getHistory("b").isEmpty(), "Удалённая задача пропадает из всех сессий");
+        assertThrows(IllegalArgumentException.class, () -> sessions.add(" ", task(1)));
+    }
+
+    @Test
+    void idleSessionsExpireAndGlobalCapEvictsLeastRecentlyActive() {
+        SessionHistories sessions = new SessionHistories(3, Duration.ofSeconds(10), 6, now::get);
+        for (int id = 1; id <= 3; id++) sessions.add("old", task(id));
+        now.addAndGet(Duration.ofSeconds(5).toNanos());
+        for (int id = 1; id <= 3; id++) sessions.add("mid", task(id));
+        now.addAndGet(Duration.ofSeconds(1).toNanos());
+        sessions.add("new", task(1)); // 7 записей при лимите 6 — вытесняется самая давняя сессия
+        assertEquals(2, sessions.sessionCount());
+        assertTrue(sessions.getHistory("old").isEmpty());
+        assertEquals(4, sessions.totalSize());
+
+        now.addAndGet(Duration.ofSeconds(11).toNanos());
+        for (int i = 0; i < SessionHistories.SWEEP_INTERVAL; i++) sessions.add("late", task(1));
+        assertEquals(1, sessions.sessionCount(), "Сессии без обращений дольше таймаута удаляются");
+        assertEquals(1, sessions.totalSize());
+    }
+
+    @Test
+    void uniqueSessionPerRequestStaysWithinGlobalCapInAccessOrder() {
+        SessionHistories sessions = new SessionHistories(10, Duration.ofMinutes(1), 1_000, now::get);
+        sessions.add("kept", task(1));
+        for (int i = 0; i < 50_000; i++) {
+            if (i % 100 == 0) sessions.getHistory("kept"); // обращение переносит сессию в конец порядка
+            sessions.add("s" + i, task(i));
+        }
+        assertEquals(1_000, sessions.totalSize(), "Счётчик объёма точен и не превышает лимит");
+        assertEquals(1_000, sessions.sessionCount());
+        assertEquals(List.of(task(1)), sessions.getHistory("kept"), "Недавно активная сессия не вытесняется");
+        assertTrue(sessions.getHistory("s0").isEmpty());
+    }
+}
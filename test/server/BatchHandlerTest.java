@@ -0,0 +1,63 @@
+package server;
+
+import managers.InMemoryTaskManager;
+import managers.TaskManager;
+import utils.IdGenerator;
+import org.junit.jupiter.api.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BatchHandlerTest {
+    private HttpTaskServer server;
+    private HttpClient client;
+    private TaskManager manager;
+    private final String baseUrl = "http://localhost:8080/batch";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        IdGenerator.reset();
+        manager = new InMemoryTaskManager();
+        server = new HttpTaskServer(manager);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        return client.send(HttpRequest.newBuilder()
+                        .uri(URI.create(baseUrl + path))
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void postBatchAddsAllTasks() throws Exception {
+        HttpResponse<String> resp = post("/tasks", "["
+                + "{\"name\":\"A\",\"description\":\"D\",\"status\":\"NEW\",\"startTime\":\"2025-10-04T09:00\",\"duration\":\"PT30M\"},"
+                + "{\"name\":\"B\",\"description\":\"D\",\"status\":\"NEW\",\"startTime\":\"2025-10-04T10:00\",\"duration\":\"PT30M\"}]");
+        assertEquals(201, resp.statusCode());
+        assertEquals("[1,2]", resp.body());
+        assertEquals(2, manager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void overlappingBatchIsRejectedWhole() throws Exception {
+        HttpResponse<String> resp = post("/tasks", "["
+                + "{\"name\":\"A\",\"description\":\"D\",\"status\":\"NEW\",\"startTime\":\"2025-10-04T09:00\",\"duration\":\"PT60M\"},"
+                + "{\"name\":\"B\",\"description\":\"D\",\"status\":\"NEW\",\"startTime\":\"2025-10-04T09:30\",\"duration\":\"PT30M\"}]");
+        assertEquals(406, resp.statusCode());
+        assertTrue(manager.getAllTasks().isEmpty());
+        assertEquals(400, post("/tasks", "[]").statusCode());
+    }
+}
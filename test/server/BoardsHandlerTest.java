@@ -0,0 +1,115 @@
+package server;
+
+import managers.BoardRegistry;
+import managers.InMemoryTaskManager;
+import org.junit.jupiter.api.*;
+import utils.PersistenceMode;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BoardsHandlerTest {
+    private HttpTaskServer server;
+    private HttpClient client;
+    private BoardRegistry boards;
+    private final String baseUrl = "http://localhost:8080";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        boards = BoardRegistry.inMemory();
+        server = new HttpTaskServer(boards);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder().GET().uri(URI.create(baseUrl + path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, String body) throws Exception {
+        return client.send(HttpRequest.newBuilder()
+                        .uri(URI.create(baseUrl + path))
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void boardsAreRoutedByKeyWithOwnIdSpaces() throws Exception {
+        String task = "{\"name\":\"T\",\"description\":\"D\",\"status\":\"NEW\"}";
+        assertEquals(201, post("/boards/alpha/tasks", task).statusCode());
+        assertEquals(201, post("/boards/beta/tasks", task).statusCode());
+        assertEquals(201, post("/boards/beta/tasks", task).statusCode());
+
+        assertEquals(1, boards.get("alpha").getAllTasks().size());
+        assertEquals(2, boards.get("beta").getAllTasks().size());
+        assertEquals(200, get("/boards/alpha/tasks?id=1").statusCode(), "У каждой доски id начинаются с 1");
+        assertEquals(404, get("/boards/alpha/tasks?id=2").statusCode());
+        assertEquals(200, get("/boards/beta/tasks?id=2").statusCode());
+
+        assertEquals(201, post("/tasks", task).statusCode(), "Пути без префикса ведут к доске по умолчанию");
+        assertEquals(1, boards.get(HttpTaskServer.DEFAULT_BOARD).getAllTasks().size());
+        assertEquals("[\"alpha\",\"beta\",\"default\"]", get("/boards").body());
+    }
+
+    @Test
+    void invalidKeyOrResourceIsRejected() throws Exception {
+        assertEquals(400, get("/boards/bad%20key/tasks").statusCode());
+        assertEquals(404, get("/boards/alpha/unknown").statusCode());
+        assertEquals(404, get("/boards/alpha").statusCode());
+    }
+
+    @Test
+    void concurrentRequestsToFileBackedBoardAreNotSerializedPerExchange() throws Exception {
+        server.stop();
+        File dir = Files.createTempDirectory("boards-http").toFile();
+        try (BoardRegistry fileBoards = BoardRegistry.fileBacked(dir, PersistenceMode.JOURNAL)) {
+            server = new HttpTaskServer(fileBoards);
+            server.start();
+            ExecutorService pool = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<HttpResponse<String>>> responses = new ArrayList<>();
+                for (int i = 0; i < 40; i++) {
+                    String task = "{\"name\":\"T" + i + "\",\"description\":\"D\",\"status\":\"NEW\"}";
+                    responses.add(pool.submit(() -> post("/boards/team/tasks", task)));
+                    responses.add(pool.submit(() -> get("/boards/team/tasks")));
+                }
+                for (Future<HttpResponse<String>> r : responses) assertTrue(r.get().statusCode() < 300);
+            } finally {
+                pool.shutdown();
+            }
+            assertEquals(40, fileBoards.get("team").getAllTasks().size());
+        } finally {
+            for (File f : dir.listFiles()) f.delete();
+            dir.delete();
+        }
+    }
+
+    @Test
+    void serverOverPlainManagerDoesNotExposeUnrelatedBoards() throws Exception {
+        server.stop();
+        server = new HttpTaskServer(new InMemoryTaskManager());
+        server.start();
+        assertEquals(404, get("/boards").statusCode(), "Без реестра досок /boards не регистрируется");
+        assertEquals(404, get("/boards/default/tasks").statusCode());
+        assertEquals(200, get("/tasks").statusCode());
+    }
+}
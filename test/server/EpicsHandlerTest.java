@@ -7,6 +7,8 @@ import managers.InMemoryTaskManager;
 import managers.TaskManager;
 import org.junit.jupiter.api.*;
 import utils.DurationAdapter;
+import utils.IntHashSet;
+import utils.IntHashSetAdapter;
 import utils.IdGenerator;
 import utils.LocalDateTimeAdapter;
 import utils.Status;
@@ -28,6 +30,7 @@ class EpicsHandlerTest {
     private static final Gson gson = new GsonBuilder()
             .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
             .registerTypeAdapter(Duration.class, new DurationAdapter())
+            .registerTypeAdapter(IntHashSet.class, new IntHashSetAdapter())
             .create();
     private final String baseUrl = "http://localhost:8080/epics";
 
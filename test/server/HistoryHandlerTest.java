@@ -4,9 +4,11 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import managers.InMemoryTaskManager;
 import managers.TaskManager;
+import model.Task;
 import utils.DurationAdapter;
 import utils.IdGenerator;
 import utils.LocalDateTimeAdapter;
+import utils.Status;
 import org.junit.jupiter.api.*;
 
 import java.net.URI;
@@ -15,6 +17,7 @@ import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.Arrays;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -22,6 +25,7 @@ import static org.junit.jupiter.api.Assertions.*;
 class HistoryHandlerTest {
     private HttpTaskServer server;
     private HttpClient client;
+    private TaskManager mgr;
     private static final Gson gson = new GsonBuilder()
             .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
             .registerTypeAdapter(Duration.class, new DurationAdapter())
@@ -30,7 +34,7 @@ class HistoryHandlerTest {
 
     @BeforeEach
     void setUp() throws Exception {
-        TaskManager mgr = new InMemoryTaskManager();
+        mgr = new InMemoryTaskManager();
         server = new HttpTaskServer(mgr);
         server.start();
         client = HttpClient.newHttpClient();
@@ -64,4 +68,36 @@ class HistoryHandlerTest {
         );
         assertEquals(500, resp.statusCode());
     }
-}
\ No newline at end of file
+
+    @Test
+    void historyIsKeptPerSessionHeader() throws Exception {
+        Task a = new Task("A", "D", Status.NEW, null, Duration.ZERO);
+        Task b = new Task("B", "D", Status.NEW, null, Duration.ZERO);
+        mgr.addTask(a);
+        mgr.addTask(b);
+        view("alice", a.getId());
+        view("bob", b.getId());
+        view(null, b.getId());
+
+        assertEquals("[\"A\"]", namesInHistory("alice"));
+        assertEquals("[\"B\"]", namesInHistory("bob"));
+        assertEquals("[\"B\"]", namesInHistory(null), "Без заголовка — общая история");
+        assertEquals("[]", namesInHistory("carol"));
+    }
+
+    private void view(String session, int id) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder().GET()
+                .uri(URI.create("http://localhost:8080/tasks?id=" + id));
+        if (session != null) request.header("X-Session-Id", session);
+        assertEquals(200, client.send(request.build(), HttpResponse.BodyHandlers.ofString()).statusCode());
+    }
+
+    private String namesInHistory(String session) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder().GET().uri(URI.create(baseUrl));
+        if (session != null) request.header("X-Session-Id", session);
+        HttpResponse<String> resp = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, resp.statusCode());
+        Task[] history = gson.fromJson(resp.body(), Task[].class);
+        return gson.toJson(Arrays.stream(history).map(Task::getName).toList());
+    }
+}
@@ -60,4 +60,25 @@ class PrioritizedHandlerTest {
         );
         assertEquals(500, resp.statusCode());
     }
-}
\ No newline at end of file
+
+    @Test
+    void windowAndNextQueries() throws Exception {
+        HttpResponse<String> window = client.send(HttpRequest.newBuilder().GET()
+                        .uri(URI.create(baseUrl + "?from=2025-01-01T10:15&to=2025-01-02T00:00")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, window.statusCode());
+        assertTrue(window.body().contains("Task 1"), "Задача, идущая в момент from, попадает в окно");
+        assertFalse(window.body().contains("Task 2"));
+
+        HttpResponse<String> next = client.send(HttpRequest.newBuilder().GET()
+                        .uri(URI.create(baseUrl + "?after=2025-01-01T11:00&limit=1")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, next.statusCode());
+        assertTrue(next.body().contains("Task 2"));
+
+        HttpResponse<String> bad = client.send(HttpRequest.newBuilder().GET()
+                        .uri(URI.create(baseUrl + "?from=yesterday&to=2025-01-02T00:00")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, bad.statusCode());
+    }
+}
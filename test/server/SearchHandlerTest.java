@@ -0,0 +1,62 @@
+package server;
+
+import managers.InMemoryTaskManager;
+import managers.TaskManager;
+import model.Task;
+import utils.IdGenerator;
+import utils.Status;
+import org.junit.jupiter.api.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SearchHandlerTest {
+    private HttpTaskServer server;
+    private HttpClient client;
+    private final String baseUrl = "http://localhost:8080/search";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TaskManager mgr = new InMemoryTaskManager();
+        mgr.addTask(new Task("Write report", "Quarterly numbers", Status.NEW, null, Duration.ZERO));
+        mgr.addTask(new Task("Review report", "For the board", Status.NEW, null, Duration.ZERO));
+        server = new HttpTaskServer(mgr);
+        server.start();
+        client = HttpClient.newHttpClient();
+        IdGenerator.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    void searchByQuery() throws Exception {
+        HttpResponse<String> resp = client.send(HttpRequest.newBuilder().GET()
+                        .uri(URI.create(baseUrl + "?q=rev%20REP")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, resp.statusCode());
+        assertTrue(resp.body().contains("Review report"));
+        assertFalse(resp.body().contains("Write report"));
+    }
+
+    @Test
+    void emptyQueryReturns400AndStatsAreReported() throws Exception {
+        HttpResponse<String> empty = client.send(HttpRequest.newBuilder().GET()
+                        .uri(URI.create(baseUrl + "?q=")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, empty.statusCode());
+        HttpResponse<String> stats = client.send(HttpRequest.newBuilder().GET()
+                        .uri(URI.create(baseUrl + "/stats")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, stats.statusCode());
+        assertTrue(stats.body().contains("\"documents\":2"));
+    }
+}
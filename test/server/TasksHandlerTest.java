@@ -3,21 +3,29 @@ package server;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import model.Task;
+import utils.Durability;
 import utils.DurationAdapter;
 import utils.IdGenerator;
 import utils.LocalDateTimeAdapter;
+import utils.PersistenceMode;
 import utils.Status;
+import managers.FileBackedTaskManager;
 import managers.InMemoryTaskManager;
 import managers.TaskManager;
 import org.junit.jupiter.api.*;
 
+import java.io.File;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -25,6 +33,7 @@ import static org.junit.jupiter.api.Assertions.*;
 class TasksHandlerTest {
     private HttpTaskServer server;
     private HttpClient client;
+    private TaskManager manager;
     private static final Gson gson = new GsonBuilder()
             .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
             .registerTypeAdapter(Duration.class, new DurationAdapter())
@@ -33,8 +42,8 @@ class TasksHandlerTest {
 
     @BeforeEach
     void setUp() throws Exception {
-        TaskManager mgr = new InMemoryTaskManager();
-        server = new HttpTaskServer(mgr);
+        manager = new InMemoryTaskManager();
+        server = new HttpTaskServer(manager);
         server.start();
         client = HttpClient.newHttpClient();
         IdGenerator.reset();
@@ -133,5 +142,109 @@ class TasksHandlerTest {
         );
         assertEquals(404, respNot.statusCode());
     }
-}
 
+    @Test
+    void pagedGetWalksAllTasksWithCursor() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            Task t = new Task("P" + i, "D", Status.NEW, LocalDateTime.of(2025, 2, 1, 10 + i, 0), Duration.ofMinutes(30));
+            client.send(HttpRequest.newBuilder()
+                            .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(t)))
+                            .uri(URI.create(baseUrl))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+        }
+        List<String> names = new java.util.ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            String url = baseUrl + "?limit=2" + (cursor == null ? "" : "&cursor=" + cursor);
+            HttpResponse<String> resp = client.send(HttpRequest.newBuilder().GET().uri(URI.create(url)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, resp.statusCode());
+            com.google.gson.JsonObject page = gson.fromJson(resp.body(), com.google.gson.JsonObject.class);
+            page.getAsJsonArray("items").forEach(e -> names.add(e.getAsJsonObject().get("name").getAsString()));
+            cursor = page.has("nextCursor") ? page.get("nextCursor").getAsString() : null;
+            pages++;
+        } while (cursor != null);
+        assertEquals(List.of("P0", "P1", "P2", "P3", "P4"), names);
+        assertEquals(3, pages);
+    }
+
+    @Test
+    void pagedGetWithBrokenCursorReturns400() throws Exception {
+        HttpResponse<String> resp = client.send(HttpRequest.newBuilder().GET()
+                        .uri(URI.create(baseUrl + "?limit=2&cursor=bm90LWEtY3Vyc29y")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, resp.statusCode());
+        HttpResponse<String> badLimit = client.send(HttpRequest.newBuilder().GET()
+                        .uri(URI.create(baseUrl + "?limit=abc")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, badLimit.statusCode());
+    }
+
+    @Test
+    void statusFilterAndCount() throws Exception {
+        manager.addTask(new Task(0, "A", "D", Status.NEW, null, Duration.ZERO));
+        manager.addTask(new Task(0, "B", "D", Status.DONE, null, Duration.ZERO));
+        manager.addTask(new Task(0, "C", "D", Status.NEW, null, Duration.ZERO));
+
+        HttpResponse<String> filtered = client.send(HttpRequest.newBuilder().GET()
+                        .uri(URI.create(baseUrl + "?status=new")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, filtered.statusCode());
+        Task[] tasks = gson.fromJson(filtered.body(), Task[].class);
+        assertEquals(2, tasks.length);
+        for (Task t : tasks) assertEquals(Status.NEW, t.getStatus());
+
+        HttpResponse<String> count = client.send(HttpRequest.newBuilder().GET()
+                        .uri(URI.create(baseUrl + "?status=DONE&count=true")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals("{\"count\":1}", count.body());
+        HttpResponse<String> total = client.send(HttpRequest.newBuilder().GET()
+                        .uri(URI.create(baseUrl + "?count=true")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals("{\"count\":3}", total.body());
+
+        HttpResponse<String> unknown = client.send(HttpRequest.newBuilder().GET()
+                        .uri(URI.create(baseUrl + "?status=LATER")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, unknown.statusCode());
+    }
+
+    @Test
+    void concurrentPostsToFileBackedManagerShareGroupCommits() throws Exception {
+        server.stop();
+        File file = File.createTempFile("http-tasks", ".csv");
+        file.deleteOnExit();
+        new File(file.getPath() + ".log").deleteOnExit();
+        new File(file.getPath() + ".views").deleteOnExit();
+        FileBackedTaskManager fileBacked = new FileBackedTaskManager(file, PersistenceMode.JOURNAL);
+        fileBacked.saveToFile();
+        long window = 300;
+        fileBacked.setDurability(Durability.GROUP_COMMIT, window);
+        server = new HttpTaskServer(fileBacked);
+        server.start();
+
+        int requests = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<HttpResponse<String>>> responses = new ArrayList<>();
+            long started = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                Task t = new Task("G" + i, "D", Status.NEW, null, Duration.ZERO);
+                responses.add(pool.submit(() -> client.send(HttpRequest.newBuilder()
+                                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(t)))
+                                .uri(URI.create(baseUrl)).build(),
+                        HttpResponse.BodyHandlers.ofString())));
+            }
+            for (Future<HttpResponse<String>> r : responses) assertEquals(201, r.get().statusCode());
+            long elapsedMillis = (System.nanoTime() - started) / 1_000_000;
+            assertTrue(elapsedMillis < requests * window / 2,
+                    "Запросы должны ждать общий fsync, а не окно коммита по очереди: " + elapsedMillis + " мс");
+        } finally {
+            pool.shutdown();
+        }
+        fileBacked.close();
+        assertEquals(requests, FileBackedTaskManager.loadFromFile(file, PersistenceMode.JOURNAL).getAllTasks().size());
+    }
+}
@@ -0,0 +1,66 @@
+package server;
+
+import managers.InMemoryTaskManager;
+import managers.TaskManager;
+import model.Task;
+import utils.IdGenerator;
+import utils.Status;
+import org.junit.jupiter.api.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TransactionHandlerTest {
+    private HttpTaskServer server;
+    private HttpClient client;
+    private TaskManager manager;
+    private final String baseUrl = "http://localhost:8080/transaction";
+
+    @BeforeEach
+    void setUp() throws Exception {
+        IdGenerator.reset();
+        manager = new InMemoryTaskManager();
+        server = new HttpTaskServer(manager);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop();
+    }
+
+    private HttpResponse<String> post(String body) throws Exception {
+        return client.send(HttpRequest.newBuilder()
+                        .uri(URI.create(baseUrl))
+                        .POST(HttpRequest.BodyPublishers.ofString(body))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void mixedOperationsApplyTogether() throws Exception {
+        Task old = new Task(0, "Old", "D", Status.NEW, LocalDateTime.of(2025, 11, 6, 9, 0), Duration.ofMinutes(60));
+        manager.addTask(old);
+        HttpResponse<String> resp = post("["
+                + "{\"op\":\"remove\",\"type\":\"TASK\",\"id\":" + old.getId() + "},"
+                + "{\"op\":\"add\",\"type\":\"TASK\",\"entity\":{\"name\":\"New\",\"description\":\"D\","
+                + "\"status\":\"NEW\",\"startTime\":\"2025-11-06T09:00\",\"duration\":\"PT60M\"}}]");
+        assertEquals(200, resp.statusCode());
+        assertEquals("[" + old.getId() + ",2]", resp.body());
+        assertEquals("New", manager.getPrioritizedTasks().get(0).getName(), "Новая задача занимает освобождённый слот");
+    }
+
+    @Test
+    void malformedOperationReturns400() throws Exception {
+        assertEquals(400, post("[{\"op\":\"remove\",\"type\":\"TASK\"}]").statusCode());
+        assertEquals(404, post("[{\"op\":\"remove\",\"type\":\"TASK\",\"id\":42}]").statusCode());
+    }
+}